@@ -0,0 +1,204 @@
+package com.agors.historiography.appui;
+
+import com.agors.historiography.appui.forms.AddHistoricalPlaceUI;
+import com.agors.historiography.appui.forms.EditHistoricalPlaceUI;
+import com.agors.historiography.appui.forms.MenuHandler;
+import com.agors.historiography.appui.forms.ReviewManager;
+import com.agors.historiography.appui.forms.ReviewsAndRatingsUI;
+import com.agors.historiography.appui.forms.SettingsUI;
+import com.agors.historiography.appui.forms.TopRatedPlacesUI;
+import com.agors.historiography.appui.forms.UserManager;
+import com.agors.historiography.appui.forms.ViewHistoricalPlacesUI;
+import com.agors.historiography.persistence.repository.HistoricalPlaceRepository;
+import com.agors.historiography.persistence.repository.PlaceLeaderboard;
+import com.agors.historiography.persistence.repository.ReviewRepository;
+import com.agors.historiography.persistence.repository.UserRepository;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.screen.Screen;
+
+/**
+ * Контекст застосунку, що створює репозиторії та форми інтерфейсу один раз під час запуску. Меню
+ * отримують спільні екземпляри з контексту, тож повернення до меню не перечитує файли даних і не
+ * створює нових об'єктів, а використання пам'яті та час переходів не залежать від тривалості
+ * сеансу.
+ */
+public class AppContext {
+
+    private final Screen screen;
+    private final TextGraphics textGraphics;
+    private final UserRepository userRepository;
+    private final HistoricalPlaceRepository historicalPlaceRepository;
+    private final ReviewRepository reviewRepository;
+    private final PlaceLeaderboard placeLeaderboard;
+    private final MenuHandler menuHandler;
+    private final UserManager userManager;
+    private final AddHistoricalPlaceUI addHistoricalPlaceUI;
+    private final ViewHistoricalPlacesUI viewHistoricalPlacesUI;
+    private final TopRatedPlacesUI topRatedPlacesUI;
+    private final EditHistoricalPlaceUI editHistoricalPlaceUI;
+    private final ReviewManager reviewManager;
+    private final ReviewsAndRatingsUI reviewsAndRatingsUI;
+    private final SettingsUI settingsUI;
+
+    /**
+     * Конструктор, який завантажує репозиторії та створює всі форми інтерфейсу.
+     *
+     * @param screen екран, на якому виводяться елементи інтерфейсу.
+     */
+    public AppContext(Screen screen) {
+        this.screen = screen;
+        textGraphics = screen.newTextGraphics();
+
+        userRepository = new UserRepository();
+        historicalPlaceRepository = new HistoricalPlaceRepository();
+        reviewRepository = new ReviewRepository();
+        placeLeaderboard = new PlaceLeaderboard(historicalPlaceRepository, reviewRepository);
+
+        menuHandler = new MenuHandler(this);
+        userManager = new UserManager(userRepository, textGraphics, screen);
+        addHistoricalPlaceUI = new AddHistoricalPlaceUI(historicalPlaceRepository, screen);
+        viewHistoricalPlacesUI = new ViewHistoricalPlacesUI(historicalPlaceRepository,
+            reviewRepository, screen);
+        topRatedPlacesUI = new TopRatedPlacesUI(placeLeaderboard, screen);
+        editHistoricalPlaceUI = new EditHistoricalPlaceUI(historicalPlaceRepository, screen);
+        reviewManager = new ReviewManager(reviewRepository, textGraphics, screen);
+        reviewsAndRatingsUI = new ReviewsAndRatingsUI(historicalPlaceRepository, screen,
+            reviewRepository);
+        settingsUI = new SettingsUI(screen, menuHandler);
+    }
+
+    /**
+     * Повертає екран застосунку.
+     *
+     * @return екран.
+     */
+    public Screen getScreen() {
+        return screen;
+    }
+
+    /**
+     * Повертає об'єкт для малювання тексту на екрані.
+     *
+     * @return об'єкт для малювання тексту.
+     */
+    public TextGraphics getTextGraphics() {
+        return textGraphics;
+    }
+
+    /**
+     * Повертає репозиторій користувачів.
+     *
+     * @return репозиторій користувачів.
+     */
+    public UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    /**
+     * Повертає репозиторій історичних місць.
+     *
+     * @return репозиторій історичних місць.
+     */
+    public HistoricalPlaceRepository getHistoricalPlaceRepository() {
+        return historicalPlaceRepository;
+    }
+
+    /**
+     * Повертає репозиторій відгуків.
+     *
+     * @return репозиторій відгуків.
+     */
+    public ReviewRepository getReviewRepository() {
+        return reviewRepository;
+    }
+
+    /**
+     * Повертає рейтинг найкращих історичних місць.
+     *
+     * @return рейтинг історичних місць.
+     */
+    public PlaceLeaderboard getPlaceLeaderboard() {
+        return placeLeaderboard;
+    }
+
+    /**
+     * Повертає обробник головного меню.
+     *
+     * @return обробник меню.
+     */
+    public MenuHandler getMenuHandler() {
+        return menuHandler;
+    }
+
+    /**
+     * Повертає форму керування користувачами.
+     *
+     * @return форма керування користувачами.
+     */
+    public UserManager getUserManager() {
+        return userManager;
+    }
+
+    /**
+     * Повертає форму додавання історичного місця.
+     *
+     * @return форма додавання історичного місця.
+     */
+    public AddHistoricalPlaceUI getAddHistoricalPlaceUI() {
+        return addHistoricalPlaceUI;
+    }
+
+    /**
+     * Повертає форму перегляду історичних місць.
+     *
+     * @return форма перегляду історичних місць.
+     */
+    public ViewHistoricalPlacesUI getViewHistoricalPlacesUI() {
+        return viewHistoricalPlacesUI;
+    }
+
+    /**
+     * Повертає форму рейтингу найкращих історичних місць.
+     *
+     * @return форма рейтингу історичних місць.
+     */
+    public TopRatedPlacesUI getTopRatedPlacesUI() {
+        return topRatedPlacesUI;
+    }
+
+    /**
+     * Повертає форму редагування історичних місць.
+     *
+     * @return форма редагування історичних місць.
+     */
+    public EditHistoricalPlaceUI getEditHistoricalPlaceUI() {
+        return editHistoricalPlaceUI;
+    }
+
+    /**
+     * Повертає форму керування відгуками.
+     *
+     * @return форма керування відгуками.
+     */
+    public ReviewManager getReviewManager() {
+        return reviewManager;
+    }
+
+    /**
+     * Повертає форму відгуків та рейтингів.
+     *
+     * @return форма відгуків та рейтингів.
+     */
+    public ReviewsAndRatingsUI getReviewsAndRatingsUI() {
+        return reviewsAndRatingsUI;
+    }
+
+    /**
+     * Повертає форму налаштувань.
+     *
+     * @return форма налаштувань.
+     */
+    public SettingsUI getSettingsUI() {
+        return settingsUI;
+    }
+}
@@ -1,7 +1,6 @@
 package com.agors.historiography.appui;
 
 import com.agors.historiography.appui.forms.MenuHandler;
-import com.agors.historiography.persistence.repository.UserRepository;
 import com.googlecode.lanterna.screen.Screen;
 import com.googlecode.lanterna.terminal.DefaultTerminalFactory;
 import java.io.IOException;
@@ -23,13 +22,10 @@ public class Historiography {
             // Створюємо екран через DefaultTerminalFactory
             Screen screen = new DefaultTerminalFactory().createScreen();
             screen.startScreen();
-            var textGraphics = screen.newTextGraphics();
 
-            // Створюємо об'єкт UserRepository
-            UserRepository userRepository = new UserRepository();
-
-            // Створення об'єкта MenuHandler, передаємо всі необхідні параметри
-            MenuHandler menuHandler = new MenuHandler(screen, textGraphics, userRepository);
+            // Створюємо контекст застосунку: репозиторії та форми завантажуються один раз
+            AppContext context = new AppContext(screen);
+            MenuHandler menuHandler = context.getMenuHandler();
 
             // Показуємо вікно привітання
             menuHandler.showGreeting();
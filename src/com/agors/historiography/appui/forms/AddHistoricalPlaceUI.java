@@ -40,6 +40,15 @@ public class AddHistoricalPlaceUI {
         screen.clear();
         TextGraphics textGraphics = screen.newTextGraphics();
 
+        // Каталог, відкритий лише для читання, не можна змінювати
+        if (repository.isReadOnly()) {
+            textGraphics.setForegroundColor(TextColor.ANSI.RED);
+            textGraphics.putString(10, 5, "Каталог історичних місць доступний лише для читання.");
+            screen.refresh();
+            screen.readInput();
+            return;
+        }
+
         // Поля для введення
         String[] fields = {"Назва", "Опис", "Локація", "Категорія"};
         String[] inputs = {"", "", "", ""};
@@ -126,7 +135,7 @@ public class AddHistoricalPlaceUI {
                             screen.refresh();
                             screen.readInput();
                         } else {
-                            int id = repository.getHistoricalPlaces().size() + 1;
+                            int id = repository.nextId();
                             HistoricalPlace place = new HistoricalPlace(id, inputs[0], inputs[1],
                                 inputs[2], inputs[3]);
                             repository.addHistoricalPlace(place);
@@ -173,4 +182,4 @@ public class AddHistoricalPlaceUI {
             }
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
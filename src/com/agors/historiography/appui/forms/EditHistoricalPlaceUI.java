@@ -21,21 +21,17 @@ public class EditHistoricalPlaceUI {
     private static final int MAX_VISIBLE_PLACES = 10;
     private final HistoricalPlaceRepository historicalPlaceRepository;
     private final Screen screen;
-    private final MenuHandler menuHandler;
 
     /**
      * Конструктор класу.
      *
      * @param historicalPlaceRepository репозиторій для роботи з історичними місцями
      * @param screen                    екран для відображення інтерфейсу
-     * @param menuHandler               обробник меню
      */
     public EditHistoricalPlaceUI(HistoricalPlaceRepository historicalPlaceRepository,
-        Screen screen,
-        MenuHandler menuHandler) {
+        Screen screen) {
         this.historicalPlaceRepository = historicalPlaceRepository;
         this.screen = screen;
-        this.menuHandler = menuHandler;
     }
 
     /**
@@ -45,6 +41,12 @@ public class EditHistoricalPlaceUI {
      * @throws IOException у разі проблем з відображенням на екрані
      */
     public void show() throws IOException {
+        // Каталог, відкритий лише для читання, не можна змінювати
+        if (historicalPlaceRepository.isReadOnly()) {
+            showReadOnlyMessage();
+            return;
+        }
+
         List<HistoricalPlace> places = historicalPlaceRepository.getHistoricalPlaces();
 
         if (places.isEmpty()) {
@@ -121,6 +123,20 @@ public class EditHistoricalPlaceUI {
             "↑ Вгору   ↓ Вниз   Enter - Переглянути   Esc - Вихід");
     }
 
+    /**
+     * Відображає повідомлення, що каталог історичних місць доступний лише для читання.
+     *
+     * @throws IOException у разі проблем з відображенням на екрані
+     */
+    private void showReadOnlyMessage() throws IOException {
+        screen.clear();
+        TextGraphics textGraphics = screen.newTextGraphics();
+        textGraphics.setForegroundColor(TextColor.ANSI.RED);
+        textGraphics.putString(10, 5, "Каталог історичних місць доступний лише для читання.");
+        screen.refresh();
+        screen.readInput();
+    }
+
     /**
      * Відображає повідомлення, що немає доступних історичних місць для редагування.
      *
@@ -173,9 +189,12 @@ public class EditHistoricalPlaceUI {
                     break;
                 case Enter:
                     if (selectedOption == 0) {
-                        editPlaceDetails(place);
+                        editPlaceDetails(
+                            historicalPlaceRepository.findById(place.getId()));
                     } else if (selectedOption == 1) {
-                        deleteHistoricalPlace(place);
+                        if (deleteHistoricalPlace(place)) {
+                            return;
+                        }
                     } else if (selectedOption == 2) {
                         return;
                     }
@@ -189,7 +208,7 @@ public class EditHistoricalPlaceUI {
     /**
      * Дозволяє редагувати деталі вибраного історичного місця.
      *
-     * @param place історичне місце, яке редагується
+     * @param place історичне місце разом з описом, яке редагується
      * @throws IOException у разі проблем з відображенням на екрані
      */
     private void editPlaceDetails(HistoricalPlace place) throws IOException {
@@ -282,7 +301,7 @@ public class EditHistoricalPlaceUI {
                             place.setDescription(inputs[1]);
                             place.setLocation(inputs[2]);
                             place.setCategory(inputs[3]);
-                            historicalPlaceRepository.saveHistoricalPlaces();
+                            historicalPlaceRepository.updateById(place.getId(), place);
                             return;
                         }
                     } else if (selectedFieldIndex == fields.length + 1) {
@@ -312,12 +331,14 @@ public class EditHistoricalPlaceUI {
     }
 
     /**
-     * Видаляє вибране історичне місце.
+     * Видаляє вибране історичне місце після підтвердження. Після видалення керування повертається
+     * до меню адміністратора.
      *
      * @param place історичне місце, яке потрібно видалити
+     * @return true, якщо місце видалено, інакше false
      * @throws IOException у разі проблем з відображенням на екрані
      */
-    private void deleteHistoricalPlace(HistoricalPlace place) throws IOException {
+    private boolean deleteHistoricalPlace(HistoricalPlace place) throws IOException {
         screen.clear();
         TextGraphics textGraphics = screen.newTextGraphics();
         textGraphics.setForegroundColor(TextColor.ANSI.YELLOW);
@@ -329,8 +350,7 @@ public class EditHistoricalPlaceUI {
         Character response = keyStroke.getCharacter();
 
         if (response != null && (response == 'y' || response == 'Y')) {
-            historicalPlaceRepository.getHistoricalPlaces().remove(place);
-            historicalPlaceRepository.saveHistoricalPlaces();
+            historicalPlaceRepository.deleteById(place.getId());
 
             screen.clear();
             textGraphics.setForegroundColor(TextColor.ANSI.RED);
@@ -339,9 +359,8 @@ public class EditHistoricalPlaceUI {
             screen.refresh();
 
             screen.readInput();
-        } else {
-            return;
+            return true;
         }
-        menuHandler.showAdminMenu();
+        return false;
     }
 }
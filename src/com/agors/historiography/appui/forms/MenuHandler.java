@@ -1,11 +1,10 @@
 package com.agors.historiography.appui.forms;
 
+import com.agors.historiography.appui.AppContext;
 import com.agors.historiography.domain.entity.User;
 import com.agors.historiography.domain.message.MessageManager;
 import com.agors.historiography.domain.validations.Utils;
 import com.agors.historiography.domain.validations.Validation;
-import com.agors.historiography.persistence.repository.HistoricalPlaceRepository;
-import com.agors.historiography.persistence.repository.ReviewRepository;
 import com.agors.historiography.persistence.repository.UserRepository;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.TextColor.ANSI;
@@ -20,22 +19,23 @@ import java.io.IOException;
  */
 public class MenuHandler {
 
+    private final AppContext context;
     private final Screen screen;
     private final TextGraphics textGraphics;
     private final UserRepository userRepository;
     private final MessageManager messageManager;
 
     /**
-     * Конструктор класу.
+     * Конструктор класу. Форми меню беруться з контексту застосунку під час показу меню, тож
+     * обробник можна створювати ще до того, як контекст створить усі форми.
      *
-     * @param screen         екран, на якому виводяться елементи інтерфейсу
-     * @param textGraphics   об'єкт для малювання тексту на екрані
-     * @param userRepository репозиторій для роботи з користувачами
+     * @param context контекст застосунку зі спільними репозиторіями та формами
      */
-    public MenuHandler(Screen screen, TextGraphics textGraphics, UserRepository userRepository) {
-        this.screen = screen;
-        this.textGraphics = textGraphics;
-        this.userRepository = userRepository;
+    public MenuHandler(AppContext context) {
+        this.context = context;
+        this.screen = context.getScreen();
+        this.textGraphics = context.getTextGraphics();
+        this.userRepository = context.getUserRepository();
         this.messageManager = new MessageManager();
     }
 
@@ -528,8 +528,8 @@ public class MenuHandler {
      * переглядати відгуки та налаштування.
      * <p>
      * Після вибору пункту меню виконується відповідна дія: - Управління користувачами - Перегляд
-     * історичних місць - Додавання історичного місця - Редагування історичного місця - Керування
-     * відгуками - Налаштування - Вихід з програми
+     * історичних місць - Рейтинг найкращих місць - Додавання історичного місця - Редагування
+     * історичного місця - Керування відгуками - Налаштування - Вихід з програми
      *
      * @throws IOException якщо виникає помилка при взаємодії з екраном.
      */
@@ -539,6 +539,7 @@ public class MenuHandler {
         String[] adminMenuOptions = {
             "Управління користувачами",
             "Історичні місця",
+            "Найкращі місця",
             "Додати історичне місце",
             "Редагувати історичне місце",
             "Відгуки",
@@ -548,22 +549,14 @@ public class MenuHandler {
 
         int selectedIndex = 0;
 
-        // Створення об'єктів для керування різними частинами меню.
-        UserManager userManager = new UserManager(userRepository, textGraphics, screen);
-        HistoricalPlaceRepository historicalPlaceRepository = new HistoricalPlaceRepository();
-        AddHistoricalPlaceUI addHistoricalPlaceUI = new AddHistoricalPlaceUI(
-            historicalPlaceRepository, screen);
-        ViewHistoricalPlacesUI viewHistoricalPlacesUI = new ViewHistoricalPlacesUI(
-            historicalPlaceRepository, screen);
-        EditHistoricalPlaceUI editHistoricalPlaceUI = new EditHistoricalPlaceUI(
-            historicalPlaceRepository, screen, this);
-
-        ReviewRepository reviewRepository = new ReviewRepository();
-        ReviewManager reviewManager = new ReviewManager(reviewRepository, textGraphics,
-            screen);
-
-        MenuHandler menuHandler = new MenuHandler(screen, textGraphics, userRepository);
-        SettingsUI settingsUI = new SettingsUI(screen, menuHandler);
+        // Спільні форми з контексту застосунку.
+        UserManager userManager = context.getUserManager();
+        AddHistoricalPlaceUI addHistoricalPlaceUI = context.getAddHistoricalPlaceUI();
+        ViewHistoricalPlacesUI viewHistoricalPlacesUI = context.getViewHistoricalPlacesUI();
+        TopRatedPlacesUI topRatedPlacesUI = context.getTopRatedPlacesUI();
+        EditHistoricalPlaceUI editHistoricalPlaceUI = context.getEditHistoricalPlaceUI();
+        ReviewManager reviewManager = context.getReviewManager();
+        SettingsUI settingsUI = context.getSettingsUI();
 
         while (true) {
             clearScreen();
@@ -601,18 +594,21 @@ public class MenuHandler {
                             viewHistoricalPlacesUI.show();
                             break;
                         case 2:
-                            addHistoricalPlaceUI.show();
+                            topRatedPlacesUI.show();
                             break;
                         case 3:
-                            editHistoricalPlaceUI.show();
+                            addHistoricalPlaceUI.show();
                             break;
                         case 4:
-                            reviewManager.manageReviews();
+                            editHistoricalPlaceUI.show();
                             break;
                         case 5:
-                            settingsUI.show();
+                            reviewManager.manageReviews();
                             break;
                         case 6:
+                            settingsUI.show();
+                            break;
+                        case 7:
                             screen.stopScreen();
                             System.exit(0);
                             break;
@@ -624,10 +620,10 @@ public class MenuHandler {
 
     /**
      * Відображає меню користувача, в якому можна вибрати один з пунктів: - Перегляд історичних
-     * місць - Відгуки та рейтинги - Налаштування - Вихід з програми
+     * місць - Найкращі місця - Відгуки та рейтинги - Налаштування - Вихід з програми
      * <p>
-     * Після вибору пункту меню виконується відповідна дія: - Перегляд історичних місць - Перегляд
-     * відгуків та рейтингів - Налаштування - Вихід з програми
+     * Після вибору пункту меню виконується відповідна дія: - Перегляд історичних місць - Рейтинг
+     * найкращих місць - Перегляд відгуків та рейтингів - Налаштування - Вихід з програми
      */
     public void showUserMenu() {
         try {
@@ -635,6 +631,7 @@ public class MenuHandler {
 
             String[] userMenuOptions = {
                 "Перегляд історичних місць",
+                "Найкращі місця",
                 "Відгуки та рейтинги",
                 "Налаштування",
                 "Вихід з програми"
@@ -642,19 +639,12 @@ public class MenuHandler {
 
             int selectedIndex = 0;
 
-            HistoricalPlaceRepository historicalPlaceRepository = new HistoricalPlaceRepository();
-            ReviewRepository reviewRepository = new ReviewRepository();
-
-            ViewHistoricalPlacesUI viewHistoricalPlacesUI = new ViewHistoricalPlacesUI(
-                historicalPlaceRepository, screen);
-
-            ReviewsAndRatingsUI reviewsAndRatingsUI = new ReviewsAndRatingsUI(
-                historicalPlaceRepository, screen, reviewRepository);
-
-            reviewsAndRatingsUI.setOnExitCallback(this::showUserMenu);
-
-            MenuHandler menuHandler = new MenuHandler(screen, textGraphics, userRepository);
-            SettingsUI settingsUI = new SettingsUI(screen, menuHandler);
+            // Спільні форми з контексту застосунку. Після виходу з форми відгуків керування
+            // повертається в цей цикл, тож меню не відкривається повторно.
+            ViewHistoricalPlacesUI viewHistoricalPlacesUI = context.getViewHistoricalPlacesUI();
+            TopRatedPlacesUI topRatedPlacesUI = context.getTopRatedPlacesUI();
+            ReviewsAndRatingsUI reviewsAndRatingsUI = context.getReviewsAndRatingsUI();
+            SettingsUI settingsUI = context.getSettingsUI();
 
             while (true) {
                 clearScreen();
@@ -689,12 +679,15 @@ public class MenuHandler {
                                 viewHistoricalPlacesUI.show();
                                 break;
                             case 1:
-                                reviewsAndRatingsUI.show();
+                                topRatedPlacesUI.show();
                                 break;
                             case 2:
-                                settingsUI.show();
+                                reviewsAndRatingsUI.show();
                                 break;
                             case 3:
+                                settingsUI.show();
+                                break;
+                            case 4:
                                 screen.stopScreen();
                                 System.exit(0);
                                 break;
@@ -148,7 +148,8 @@ public class ReviewManager {
         switch (keyStroke.getKeyType()) {
             case Character:
                 if (keyStroke.getCharacter() == 'y' || keyStroke.getCharacter() == 'Y') {
-                    reviewRepository.deleteReview(selectedReview.getId());
+                    reviewRepository.deleteReview(selectedReview.getPlaceName(),
+                        selectedReview.getId());
                     clearScreen();
                     textGraphics.setForegroundColor(TextColor.ANSI.GREEN);
                     textGraphics.putString(10, 5, "Відгук успішно видалено.");
@@ -176,4 +177,4 @@ public class ReviewManager {
     private void clearScreen() {
         screen.clear();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.agors.historiography.domain.entity.HistoricalPlace;
 import com.agors.historiography.domain.entity.Review;
 import com.agors.historiography.persistence.repository.HistoricalPlaceRepository;
 import com.agors.historiography.persistence.repository.ReviewRepository;
+import com.agors.historiography.persistence.search.IncrementalSearch;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.input.KeyStroke;
@@ -11,6 +12,7 @@ import com.googlecode.lanterna.input.KeyType;
 import com.googlecode.lanterna.screen.Screen;
 import java.io.IOException;
 import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * Клас для відображення інтерфейсу користувача для перегляду та додавання відгуків та рейтингів для
@@ -55,6 +57,7 @@ public class ReviewsAndRatingsUI {
     public void show() throws IOException {
         String[] options = {
             "Переглянути відгуки",
+            "Відгуки про місце",
             "Додати відгук",
             "Повернутися назад"
         };
@@ -93,9 +96,12 @@ public class ReviewsAndRatingsUI {
                             viewReviews();
                             break;
                         case 1:
-                            addReview();
+                            viewPlaceReviews();
                             break;
                         case 2:
+                            addReview();
+                            break;
+                        case 3:
                             if (onExitCallback != null) {
                                 onExitCallback.run();
                             }
@@ -118,11 +124,41 @@ public class ReviewsAndRatingsUI {
      */
     private void viewReviews() throws IOException {
         List<Review> reviews = reviewRepository.getReviews();
+        showReviews("Перегляд відгуків", reviews.size(),
+            (offset, limit) -> reviews.subList(offset, Math.min(reviews.size(), offset + limit)));
+    }
+
+    /**
+     * Дозволяє вибрати історичне місце та переглянути лише відгуки про нього. Для кожного екрана
+     * з репозиторію запитується лише видима сторінка відгуків місця.
+     *
+     * @throws IOException Якщо виникає помилка при взаємодії з екраном.
+     */
+    private void viewPlaceReviews() throws IOException {
+        HistoricalPlace place = selectPlace();
+        if (place != null) {
+            String placeName = place.getName();
+            showReviews("Відгуки про: " + placeName,
+                reviewRepository.countReviewsForPlace(placeName),
+                (offset, limit) -> reviewRepository.getReviewsForPlace(placeName, offset, limit));
+        }
+    }
+
+    /**
+     * Відображає посторінковий список відгуків.
+     *
+     * @param title      Заголовок екрана.
+     * @param total      Загальна кількість відгуків.
+     * @param pageLoader Функція, що повертає сторінку відгуків за зсувом і розміром сторінки.
+     * @throws IOException Якщо виникає помилка при взаємодії з екраном.
+     */
+    private void showReviews(String title, int total,
+        BiFunction<Integer, Integer, List<Review>> pageLoader) throws IOException {
         int selectedIndex = 0;
         int pageStartIndex = 0;
         final int REVIEWS_PER_PAGE = 5;
 
-        if (reviews.isEmpty()) {
+        if (total == 0) {
             screen.clear();
             TextGraphics textGraphics = screen.newTextGraphics();
             textGraphics.setForegroundColor(TextColor.ANSI.RED);
@@ -136,16 +172,16 @@ public class ReviewsAndRatingsUI {
             screen.clear();
             TextGraphics textGraphics = screen.newTextGraphics();
             textGraphics.setForegroundColor(TextColor.ANSI.CYAN);
-            textGraphics.putString(5, 2, "Перегляд відгуків");
+            textGraphics.putString(5, 2, title);
 
             int yPosition = 5;
-            int pageEndIndex = Math.min(pageStartIndex + REVIEWS_PER_PAGE, reviews.size());
+            List<Review> page = pageLoader.apply(pageStartIndex, REVIEWS_PER_PAGE);
 
-            for (int i = pageStartIndex; i < pageEndIndex; i++) {
-                Review review = reviews.get(i);
+            for (int i = 0; i < page.size(); i++) {
+                Review review = page.get(i);
 
-                textGraphics.setForegroundColor(
-                    i == selectedIndex ? TextColor.ANSI.GREEN : TextColor.ANSI.WHITE);
+                textGraphics.setForegroundColor(pageStartIndex + i == selectedIndex
+                    ? TextColor.ANSI.GREEN : TextColor.ANSI.WHITE);
 
                 textGraphics.putString(10, yPosition, "Місце: " + review.getPlaceName());
                 textGraphics.putString(50, yPosition, "Рейтинг: " + review.getRating());
@@ -163,7 +199,7 @@ public class ReviewsAndRatingsUI {
 
             switch (keyStroke.getKeyType()) {
                 case ArrowDown:
-                    if (selectedIndex < reviews.size() - 1) {
+                    if (selectedIndex < total - 1) {
                         selectedIndex++;
                         if (selectedIndex >= pageStartIndex + REVIEWS_PER_PAGE) {
                             pageStartIndex++;
@@ -192,6 +228,21 @@ public class ReviewsAndRatingsUI {
      * @throws IOException Якщо виникає помилка при взаємодії з екраном.
      */
     private void addReview() throws IOException {
+        HistoricalPlace place = selectPlace();
+        if (place != null) {
+            enterReview(place);
+        }
+    }
+
+    /**
+     * Відображає список історичних місць з пошуком за назвою та дозволяє вибрати одне з них.
+     * Пошук виконується в сеансі {@link IncrementalSearch}, тож кожен символ запиту уточнює
+     * попередній результат.
+     *
+     * @return Вибране історичне місце або null, якщо вибір скасовано.
+     * @throws IOException Якщо виникає помилка при взаємодії з екраном.
+     */
+    private HistoricalPlace selectPlace() throws IOException {
         screen.clear();
         TextGraphics textGraphics = screen.newTextGraphics();
 
@@ -201,10 +252,11 @@ public class ReviewsAndRatingsUI {
             textGraphics.putString(10, 5, "Немає історичних місць для відгуків!");
             screen.refresh();
             screen.readInput();
-            return;
+            return null;
         }
 
         StringBuilder searchQuery = new StringBuilder();
+        IncrementalSearch<HistoricalPlace> search = repository.newNameSearch();
         int selectedIndex = 0;
         int startIndex = 0;
         int maxVisiblePlaces = 13;
@@ -216,8 +268,7 @@ public class ReviewsAndRatingsUI {
 
             textGraphics.putString(10, 4, "Пошук: " + searchQuery);
 
-            List<HistoricalPlace> filteredPlaces = filterPlacesByQuery(places,
-                searchQuery.toString());
+            List<HistoricalPlace> filteredPlaces = search.update(searchQuery.toString());
 
             if (filteredPlaces.isEmpty()) {
                 textGraphics.setForegroundColor(TextColor.ANSI.RED);
@@ -263,13 +314,11 @@ public class ReviewsAndRatingsUI {
                     break;
                 case Enter:
                     if (!filteredPlaces.isEmpty()) {
-                        HistoricalPlace selectedPlace = filteredPlaces.get(selectedIndex);
-                        enterReview(selectedPlace);
-                        return;
+                        return filteredPlaces.get(selectedIndex);
                     }
                     break;
                 case Escape:
-                    return;
+                    return null;
                 case Backspace:
                     if (searchQuery.length() > 0) {
                         searchQuery.deleteCharAt(searchQuery.length() - 1);
@@ -284,19 +333,6 @@ public class ReviewsAndRatingsUI {
         }
     }
 
-    /**
-     * Фільтрує історичні місця за запитом пошуку.
-     *
-     * @param places Список всіх історичних місць.
-     * @param query  Запит для фільтрації.
-     * @return Список відфільтрованих історичних місць.
-     */
-    private List<HistoricalPlace> filterPlacesByQuery(List<HistoricalPlace> places, String query) {
-        return places.stream()
-            .filter(place -> place.getName().toLowerCase().contains(query.toLowerCase()))
-            .toList();
-    }
-
     /**
      * Вводить відгук для вибраного історичного місця.
      *
@@ -414,4 +450,4 @@ public class ReviewsAndRatingsUI {
         textGraphics.setForegroundColor(isSelected ? TextColor.ANSI.GREEN : TextColor.ANSI.WHITE);
         textGraphics.putString(x, y, "[ " + label + " ]");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package com.agors.historiography.appui.forms;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import com.agors.historiography.persistence.repository.PlaceLeaderboard;
+import com.agors.historiography.persistence.repository.PlaceLeaderboard.RankedPlace;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.screen.Screen;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Клас для відображення рейтингу найкращих історичних місць за оцінками відгуків. Дозволяє
+ * фільтрувати рейтинг за категорією та локацією.
+ */
+public class TopRatedPlacesUI {
+
+    private static final int TOP_PLACES = 10; // Кількість місць у рейтингу
+    private final PlaceLeaderboard leaderboard; // Рейтинг місць з кешем за категоріями
+    private final Screen screen; // Екран для відображення інтерфейсу
+
+    /**
+     * Конструктор для ініціалізації інтерфейсу рейтингу історичних місць.
+     *
+     * @param leaderboard Рейтинг найкращих історичних місць
+     * @param screen      Екран для відображення інтерфейсу
+     */
+    public TopRatedPlacesUI(PlaceLeaderboard leaderboard, Screen screen) {
+        this.leaderboard = leaderboard;
+        this.screen = screen;
+    }
+
+    /**
+     * Метод для відображення рейтингу. Стрілки вліво та вправо перемикають категорію, а введений
+     * текст фільтрує місця за локацією.
+     *
+     * @throws IOException Якщо виникла помилка при взаємодії з екраном
+     */
+    public void show() throws IOException {
+        TextGraphics textGraphics = screen.newTextGraphics();
+        List<String> categories = leaderboard.categories();
+        int categoryIndex = -1; // -1 означає всі категорії
+        StringBuilder location = new StringBuilder();
+
+        while (true) {
+            screen.clear();
+            String category = categoryIndex < 0 ? null : categories.get(categoryIndex);
+
+            textGraphics.setForegroundColor(TextColor.ANSI.CYAN);
+            textGraphics.putString(10, 1, "Найкращі історичні місця");
+            textGraphics.setForegroundColor(TextColor.ANSI.WHITE);
+            textGraphics.putString(10, 3, "Категорія: ◀ " + (category == null ? "Усі" : category)
+                + " ▶");
+            textGraphics.putString(10, 4, "Локація: " + location);
+
+            List<RankedPlace> top = leaderboard.top(TOP_PLACES, category, location.toString());
+            if (top.isEmpty()) {
+                textGraphics.setForegroundColor(TextColor.ANSI.RED);
+                textGraphics.putString(10, 6, "Немає оцінених місць.");
+            }
+            for (int i = 0; i < top.size(); i++) {
+                HistoricalPlace place = top.get(i).getPlace();
+                textGraphics.setForegroundColor(
+                    i == 0 ? TextColor.ANSI.GREEN : TextColor.ANSI.WHITE);
+                textGraphics.putString(10, 6 + i, String.format(Locale.ROOT,
+                    "%d. %s (%s, %s)  ★ %.1f (%d)", i + 1, place.getName(), place.getCategory(),
+                    place.getLocation(), top.get(i).getRatings().getBayesianScore(),
+                    top.get(i).getRatings().getCount()));
+            }
+
+            textGraphics.setForegroundColor(TextColor.ANSI.YELLOW);
+            textGraphics.putString(10, TOP_PLACES + 7,
+                "← → Категорія   Введення - Локація   Esc - Вихід");
+
+            screen.refresh();
+            KeyStroke keyStroke = screen.readInput();
+
+            switch (keyStroke.getKeyType()) {
+                case ArrowLeft:
+                    categoryIndex = categoryIndex < 0 ? categories.size() - 1 : categoryIndex - 1;
+                    break;
+
+                case ArrowRight:
+                    categoryIndex = categoryIndex + 1 < categories.size() ? categoryIndex + 1 : -1;
+                    break;
+
+                case Escape:
+                    return;
+
+                case Backspace:
+                    if (location.length() > 0) {
+                        location.deleteCharAt(location.length() - 1);
+                    }
+                    break;
+
+                default:
+                    if (keyStroke.getCharacter() != null
+                        && !Character.isISOControl(keyStroke.getCharacter())) {
+                        location.append(keyStroke.getCharacter());
+                    }
+            }
+        }
+    }
+}
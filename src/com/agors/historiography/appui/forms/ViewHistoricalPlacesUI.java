@@ -2,6 +2,9 @@ package com.agors.historiography.appui.forms;
 
 import com.agors.historiography.domain.entity.HistoricalPlace;
 import com.agors.historiography.persistence.repository.HistoricalPlaceRepository;
+import com.agors.historiography.persistence.repository.RatingAggregate;
+import com.agors.historiography.persistence.repository.ReviewRepository;
+import com.agors.historiography.persistence.search.IncrementalSearch;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.TextColor.ANSI;
 import com.googlecode.lanterna.graphics.TextGraphics;
@@ -9,7 +12,7 @@ import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.screen.Screen;
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
 
 /**
  * Клас для відображення та керування списком історичних місць. Зокрема, дозволяє переглядати
@@ -19,16 +22,20 @@ public class ViewHistoricalPlacesUI {
 
     private static final int PLACES_PER_PAGE = 10; // Кількість місць на сторінці
     private final HistoricalPlaceRepository repository; // Репозиторій для отримання історичних місць
+    private final ReviewRepository reviewRepository; // Репозиторій з оцінками місць
     private final Screen screen; // Екран для відображення інтерфейсу
 
     /**
      * Конструктор для ініціалізації інтерфейсу для перегляду історичних місць.
      *
-     * @param repository Репозиторій для роботи з історичними місцями
-     * @param screen     Екран для відображення інтерфейсу
+     * @param repository       Репозиторій для роботи з історичними місцями
+     * @param reviewRepository Репозиторій відгуків, що надає агреговані оцінки місць
+     * @param screen           Екран для відображення інтерфейсу
      */
-    public ViewHistoricalPlacesUI(HistoricalPlaceRepository repository, Screen screen) {
+    public ViewHistoricalPlacesUI(HistoricalPlaceRepository repository,
+        ReviewRepository reviewRepository, Screen screen) {
         this.repository = repository;
+        this.reviewRepository = reviewRepository;
         this.screen = screen;
     }
 
@@ -76,7 +83,7 @@ public class ViewHistoricalPlacesUI {
                 }
 
                 textGraphics.putString(10, 4 + (i - pageStartIndex),
-                    (i + 1) + ". " + place.getName());
+                    (i + 1) + ". " + place.getName() + formatRating(place));
             }
 
             textGraphics.setForegroundColor(TextColor.ANSI.YELLOW);
@@ -115,7 +122,7 @@ public class ViewHistoricalPlacesUI {
                 case Character:
                     if (keyStroke.getCharacter() == 'с' || keyStroke.getCharacter() == 'і'
                         || keyStroke.getCharacter() == 's') {
-                        searchPlaces(places); // Виконати пошук місць
+                        searchPlaces(); // Виконати пошук місць
                     }
                     break;
             }
@@ -132,12 +139,13 @@ public class ViewHistoricalPlacesUI {
     }
 
     /**
-     * Метод для виконання пошуку історичних місць за назвою або категорією.
+     * Метод для виконання пошуку історичних місць за назвою або категорією. Пошук виконується в
+     * сеансі {@link IncrementalSearch}: кожен новий символ уточнює попередній результат, а
+     * Backspace повертає збережений.
      *
-     * @param places Список усіх історичних місць
      * @throws IOException Якщо виникла помилка при взаємодії з екраном
      */
-    private void searchPlaces(List<HistoricalPlace> places) throws IOException {
+    private void searchPlaces() throws IOException {
         screen.clear();
         TextGraphics textGraphics = screen.newTextGraphics();
 
@@ -147,6 +155,7 @@ public class ViewHistoricalPlacesUI {
         textGraphics.putString(10, 2, "Введіть запит для пошуку (назва чи категорія):");
 
         StringBuilder searchQuery = new StringBuilder();
+        IncrementalSearch<HistoricalPlace> search = repository.newNameOrCategorySearch();
         int selectedIndex = 0;
         int pageStartIndex = 0;
 
@@ -160,12 +169,7 @@ public class ViewHistoricalPlacesUI {
             textGraphics.setForegroundColor(ANSI.WHITE);
             textGraphics.putString(10, 4, "Поточний запит: " + searchQuery);
 
-            List<HistoricalPlace> filteredPlaces = places.stream()
-                .filter(place -> place.getName().toLowerCase()
-                    .contains(searchQuery.toString().toLowerCase()) ||
-                    place.getCategory().toLowerCase()
-                        .contains(searchQuery.toString().toLowerCase()))
-                .collect(Collectors.toList());
+            List<HistoricalPlace> filteredPlaces = search.update(searchQuery.toString());
 
             int pageEndIndex = Math.min(pageStartIndex + PLACES_PER_PAGE, filteredPlaces.size());
             for (int i = pageStartIndex; i < pageEndIndex; i++) {
@@ -179,7 +183,8 @@ public class ViewHistoricalPlacesUI {
                 }
 
                 textGraphics.putString(10, 6 + (i - pageStartIndex),
-                    (i + 1) + ". " + place.getName() + " (" + place.getCategory() + ")");
+                    (i + 1) + ". " + place.getName() + " (" + place.getCategory() + ")"
+                        + formatRating(place));
             }
 
             textGraphics.setForegroundColor(TextColor.ANSI.YELLOW);
@@ -244,7 +249,25 @@ public class ViewHistoricalPlacesUI {
     }
 
     /**
-     * Метод для відображення деталей обраного історичного місця.
+     * Форматує агреговану оцінку місця для відображення поруч із його назвою. Оцінки беруться з
+     * агрегатів репозиторію відгуків без перебору самих відгуків.
+     *
+     * @param place Історичне місце
+     * @return Рядок із середньою оцінкою та кількістю відгуків або порожній рядок, якщо відгуків
+     * немає
+     */
+    private String formatRating(HistoricalPlace place) {
+        RatingAggregate ratings = reviewRepository.getRatings(place.getName());
+        if (ratings.getCount() == 0) {
+            return "";
+        }
+        return String.format(Locale.ROOT, "  ★ %.1f (%d)", ratings.getAverage(),
+            ratings.getCount());
+    }
+
+    /**
+     * Метод для відображення деталей обраного історичного місця. Опис місця завантажується з
+     * репозиторію лише під час відкриття деталей.
      *
      * @param place Історичне місце для перегляду деталей
      * @throws IOException Якщо виникла помилка при взаємодії з екраном
@@ -254,8 +277,12 @@ public class ViewHistoricalPlacesUI {
         TextGraphics textGraphics = screen.newTextGraphics();
 
         String[] fields = {"Назва", "Опис", "Локація", "Категорія"};
-        String[] values = {place.getName(), place.getDescription(), place.getLocation(),
-            place.getCategory()};
+        HistoricalPlace details = repository.findById(place.getId());
+        if (details == null) {
+            details = place;
+        }
+        String[] values = {details.getName(), details.getDescription(), details.getLocation(),
+            details.getCategory()};
 
         final int MAX_LINE_WIDTH = 55;
         final int VERTICAL_OFFSET = 5;
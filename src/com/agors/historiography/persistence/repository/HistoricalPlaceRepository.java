@@ -1,123 +1,854 @@
 package com.agors.historiography.persistence.repository;
 
 import com.agors.historiography.domain.entity.HistoricalPlace;
+import com.agors.historiography.persistence.search.IncrementalSearch;
+import com.agors.historiography.persistence.search.InvertedIndex;
+import com.agors.historiography.persistence.search.SearchKeys;
+import com.agors.historiography.persistence.search.TrigramIndex;
+import com.agors.historiography.persistence.search.UkrainianAnalyzer;
+import com.agors.historiography.persistence.storage.ColumnarPlaceCatalog;
+import com.agors.historiography.persistence.storage.IntHashMap;
+import com.agors.historiography.persistence.storage.JsonCodec;
+import com.agors.historiography.persistence.storage.JsonFileStorageEngine;
+import com.agors.historiography.persistence.storage.LazyPlaceStorageEngine;
+import com.agors.historiography.persistence.storage.LruCache;
+import com.agors.historiography.persistence.storage.ParallelScan;
+import com.agors.historiography.persistence.storage.SegmentedStore;
+import com.agors.historiography.persistence.storage.StorageConfig;
+import com.agors.historiography.persistence.storage.StorageEngine;
+import com.agors.historiography.persistence.storage.StorageEngines;
+import com.agors.historiography.persistence.storage.StreamingJsonLoader;
+import com.agors.historiography.persistence.storage.StringDictionary;
+import com.agors.historiography.persistence.storage.WriteBehindFlusher;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.Writer;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
 /**
  * Репозиторій для роботи з історичними місцями. Цей клас надає методи для завантаження, збереження
  * та пошуку історичних місць у файлі формату JSON.
+ * <p>
+ * Місця зберігаються через {@link StorageEngine}, який обирає {@link StorageEngines} відповідно до
+ * конфігурації; за замовчуванням це JSON-файл у каталозі даних. Описи місць за замовчуванням не
+ * тримаються в пам'яті: список місць містить лише короткі поля, а повне місце з описом повертає
+ * {@link #findById(int)}.
+ * <p>
+ * Репозиторій також може працювати в режимі лише для читання поверх бінарного стовпцевого
+ * каталогу ({@link ColumnarPlaceCatalog}), відображеного в пам'ять. У цьому режимі місця та пошук
+ * обслуговуються безпосередньо з відображення без розбору JSON, а зміни каталогу заборонені.
+ * <p>
+ * Збереження змін виконується відкладено через спільний {@link WriteBehindFlusher}: серія змін
+ * об'єднується в один запис файлу, який виконується у фоновому потоці.
+ * <p>
+ * Якщо в {@link StorageConfig} увімкнено сегментоване розміщення, місця зберігаються в каталозі
+ * `historicalplaces-segments` сегментами фіксованої місткості ({@link SegmentedStore}), і
+ * збереження перезаписує лише сегменти зі зміненими місцями. Під час першого запуску в цьому
+ * режимі місця переносяться з JSON-файлу.
+ * <p>
+ * Для назви, локації та категорії кожного місця репозиторій тримає ключі пошуку
+ * ({@link SearchKeys}): текст у формі NFC з єдиним апострофом і в нижньому регістрі. Ключі
+ * обчислюються один раз під час завантаження та під час зміни місця, тож пошук підрядка
+ * нормалізує лише запит, а не поля кожного місця. Локації й категорії повторюються в багатьох
+ * місцях, тому їх ключі обчислюються один раз на значення словника {@link StringDictionary}, а
+ * місце тримає лише коди. Фільтри за категорією та локацією перевіряють запит один раз на
+ * значення словника, а місця відбираються за кодами; триграмний індекс охоплює лише назви.
+ * Словники будуються заново разом з ключами пошуку після перечитування файлу, а також тоді,
+ * коли значень у словнику стає більше ніж удвічі більше, ніж місць, тож значення змінених і
+ * видалених місць не накопичуються.
+ * <p>
+ * Результати повнотекстового пошуку кешуються в обмеженому за розміром {@link LruCache} у вигляді
+ * масивів ідентифікаторів місць. Ключ кешу складається з версії каталогу, активних критеріїв
+ * пошуку та нормалізованих термінів запиту. Кожне додавання, зміна та видалення місця збільшує
+ * версію, тож записи попередніх версій більше не знаходяться і з часом витісняються.
+ * <p>
+ * Якщо рушій перечитав файл, змінений іншим екземпляром застосунку, ключі пошуку та пошукові
+ * індекси позначаються застарілими й перебудовуються під час наступного пошуку, а слухачі змін
+ * сповіщаються одразу.
  */
 public class HistoricalPlaceRepository {
 
-    private static final String FILE_NAME = "data/historicalplaces.json";
-    private final List<HistoricalPlace> historicalPlaces;
+    private static final String FILE_NAME = "historicalplaces.json";
+    private static final String STORE_NAME = "historicalplaces";
+    private static final int NAME_FIELD = 0;
+    private static final int LOCATION_FIELD = 1;
+    private static final int CATEGORY_FIELD = 2;
+    private static final long QUERY_RESULT_OVERHEAD_BYTES = 96;
+    private static final int DICTIONARY_SLACK = 16;
+    private final StorageEngine<Integer, HistoricalPlace> engine;
     private final Gson gson;
+    private final ColumnarPlaceCatalog catalog;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private final IntHashMap<PlaceKeys> searchKeys = new IntHashMap<>();
+    private StringDictionary locationKeys = new StringDictionary(SearchKeys::normalize);
+    private StringDictionary categoryKeys = new StringDictionary(SearchKeys::normalize);
+    private final LruCache<String, int[]> queryCache = new LruCache<>(
+        StorageConfig.placeQueryCacheBytes(), ids -> QUERY_RESULT_OVERHEAD_BYTES + 4L * ids.length);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private volatile boolean searchStale;
+    private int maxId; // найбільший ідентифікатор серед місць; оновлюється разом з ключами пошуку
+    private InvertedIndex textIndex; // null, доки не виконано перший повнотекстовий пошук
+    private TrigramIndex trigramIndex; // null, доки не виконано перший пошук підрядка
     private List<String> searchCriteria;
+    private String criteriaKey;
 
     /**
      * Конструктор, який ініціалізує репозиторій, завантажує історичні місця та критерії пошуку з
-     * відповідних файлів.
+     * відповідних файлів. Якщо в {@link StorageConfig} задано бінарний каталог, репозиторій
+     * відкривається в режимі лише для читання.
      */
     public HistoricalPlaceRepository() {
-        gson = new Gson();
-        historicalPlaces = loadHistoricalPlaces();
+        this(openConfiguredCatalog());
+    }
+
+    /**
+     * Конструктор, який відкриває репозиторій поверх бінарного каталогу в режимі лише для читання.
+     * Якщо каталог не передано, історичні місця завантажуються налаштованим рушієм зберігання.
+     *
+     * @param catalog відображений у пам'ять каталог або null.
+     */
+    public HistoricalPlaceRepository(ColumnarPlaceCatalog catalog) {
+        this(catalog != null ? catalog : openEngine());
+    }
+
+    /**
+     * Конструктор, який відкриває репозиторій поверх переданого рушія зберігання.
+     *
+     * @param engine рушій зберігання історичних місць.
+     */
+    public HistoricalPlaceRepository(StorageEngine<Integer, HistoricalPlace> engine) {
+        gson = JsonCodec.gson();
+        this.engine = engine;
+        catalog = engine instanceof ColumnarPlaceCatalog columnar ? columnar : null;
         loadSearchCriteria();
+        rebuildSearchKeys();
+        engine.addReloadListener(() -> {
+            searchStale = true;
+            fireChanged();
+        });
+    }
+
+    /**
+     * Відкриває налаштований рушій зберігання історичних місць. Якщо файл не вдалося прочитати,
+     * репозиторій не відкривається, щоб зміни каталогу не губилися після виходу.
+     *
+     * @return завантажений рушій.
+     * @throws UncheckedIOException якщо сховище історичних місць не вдалося відкрити.
+     */
+    private static StorageEngine<Integer, HistoricalPlace> openEngine() {
+        try {
+            if (StorageConfig.placesSegmented() && !StorageEngines.inMemory()) {
+                return openSegments();
+            }
+            if (StorageConfig.lazyPlaceDescriptions()) {
+                return StorageEngines.openLazyPlaces(FILE_NAME);
+            }
+            return StorageEngines.openFile(FILE_NAME, HistoricalPlace::getId,
+                JsonFileStorageEngine.arrayFormat(HistoricalPlace.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не вдалося відкрити сховище історичних місць", e);
+        }
+    }
+
+    /**
+     * Відкриває сегментоване сховище історичних місць. Якщо сховище ще не створене, переносить у
+     * нього місця з JSON-файлу.
+     *
+     * @return відкрите сегментоване сховище.
+     * @throws IOException якщо сховище не вдалося відкрити або заповнити.
+     */
+    private static StorageEngine<Integer, HistoricalPlace> openSegments() throws IOException {
+        boolean migrate = !StorageEngines.segmentedExists(STORE_NAME);
+        SegmentedStore<HistoricalPlace> store = StorageEngines.openSegmented(STORE_NAME,
+            HistoricalPlace.class, HistoricalPlace::getId, StorageConfig.placeSegmentCapacity());
+        if (migrate) {
+            StreamingJsonLoader.<HistoricalPlace>streamArray(StorageEngines.dataFile(FILE_NAME),
+                JsonCodec.gson(), HistoricalPlace.class, StreamingJsonLoader.NO_LIMIT,
+                StreamingJsonLoader.ProgressListener.NONE, store::put);
+            store.flush();
+        }
+        return store;
+    }
+
+    /**
+     * Відкриває бінарний каталог, заданий у конфігурації. Якщо файл каталогу ще не існує, він
+     * створюється з JSON-файлу на вимогу.
+     *
+     * @return відкритий каталог або null, якщо каталог не налаштовано чи його не вдалося відкрити.
+     */
+    private static ColumnarPlaceCatalog openConfiguredCatalog() {
+        Path catalogFile = StorageConfig.placeCatalogFile();
+        if (catalogFile == null) {
+            return null;
+        }
+        try {
+            if (!Files.exists(catalogFile)) {
+                ColumnarPlaceCatalog.convert(StorageEngines.dataFile(FILE_NAME), catalogFile);
+            }
+            return ColumnarPlaceCatalog.open(catalogFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Перевіряє, чи відкрито репозиторій у режимі лише для читання.
+     *
+     * @return true, якщо репозиторій працює поверх бінарного каталогу.
+     */
+    public boolean isReadOnly() {
+        return catalog != null;
+    }
+
+    /**
+     * Експортує поточний список історичних місць у бінарний стовпцевий каталог.
+     *
+     * @param target файл, у який буде записано каталог.
+     * @throws IOException якщо запис не вдався.
+     */
+    public void exportCatalog(Path target) throws IOException {
+        List<HistoricalPlace> places = new ArrayList<>();
+        for (HistoricalPlace place : engine.scan()) {
+            places.add(engine.get(place.getId()));
+        }
+        ColumnarPlaceCatalog.write(target, places);
     }
 
     /**
-     * Завантажує критерії пошуку з файлу `data/searchCriteria.json`. Якщо файл не знайдено або
-     * сталася помилка, створюється порожній список критеріїв.
+     * Завантажує критерії пошуку з файлу `searchCriteria.json` у каталозі даних. Якщо файл не
+     * знайдено або сталася помилка, створюється порожній список критеріїв.
      */
     private void loadSearchCriteria() {
-        try (Reader reader = new FileReader("data/searchCriteria.json")) {
+        try (Reader reader = Files.newBufferedReader(
+            StorageEngines.dataFile("searchCriteria.json"), StandardCharsets.UTF_8)) {
             Type listType = new TypeToken<List<String>>() {
             }.getType();
             searchCriteria = gson.fromJson(reader, listType);
         } catch (IOException e) {
             searchCriteria = new ArrayList<>();
         }
+        criteriaKey = String.join(",", searchCriteria).toLowerCase(Locale.ROOT);
     }
 
     /**
-     * Повертає список усіх історичних місць.
+     * Повертає список усіх історичних місць. Якщо описи завантажуються ліниво, місця у списку не
+     * містять опису; повне місце повертає {@link #findById(int)}.
      *
      * @return список історичних місць.
      */
     public List<HistoricalPlace> getHistoricalPlaces() {
-        return historicalPlaces;
+        return engine.scan();
     }
 
     /**
-     * Додає нове історичне місце до списку та зберігає зміни у файл.
+     * Відбирає історичні місця за довільною умовою повним переглядом каталогу, який на великих
+     * каталогах виконується паралельно ({@link ParallelScan}). Призначений для запитів, що не
+     * можуть скористатися пошуковими індексами, зокрема для умов за описом: умова завжди
+     * отримує місця разом з описами. Якщо описи завантажуються ліниво, вони зчитуються одним
+     * послідовним проходом файлу перед переглядом.
+     *
+     * @param predicate умова відбору; може викликатися з кількох потоків одночасно.
+     * @return місця разом з описами, що задовольняють умову, у порядку списку місць.
+     * @throws UncheckedIOException якщо описи не вдалося прочитати.
+     */
+    public List<HistoricalPlace> scan(Predicate<? super HistoricalPlace> predicate) {
+        List<HistoricalPlace> places;
+        if (engine instanceof LazyPlaceStorageEngine lazy) {
+            try {
+                places = lazy.scanWithDescriptions();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не вдалося прочитати описи історичних місць", e);
+            }
+        } else {
+            places = engine.scan();
+        }
+        return ParallelScan.shared().filter(places, predicate);
+    }
+
+    /**
+     * Повертає історичне місце разом з описом за первинним індексом рушія за O(1).
+     *
+     * @param id ідентифікатор історичного місця.
+     * @return історичне місце або null, якщо його немає.
+     */
+    public HistoricalPlace findById(int id) {
+        return engine.get(id);
+    }
+
+    /**
+     * Повертає наступний вільний ідентифікатор історичного місця за O(1). Найбільший
+     * ідентифікатор обчислюється під час завантаження та перечитування місць і оновлюється під
+     * час кожного додавання чи зміни місця.
+     *
+     * @return ідентифікатор, більший за всі наявні.
+     */
+    public synchronized int nextId() {
+        checkReloaded();
+        return maxId + 1;
+    }
+
+    /**
+     * Додає нове історичне місце та зберігає зміни у файл.
      *
      * @param place історичне місце, яке потрібно додати.
      */
     public void addHistoricalPlace(HistoricalPlace place) {
-        historicalPlaces.add(place);
-        saveHistoricalPlaces();
+        checkWritable();
+        try {
+            engine.put(place);
+            indexPlace(place);
+            fireChanged();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Замінює наявне історичне місце з вказаним ідентифікатором. Місце залишається на своїй
+     * позиції в списку місць.
+     *
+     * @param id    ідентифікатор історичного місця.
+     * @param place нові дані місця з тим самим ідентифікатором.
+     * @return true, якщо місце було оновлено, або false, якщо місця з таким ідентифікатором немає.
+     * @throws IllegalArgumentException якщо ідентифікатор місця не збігається з вказаним.
+     */
+    public boolean updateById(int id, HistoricalPlace place) {
+        checkWritable();
+        if (place.getId() != id) {
+            throw new IllegalArgumentException("Ідентифікатор місця не збігається: " + id);
+        }
+        if (!engine.contains(id)) {
+            return false;
+        }
+        try {
+            engine.put(place);
+            indexPlace(place);
+            fireChanged();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Видаляє історичне місце за ідентифікатором за O(1) та зберігає зміни у файл.
+     *
+     * @param id ідентифікатор історичного місця, яке потрібно видалити.
+     * @return true, якщо місце було видалено, інакше false.
+     */
+    public boolean deleteById(int id) {
+        checkWritable();
+        try {
+            boolean deleted = engine.delete(id);
+            if (deleted) {
+                unindexPlace(id);
+                fireChanged();
+            }
+            return deleted;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Реєструє слухача, який викликається після кожного додавання, зміни або видалення місця.
+     *
+     * @param listener слухач змін.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Сповіщає слухачів про зміну списку місць, зокрема після перечитування файлу рушієм.
+     */
+    private void fireChanged() {
+        changeListeners.forEach(Runnable::run);
     }
 
     /**
      * Шукає історичні місця за вказаним запитом. Пошук здійснюється за кожним із критеріїв,
      * зазначених у файлі `searchCriteria.json`, таких як: "name", "description", "location",
      * "category".
+     * <p>
+     * Запит розв'язується через повнотекстовий {@link InvertedIndex}: місце знаходиться, якщо
+     * поля критеріїв містять усі слова запиту з точністю до регістру та закінчень. Індекс
+     * будується під час першого пошуку і далі оновлюється під час додавання, зміни та видалення
+     * місць. Ідентифікатори знайдених місць кешуються, тож повторний запит з тими самими
+     * термінами до зміни каталогу не звертається до індексу.
      *
      * @param query запит для пошуку.
      * @return список історичних місць, що відповідають запиту.
      */
     public List<HistoricalPlace> searchHistoricalPlaces(String query) {
-        return historicalPlaces.stream()
-            .filter(place -> searchCriteria.stream().anyMatch(criterion -> {
-                switch (criterion.toLowerCase()) {
-                    case "name":
-                        return place.getName().toLowerCase().contains(query.toLowerCase());
-                    case "description":
-                        return place.getDescription().toLowerCase().contains(query.toLowerCase());
-                    case "location":
-                        return place.getLocation().toLowerCase().contains(query.toLowerCase());
-                    case "category":
-                        return place.getCategory().toLowerCase().contains(query.toLowerCase());
-                    default:
-                        return false;
+        checkReloaded();
+        String key = catalogVersion.get() + "|" + criteriaKey + "|"
+            + String.join(" ", new TreeSet<>(UkrainianAnalyzer.terms(query)));
+        int[] ids = queryCache.get(key);
+        if (ids == null) {
+            ids = textIndex().search(query);
+            queryCache.put(key, ids);
+        }
+        return places(ids);
+    }
+
+    /**
+     * Повертає кількість повнотекстових запитів, результат яких знайдено в кеші.
+     *
+     * @return кількість влучань кешу запитів.
+     */
+    public long getQueryCacheHitCount() {
+        return queryCache.hitCount();
+    }
+
+    /**
+     * Повертає кількість повнотекстових запитів, для яких довелося звертатися до індексу.
+     *
+     * @return кількість промахів кешу запитів.
+     */
+    public long getQueryCacheMissCount() {
+        return queryCache.missCount();
+    }
+
+    /**
+     * Повертає кількість результатів, витіснених з кешу запитів через перевищення його обсягу.
+     *
+     * @return кількість витіснень кешу запитів.
+     */
+    public long getQueryCacheEvictionCount() {
+        return queryCache.evictionCount();
+    }
+
+    /**
+     * Шукає історичні місця, ключ назви або категорії яких містить ключ запиту як підрядок, тобто
+     * без урахування регістру, форми Unicode та виду апострофа. Місця за назвою знаходить
+     * триграмний індекс, а категорії перевіряються один раз на значення словника категорій.
+     *
+     * @param query запит для пошуку.
+     * @return список історичних місць, що відповідають запиту.
+     */
+    public List<HistoricalPlace> searchByNameOrCategory(String query) {
+        return places(nameOrCategoryIds(SearchKeys.normalize(query)));
+    }
+
+    /**
+     * Повертає ідентифікатори місць, ключ назви або категорії яких містить ключ запиту. Якщо
+     * жодна категорія не відповідає запиту, результатом є лише знахідки триграмного індексу;
+     * інакше місця обходяться в порядку списку, і для кожного перевіряються лише код категорії та
+     * належність до знахідок за назвою.
+     *
+     * @param key ключ пошуку запиту.
+     * @return ідентифікатори місць у порядку списку місць.
+     */
+    private synchronized int[] nameOrCategoryIds(String key) {
+        int[] byName = trigramIndex().search(key, NAME_FIELD);
+        BitSet categories = categoryKeys.matchKeys(value -> value.contains(key));
+        if (categories.isEmpty()) {
+            return byName;
+        }
+        IntHashMap<Boolean> named = new IntHashMap<>(byName.length);
+        for (int id : byName) {
+            named.put(id, Boolean.TRUE);
+        }
+        int[] ids = new int[searchKeys.size()];
+        int[] count = {0};
+        searchKeys.forEach((id, keys) -> {
+            if (named.containsKey(id) || matches(categories, keys.category)) {
+                ids[count[0]++] = id;
+            }
+        });
+        return Arrays.copyOf(ids, count[0]);
+    }
+
+    /**
+     * Шукає історичні місця, ключ назви яких містить ключ запиту як підрядок. Кандидати
+     * отримуються з триграмного індексу назв.
+     *
+     * @param query запит для пошуку.
+     * @return список історичних місць, що відповідають запиту.
+     */
+    public List<HistoricalPlace> searchByName(String query) {
+        return places(trigramIndex().search(query, NAME_FIELD));
+    }
+
+    /**
+     * Створює сеанс пошуку за назвою або категорією під час введення запиту. Результати
+     * збігаються з {@link #searchByNameOrCategory(String)}; уточнення результатів порівнює
+     * збережені ключі полів без нових виділень пам'яті.
+     *
+     * @return новий сеанс пошуку.
+     */
+    public IncrementalSearch<HistoricalPlace> newNameOrCategorySearch() {
+        return new IncrementalSearch<>(this::searchByNameOrCategory,
+            (place, key) -> keyContains(place.getId(), key, NAME_FIELD, CATEGORY_FIELD));
+    }
+
+    /**
+     * Створює сеанс пошуку за назвою під час введення запиту. Результати збігаються з
+     * {@link #searchByName(String)}.
+     *
+     * @return новий сеанс пошуку.
+     */
+    public IncrementalSearch<HistoricalPlace> newNameSearch() {
+        return new IncrementalSearch<>(this::searchByName,
+            (place, key) -> keyContains(place.getId(), key, NAME_FIELD));
+    }
+
+    /**
+     * Створює фільтр місць за частиною назви локації. Запит перевіряється один раз на кожне
+     * значення словника локацій, а фільтр порівнює лише код локації місця. Якщо словник тим часом
+     * побудовано заново, фільтр порівнює сам ключ локації.
+     *
+     * @param location частина назви локації.
+     * @return умова для ідентифікатора місця.
+     */
+    synchronized IntPredicate locationFilter(String location) {
+        checkReloaded();
+        String key = SearchKeys.normalize(location);
+        StringDictionary dictionary = locationKeys;
+        BitSet codes = dictionary.matchKeys(value -> value.contains(key));
+        return id -> locationMatches(id, dictionary, codes, key);
+    }
+
+    /**
+     * Перевіряє локацію місця для фільтра {@link #locationFilter(String)}.
+     *
+     * @param id         ідентифікатор історичного місця.
+     * @param dictionary словник, для якого обчислено множину кодів.
+     * @param codes      коди локацій, що відповідають запиту.
+     * @param key        ключ пошуку запиту.
+     * @return true, якщо місце є і його локація відповідає запиту.
+     */
+    private synchronized boolean locationMatches(int id, StringDictionary dictionary,
+        BitSet codes, String key) {
+        checkReloaded();
+        PlaceKeys keys = searchKeys.get(id);
+        if (keys == null) {
+            return false;
+        }
+        if (dictionary == locationKeys) {
+            return matches(codes, keys.location);
+        }
+        String locationKey = locationKeys.key(keys.location);
+        return locationKey != null && locationKey.contains(key);
+    }
+
+    /**
+     * Перевіряє, чи входить код словника до множини.
+     *
+     * @param codes множина кодів.
+     * @param code  код значення.
+     * @return true, якщо значення є і його код входить до множини.
+     */
+    private static boolean matches(BitSet codes, int code) {
+        return code != StringDictionary.NO_CODE && codes.get(code);
+    }
+
+    /**
+     * Перевіряє, чи містить ключ хоча б одного з вказаних полів місця ключ запиту.
+     *
+     * @param id     ідентифікатор історичного місця.
+     * @param key    ключ пошуку запиту.
+     * @param fields номери полів.
+     * @return true, якщо підрядок знайдено.
+     */
+    private synchronized boolean keyContains(int id, String key, int... fields) {
+        checkReloaded();
+        PlaceKeys keys = searchKeys.get(id);
+        if (keys == null) {
+            return false;
+        }
+        for (int field : fields) {
+            String fieldKey = fieldKey(keys, field);
+            if (fieldKey != null && fieldKey.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Обчислює ключ пошуку назви місця та коди його локації й категорії у словниках ключів.
+     *
+     * @param place історичне місце.
+     * @return ключі пошуку місця.
+     */
+    private PlaceKeys keysOf(HistoricalPlace place) {
+        return new PlaceKeys(SearchKeys.normalize(place.getName()),
+            locationKeys.encode(place.getLocation()), categoryKeys.encode(place.getCategory()));
+    }
+
+    /**
+     * Повертає ключ пошуку поля місця. Ключі локації та категорії беруться зі словників, тож
+     * однакові значення різних місць мають спільний екземпляр ключа.
+     *
+     * @param keys  ключі пошуку місця.
+     * @param field номер поля.
+     * @return ключ пошуку поля або null, якщо значення немає.
+     */
+    private String fieldKey(PlaceKeys keys, int field) {
+        return switch (field) {
+            case NAME_FIELD -> keys.name;
+            case LOCATION_FIELD -> locationKeys.key(keys.location);
+            case CATEGORY_FIELD -> categoryKeys.key(keys.category);
+            default -> null;
+        };
+    }
+
+    /**
+     * Додає назву місця до триграмного індексу.
+     *
+     * @param index триграмний індекс.
+     * @param id    ідентифікатор історичного місця.
+     * @param keys  ключі пошуку місця.
+     */
+    private void putTrigrams(TrigramIndex index, int id, PlaceKeys keys) {
+        index.put(id, keys.name);
+    }
+
+    /**
+     * Обчислює ключі пошуку всіх місць рушія та найбільший ідентифікатор місця.
+     */
+    private synchronized void rebuildSearchKeys() {
+        searchKeys.clear();
+        locationKeys = new StringDictionary(SearchKeys::normalize);
+        categoryKeys = new StringDictionary(SearchKeys::normalize);
+        maxId = 0;
+        for (HistoricalPlace place : engine.scan()) {
+            searchKeys.put(place.getId(), keysOf(place));
+            maxId = Math.max(maxId, place.getId());
+        }
+    }
+
+    /**
+     * Якщо рушій перечитав файл після останньої побудови, заново обчислює ключі пошуку, скидає
+     * пошукові індекси, щоб вони перебудувалися під час наступного звернення, і збільшує версію
+     * каталогу для кешу запитів.
+     */
+    private synchronized void checkReloaded() {
+        if (!searchStale) {
+            return;
+        }
+        searchStale = false;
+        rebuildSearchKeys();
+        textIndex = null;
+        trigramIndex = null;
+        catalogVersion.incrementAndGet();
+    }
+
+    /**
+     * Повертає повнотекстовий індекс місць, будуючи його під час першого звернення. Індексуються
+     * поля, перелічені в критеріях пошуку.
+     *
+     * @return повнотекстовий індекс.
+     */
+    private synchronized InvertedIndex textIndex() {
+        checkReloaded();
+        if (textIndex == null) {
+            InvertedIndex index = new InvertedIndex();
+            boolean readDescriptions = engine instanceof LazyPlaceStorageEngine
+                && searchCriteria.stream().anyMatch("description"::equalsIgnoreCase);
+            for (HistoricalPlace place : engine.scan()) {
+                String description = readDescriptions
+                    ? ((LazyPlaceStorageEngine) engine).description(place.getId())
+                    : place.getDescription();
+                index.put(place.getId(), searchFields(place, description));
+            }
+            textIndex = index;
+        }
+        return textIndex;
+    }
+
+    /**
+     * Повертає триграмний індекс назв місць, будуючи його під час першого звернення зі
+     * збережених ключів пошуку.
+     *
+     * @return триграмний індекс.
+     */
+    private synchronized TrigramIndex trigramIndex() {
+        checkReloaded();
+        if (trigramIndex == null) {
+            TrigramIndex index = new TrigramIndex();
+            searchKeys.forEach((id, keys) -> putTrigrams(index, id, keys));
+            trigramIndex = index;
+        }
+        return trigramIndex;
+    }
+
+    /**
+     * Оновлює ключі пошуку місця та місце в уже побудованих пошукових індексах, після чого
+     * збільшує версію каталогу для кешу запитів.
+     *
+     * @param place історичне місце разом з описом.
+     */
+    private synchronized void indexPlace(HistoricalPlace place) {
+        checkReloaded();
+        if (textIndex != null) {
+            textIndex.put(place.getId(), searchFields(place, place.getDescription()));
+        }
+        PlaceKeys keys = keysOf(place);
+        searchKeys.put(place.getId(), keys);
+        maxId = Math.max(maxId, place.getId());
+        if (trigramIndex != null) {
+            putTrigrams(trigramIndex, place.getId(), keys);
+        }
+        int limit = 2 * searchKeys.size() + DICTIONARY_SLACK;
+        if (locationKeys.size() > limit || categoryKeys.size() > limit) {
+            compactDictionaries();
+        }
+        catalogVersion.incrementAndGet();
+    }
+
+    /**
+     * Будує словники ключів локацій і категорій заново лише зі значень наявних місць і
+     * перекодовує ними ключі пошуку. Пошукові індекси кодів не містять, тож вони не змінюються.
+     */
+    private synchronized void compactDictionaries() {
+        StringDictionary locations = new StringDictionary(SearchKeys::normalize);
+        StringDictionary categories = new StringDictionary(SearchKeys::normalize);
+        for (int id : searchKeys.keys()) {
+            PlaceKeys keys = searchKeys.get(id);
+            searchKeys.put(id, new PlaceKeys(keys.name,
+                locations.encode(locationKeys.decode(keys.location)),
+                categories.encode(categoryKeys.decode(keys.category))));
+        }
+        locationKeys = locations;
+        categoryKeys = categories;
+    }
+
+    /**
+     * Вилучає ключі пошуку місця та місце з уже побудованих пошукових індексів, після чого
+     * збільшує версію каталогу для кешу запитів.
+     *
+     * @param id ідентифікатор історичного місця.
+     */
+    private synchronized void unindexPlace(int id) {
+        checkReloaded();
+        searchKeys.remove(id);
+        if (textIndex != null) {
+            textIndex.remove(id);
+        }
+        if (trigramIndex != null) {
+            trigramIndex.remove(id);
+        }
+        catalogVersion.incrementAndGet();
+    }
+
+    /**
+     * Повертає значення полів місця, що входять до критеріїв пошуку.
+     *
+     * @param place       історичне місце.
+     * @param description опис місця.
+     * @return значення полів для індексування.
+     */
+    private String[] searchFields(HistoricalPlace place, String description) {
+        List<String> fields = new ArrayList<>(searchCriteria.size());
+        for (String criterion : searchCriteria) {
+            switch (criterion.toLowerCase(Locale.ROOT)) {
+                case "name" -> fields.add(place.getName());
+                case "description" -> fields.add(description);
+                case "location" -> fields.add(place.getLocation());
+                case "category" -> fields.add(place.getCategory());
+                default -> {
+                    // Невідомий критерій пошуку не враховується.
                 }
-            }))
-            .collect(Collectors.toList());
+            }
+        }
+        return fields.toArray(new String[0]);
     }
 
     /**
-     * Завантажує історичні місця з файлу `data/historicalplaces.json`. Якщо файл не знайдено або
-     * сталася помилка, повертається порожній список.
+     * Перетворює ідентифікатори, знайдені індексом, на список місць.
      *
-     * @return список історичних місць.
+     * @param ids ідентифікатори місць.
+     * @return список місць у тому самому порядку.
      */
-    private List<HistoricalPlace> loadHistoricalPlaces() {
-        try (Reader reader = new FileReader(FILE_NAME)) {
-            Type listType = new TypeToken<List<HistoricalPlace>>() {
-            }.getType();
-            return gson.fromJson(reader, listType);
-        } catch (IOException e) {
-            return new ArrayList<>();
+    private List<HistoricalPlace> places(int[] ids) {
+        List<HistoricalPlace> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            HistoricalPlace place = placeSummary(id);
+            if (place != null) {
+                result.add(place);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Повертає місце для списку результатів пошуку. У рушії з ледачими описами опис не
+     * зчитується з файлу.
+     *
+     * @param id ідентифікатор історичного місця.
+     * @return історичне місце або null, якщо його немає.
+     */
+    private HistoricalPlace placeSummary(int id) {
+        if (engine instanceof LazyPlaceStorageEngine lazy) {
+            return lazy.summary(id);
         }
+        return engine.get(id);
     }
 
     /**
-     * Зберігає поточний список історичних місць у файл `data/historicalplaces.json`.
+     * Негайно записує всі незбережені зміни та чекає на завершення запису.
      */
-    public void saveHistoricalPlaces() {
-        try (Writer writer = new FileWriter(FILE_NAME)) {
-            gson.toJson(historicalPlaces, writer);
+    public void flush() {
+        try {
+            engine.flush();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Перевіряє, що репозиторій дозволяє зміни.
+     *
+     * @throws UnsupportedOperationException якщо репозиторій відкрито лише для читання.
+     */
+    private void checkWritable() {
+        if (isReadOnly()) {
+            throw new UnsupportedOperationException(
+                "Каталог історичних місць відкрито лише для читання");
+        }
+    }
+
+    /**
+     * Ключі пошуку одного місця: ключ назви та коди локації й категорії у словниках ключів.
+     */
+    private static final class PlaceKeys {
+
+        private final String name;
+        private final int location;
+        private final int category;
+
+        /**
+         * Конструктор ключів місця.
+         *
+         * @param name     ключ пошуку назви.
+         * @param location код локації у словнику ключів локацій.
+         * @param category код категорії у словнику ключів категорій.
+         */
+        PlaceKeys(String name, int location, int category) {
+            this.name = name;
+            this.location = location;
+            this.category = category;
+        }
+    }
 }
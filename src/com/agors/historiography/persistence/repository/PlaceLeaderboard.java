@@ -0,0 +1,268 @@
+package com.agors.historiography.persistence.repository;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * Рейтинг найкращих історичних місць за згладженою оцінкою відгуків з фільтрами за категорією та
+ * локацією.
+ * <p>
+ * Найкращі K місць обираються обмеженою купою розміру K за один прохід по місцях категорії, тож
+ * запит не сортує весь каталог. Оцінки місць беруться одним знімком агрегатів
+ * {@link ReviewRepository#getAllRatings()} без перебору відгуків, тож усі кандидати порівнюються
+ * за однією апріорною середньою, а кандидатами є лише місця з відгуками. Рейтинг кожної
+ * категорії (та загальний) кешується на {@link #CACHE_DEPTH} позицій; кеш категорії скидається
+ * лише тоді, коли змінюється відгук про місце цієї категорії, а зміна самих місць скидає весь
+ * кеш. Тому згладжені оцінки в кешованих рейтингах інших
+ * категорій можуть спиратися на трохи застарілу загальну середню оцінку.
+ */
+public class PlaceLeaderboard {
+
+    /**
+     * Кількість позицій, що зберігаються в кешованому рейтингу категорії.
+     */
+    public static final int CACHE_DEPTH = 50;
+
+    private static final String ALL_CATEGORIES = "";
+    private static final Comparator<RankedPlace> RANKING = Comparator
+        .comparingDouble((RankedPlace ranked) -> ranked.getRatings().getBayesianScore())
+        .thenComparingInt(ranked -> ranked.getRatings().getCount())
+        .thenComparing(ranked -> ranked.getPlace().getName(), Comparator.reverseOrder());
+
+    private final HistoricalPlaceRepository placeRepository;
+    private final ReviewRepository reviewRepository;
+    private final Map<String, List<RankedPlace>> boards = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Catalog catalog;
+
+    /**
+     * Конструктор рейтингу. Підписується на зміни місць і оцінок, щоб скидати кеш.
+     *
+     * @param placeRepository  репозиторій історичних місць.
+     * @param reviewRepository репозиторій відгуків з агрегатами оцінок.
+     */
+    public PlaceLeaderboard(HistoricalPlaceRepository placeRepository,
+        ReviewRepository reviewRepository) {
+        this.placeRepository = placeRepository;
+        this.reviewRepository = reviewRepository;
+        placeRepository.addChangeListener(this::invalidateAll);
+        reviewRepository.addRatingListener(this::invalidatePlace);
+    }
+
+    /**
+     * Повертає найкращі місця за згладженою оцінкою, від найкращого.
+     *
+     * @param k        максимальна кількість місць.
+     * @param category категорія або null чи порожній рядок для всіх категорій.
+     * @param location частина назви локації або null чи порожній рядок без фільтра.
+     * @return до k місць з відгуками, що відповідають фільтрам.
+     */
+    public List<RankedPlace> top(int k, String category, String location) {
+        String key = category == null ? ALL_CATEGORIES : category.trim();
+        String locationQuery = location == null ? "" : location.trim();
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        if (!locationQuery.isEmpty() || k > CACHE_DEPTH) {
+            IntPredicate filter = locationQuery.isEmpty()
+                ? null : placeRepository.locationFilter(locationQuery);
+            return select(key, k, filter);
+        }
+        List<RankedPlace> board = boards.get(key);
+        if (board == null) {
+            long stamp = generation.get();
+            board = select(key, CACHE_DEPTH, null);
+            if (generation.get() == stamp) {
+                boards.put(key, board);
+            }
+        }
+        return new ArrayList<>(board.subList(0, Math.min(k, board.size())));
+    }
+
+    /**
+     * Повертає відсортований список категорій наявних місць для фільтра.
+     *
+     * @return список категорій.
+     */
+    public List<String> categories() {
+        return new ArrayList<>(catalog().categories);
+    }
+
+    /**
+     * Обирає найкращі місця обмеженою купою: у купі тримається не більше k місць, а найгірше з
+     * них витісняється кращим кандидатом. Перебирається менша з двох множин — місця категорії
+     * або місця з відгуками.
+     *
+     * @param category категорія або порожній рядок для всіх місць.
+     * @param k        кількість місць у результаті.
+     * @param location фільтр за ідентифікатором місця з
+     *                 {@link HistoricalPlaceRepository#locationFilter(String)} або null.
+     * @return до k місць, відсортованих від найкращого.
+     */
+    private List<RankedPlace> select(String category, int k, IntPredicate location) {
+        Catalog current = catalog();
+        Map<String, RatingAggregate> allRatings = reviewRepository.getAllRatings();
+        List<HistoricalPlace> places = current.placesIn(category);
+        if (allRatings.size() < places.size()) {
+            places = new ArrayList<>();
+            for (String placeName : allRatings.keySet()) {
+                HistoricalPlace place = current.byName.get(placeName);
+                if (place != null && (category.isEmpty()
+                    || category.equals(current.categoryByName.get(placeName)))) {
+                    places.add(place);
+                }
+            }
+        }
+        PriorityQueue<RankedPlace> heap = new PriorityQueue<>(k + 1, RANKING);
+        for (HistoricalPlace place : places) {
+            if (location != null && !location.test(place.getId())) {
+                continue;
+            }
+            RatingAggregate ratings = allRatings.get(place.getName());
+            if (ratings == null || ratings.getCount() == 0) {
+                continue;
+            }
+            RankedPlace candidate = new RankedPlace(place, ratings);
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (RANKING.compare(candidate, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        List<RankedPlace> result = new ArrayList<>(heap);
+        result.sort(RANKING.reversed());
+        return result;
+    }
+
+    /**
+     * Скидає кешовані рейтинги категорії місця, відгук про яке змінився, та загальний рейтинг.
+     *
+     * @param placeName назва місця.
+     */
+    private void invalidatePlace(String placeName) {
+        generation.incrementAndGet();
+        Catalog current = catalog;
+        String category = current == null ? null : current.categoryByName.get(placeName);
+        if (category != null) {
+            boards.remove(category);
+        }
+        boards.remove(ALL_CATEGORIES);
+    }
+
+    /**
+     * Скидає всі кешовані рейтинги та групування місць за категоріями.
+     */
+    private void invalidateAll() {
+        generation.incrementAndGet();
+        catalog = null;
+        boards.clear();
+    }
+
+    /**
+     * Повертає групування місць за категоріями, будуючи його за потреби.
+     *
+     * @return групування місць.
+     */
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current == null) {
+            long stamp = generation.get();
+            current = new Catalog(placeRepository.getHistoricalPlaces());
+            if (generation.get() == stamp) {
+                catalog = current;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Місце в рейтингу разом з його оцінками.
+     */
+    public static final class RankedPlace {
+
+        private final HistoricalPlace place;
+        private final RatingAggregate ratings;
+
+        /**
+         * Конструктор позиції рейтингу.
+         *
+         * @param place   історичне місце.
+         * @param ratings агрегат оцінок місця.
+         */
+        RankedPlace(HistoricalPlace place, RatingAggregate ratings) {
+            this.place = place;
+            this.ratings = ratings;
+        }
+
+        /**
+         * Повертає історичне місце.
+         *
+         * @return історичне місце.
+         */
+        public HistoricalPlace getPlace() {
+            return place;
+        }
+
+        /**
+         * Повертає агрегат оцінок місця.
+         *
+         * @return агрегат оцінок.
+         */
+        public RatingAggregate getRatings() {
+            return ratings;
+        }
+    }
+
+    /**
+     * Незмінне групування місць за категоріями.
+     */
+    private static final class Catalog {
+
+        private final List<HistoricalPlace> all;
+        private final Map<String, List<HistoricalPlace>> byCategory = new HashMap<>();
+        private final Map<String, String> categoryByName = new HashMap<>();
+        private final Map<String, HistoricalPlace> byName = new HashMap<>();
+        private final TreeSet<String> categories =
+            new TreeSet<>(Collator.getInstance(Locale.forLanguageTag("uk")));
+
+        /**
+         * Конструктор групування.
+         *
+         * @param places усі історичні місця.
+         */
+        Catalog(List<HistoricalPlace> places) {
+            all = places;
+            for (HistoricalPlace place : places) {
+                String category = place.getCategory() == null ? "" : place.getCategory().trim();
+                byCategory.computeIfAbsent(category, key -> new ArrayList<>()).add(place);
+                categoryByName.put(place.getName(), category);
+                byName.put(place.getName(), place);
+                if (!category.isEmpty()) {
+                    categories.add(category);
+                }
+            }
+        }
+
+        /**
+         * Повертає місця категорії.
+         *
+         * @param category категорія або порожній рядок для всіх місць.
+         * @return список місць.
+         */
+        List<HistoricalPlace> placesIn(String category) {
+            return category.isEmpty() ? all : byCategory.getOrDefault(category, List.of());
+        }
+    }
+}
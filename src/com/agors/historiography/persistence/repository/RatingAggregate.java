@@ -0,0 +1,151 @@
+package com.agors.historiography.persistence.repository;
+
+/**
+ * Агрегат оцінок одного історичного місця: кількість відгуків, сума оцінок і гістограма їх
+ * розподілу. {@link ReviewRepository} оновлює агрегати за O(1) під час додавання, зміни та
+ * видалення відгуків, а назовні видає їх копії, тож середню та згладжену оцінку можна показувати
+ * поруч із кожним місцем без перебору відгуків.
+ * <p>
+ * Згладжена (баєсова) оцінка підтягує середню оцінку місця з малою кількістю відгуків до
+ * середньої оцінки всіх відгуків: {@code (w * m + сума) / (w + кількість)}, де {@code m} — середня
+ * оцінка всіх відгуків, а {@code w} — вага цього апріорного значення у відгуках.
+ */
+public final class RatingAggregate {
+
+    /**
+     * Найменша допустима оцінка відгуку.
+     */
+    public static final int MIN_RATING = 0;
+
+    /**
+     * Найбільша допустима оцінка відгуку.
+     */
+    public static final int MAX_RATING = 9;
+
+    private final int[] histogram = new int[MAX_RATING - MIN_RATING + 1];
+    private int count;
+    private long sum;
+    private double priorMean = (MIN_RATING + MAX_RATING) / 2.0;
+    private int priorWeight;
+
+    /**
+     * Враховує оцінку нового відгуку.
+     *
+     * @param rating оцінка відгуку.
+     */
+    void add(int rating) {
+        histogram[bucket(rating)]++;
+        count++;
+        sum += rating;
+    }
+
+    /**
+     * Враховує кілька відгуків з однаковою оцінкою.
+     *
+     * @param rating оцінка відгуків.
+     * @param times  кількість відгуків.
+     */
+    void add(int rating, int times) {
+        histogram[bucket(rating)] += times;
+        count += times;
+        sum += (long) rating * times;
+    }
+
+    /**
+     * Вилучає оцінку видаленого відгуку.
+     *
+     * @param rating оцінка відгуку.
+     */
+    void remove(int rating) {
+        histogram[bucket(rating)]--;
+        count--;
+        sum -= rating;
+    }
+
+    /**
+     * Створює копію агрегату з апріорними параметрами згладженої оцінки.
+     *
+     * @param priorMean   середня оцінка всіх відгуків.
+     * @param priorWeight вага апріорної середньої у відгуках.
+     * @return незалежна копія агрегату.
+     */
+    RatingAggregate copy(double priorMean, int priorWeight) {
+        RatingAggregate copy = new RatingAggregate();
+        System.arraycopy(histogram, 0, copy.histogram, 0, histogram.length);
+        copy.count = count;
+        copy.sum = sum;
+        copy.priorMean = priorMean;
+        copy.priorWeight = priorWeight;
+        return copy;
+    }
+
+    /**
+     * Повертає кількість оцінених відгуків.
+     *
+     * @return кількість відгуків.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Повертає суму оцінок.
+     *
+     * @return сума оцінок.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Повертає середню оцінку.
+     *
+     * @return середня оцінка або 0, якщо відгуків немає.
+     */
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Повертає згладжену (баєсову) оцінку, придатну для порівняння місць з різною кількістю
+     * відгуків.
+     *
+     * @return згладжена оцінка; для місця без відгуків — середня оцінка всіх відгуків.
+     */
+    public double getBayesianScore() {
+        if (count + priorWeight == 0) {
+            return priorMean;
+        }
+        return (priorWeight * priorMean + sum) / (priorWeight + count);
+    }
+
+    /**
+     * Повертає кількість відгуків з кожною оцінкою.
+     *
+     * @param rating оцінка від {@link #MIN_RATING} до {@link #MAX_RATING}.
+     * @return кількість відгуків з цією оцінкою.
+     */
+    public int getRatingCount(int rating) {
+        return histogram[bucket(rating)];
+    }
+
+    /**
+     * Повертає розподіл оцінок.
+     *
+     * @return новий масив, у якому елемент з індексом {@code i} — кількість відгуків з оцінкою
+     * {@code MIN_RATING + i}.
+     */
+    public int[] getDistribution() {
+        return histogram.clone();
+    }
+
+    /**
+     * Повертає індекс гістограми для оцінки. Оцінки поза шкалою зараховуються до найближчої межі.
+     *
+     * @param rating оцінка відгуку.
+     * @return індекс у гістограмі.
+     */
+    private static int bucket(int rating) {
+        return Math.max(MIN_RATING, Math.min(MAX_RATING, rating)) - MIN_RATING;
+    }
+}
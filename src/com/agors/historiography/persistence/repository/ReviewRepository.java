@@ -1,45 +1,144 @@
 package com.agors.historiography.persistence.repository;
 
 import com.agors.historiography.domain.entity.Review;
-import com.google.gson.Gson;
+import com.agors.historiography.persistence.storage.IntHashMap;
+import com.agors.historiography.persistence.storage.ParallelScan;
+import com.agors.historiography.persistence.storage.ShardedStore;
+import com.agors.historiography.persistence.storage.StorageConfig;
+import com.agors.historiography.persistence.storage.StorageEngine;
+import com.agors.historiography.persistence.storage.StorageEngines;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Репозиторій для роботи з відгуками. Цей клас надає методи для додавання, видалення, завантаження
- * та збереження відгуків. Відгуки зберігаються у файлі формату JSON.
+ * та збереження відгуків.
+ * <p>
+ * Відгуки зберігаються через {@link StorageEngine}, який обирає {@link StorageEngines} відповідно
+ * до конфігурації. За замовчуванням це сегментований журнал лише з дописуванням: знімок у файлі
+ * `reviews.json` та сегменти змін у каталозі `reviews-log` каталогу даних. Додавання та
+ * видалення дописують один запис у журнал замість повного перезапису файлу, а фоновий ущільнювач
+ * періодично оновлює знімок. Режим довговічності задається через {@link StorageConfig}.
+ * <p>
+ * Якщо в {@link StorageConfig} увімкнено шардування, відгуки зберігаються в каталозі
+ * `reviews-shards` окремим файлом для кожного історичного місця. Відгуки місця завантажуються
+ * ліниво під час першого звернення, а зміни перезаписують лише шард цього місця. Під час першого
+ * запуску в цьому режимі наявні відгуки переносяться з журналу в шарди.
+ * <p>
+ * У режимі журналу репозиторій підтримує вторинний індекс «назва місця → відгуки» у порядку
+ * додавання; відгуки кожного місця зберігаються в {@link IntHashMap} за ідентифікатором, тож
+ * видалення з індексу виконується за O(1). Індекс будується під час відкриття і оновлюється під
+ * час додавання, зміни та видалення, тож відгуки одного місця, зокрема окрема сторінка з них,
+ * повертаються без перебору всіх відгуків. У режимі шардів роль індексу виконує шард місця.
+ * <p>
+ * Для кожного місця репозиторій також підтримує {@link RatingAggregate} — кількість, суму та
+ * розподіл оцінок, які оновлюються за O(1) під час кожної зміни відгуків. Агрегати всіх місць
+ * будуються під час відкриття: у режимі журналу — з відгуків, а в режимі шардів — зі зведень
+ * оцінок, які сховище зберігає поруч із шардами, тож шарди для цього не читаються, а апріорна
+ * середня згладженої оцінки завжди враховує всі відгуки.
  */
 public class ReviewRepository {
 
-    private static final String FILE_NAME = "data/reviews.json";
-    private List<Review> reviews;
+    private static final String STORE_NAME = "reviews";
+    private static final int RATING_PRIOR_WEIGHT = 5;
+    private final StorageEngine<Integer, Review> engine;
+    private final ShardedStore<Review> shards; // null, якщо відгуки зберігаються не в шардах
+    private final Map<String, IntHashMap<Review>> reviewsByPlace = new HashMap<>();
+    private final Map<String, RatingAggregate> ratingsByPlace = new HashMap<>();
+    private final RatingAggregate allRatings = new RatingAggregate();
+    private final List<Consumer<String>> ratingListeners = new CopyOnWriteArrayList<>();
+    private int nextId;
 
     /**
-     * Конструктор, який ініціалізує репозиторій і завантажує відгуки з файлу.
+     * Конструктор, який ініціалізує репозиторій і відкриває сховище відгуків відповідно до
+     * конфігурації.
      */
     public ReviewRepository() {
-        reviews = new ArrayList<>();
-        loadReviews();
+        try {
+            if (StorageConfig.reviewsSharded() && !StorageEngines.inMemory()) {
+                shards = openShards();
+                engine = shards;
+                for (String placeName : shards.partitions()) {
+                    RatingAggregate ratings = new RatingAggregate();
+                    shards.measureCounts(placeName).forEach((rating, count) -> {
+                        ratings.add(rating, count);
+                        allRatings.add(rating, count);
+                    });
+                    if (ratings.getCount() > 0) {
+                        ratingsByPlace.put(placeName, ratings);
+                    }
+                }
+            } else {
+                engine = openLog();
+                shards = null;
+                for (Review review : engine.scan()) {
+                    indexReview(review);
+                    countRating(review);
+                    nextId = Math.max(nextId, review.getId());
+                }
+                nextId++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не вдалося відкрити сховище відгуків", e);
+        }
+    }
+
+    /**
+     * Відкриває сегментований журнал відгуків або, якщо так налаштовано, сховище в пам'яті.
+     *
+     * @return відкритий рушій.
+     * @throws IOException якщо журнал не вдалося відкрити.
+     */
+    private static StorageEngine<Integer, Review> openLog() throws IOException {
+        return StorageEngines.openLog(STORE_NAME, Review.class, Review::getId);
+    }
+
+    /**
+     * Відкриває шардоване сховище відгуків. Якщо сховище ще не створене, переносить у нього
+     * відгуки з журналу.
+     *
+     * @return відкрите шардоване сховище.
+     * @throws IOException якщо сховище не вдалося відкрити або заповнити.
+     */
+    private static ShardedStore<Review> openShards() throws IOException {
+        if (!StorageEngines.shardedExists(STORE_NAME)) {
+            try (StorageEngine<Integer, Review> legacy = openLog()) {
+                StorageEngines.createSharded(STORE_NAME, Review.class, Review::getId,
+                    Review::getPlaceName, Review::getRating, legacy.scan());
+            }
+        }
+        return StorageEngines.openSharded(STORE_NAME, Review.class, Review::getId,
+            Review::getPlaceName, Review::getRating);
     }
 
     /**
-     * Додає новий відгук до списку. Після додавання відгука, дані зберігаються у файл.
+     * Додає новий відгук. Відгук одразу дописується в журнал або в шард свого місця.
      *
      * @param placeName назва історичного місця, до якого належить відгук.
      * @param text      текст відгуку.
      * @param rating    рейтинг відгуку.
      * @param author    автор відгуку.
      */
-    public void addReview(String placeName, String text, int rating, String author) {
-        int id = reviews.size() + 1;
-        Review review = new Review(id, placeName, text, rating, author);
-        reviews.add(review);
-        saveReviews();
+    public synchronized void addReview(String placeName, String text, int rating,
+        String author) {
+        try {
+            int id = shards != null ? shards.nextId() : nextId++;
+            Review review = new Review(id, placeName, text, rating, author);
+            engine.put(review);
+            if (shards == null) {
+                indexReview(review);
+            }
+            countRating(review);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -48,50 +147,291 @@ public class ReviewRepository {
      * @return список відгуків.
      */
     public List<Review> getReviews() {
-        return reviews;
+        return engine.scan();
     }
 
     /**
-     * Видаляє відгук за вказаним ідентифікатором. Після видалення відгука, дані зберігаються у
-     * файл.
+     * Відбирає відгуки за довільною умовою повним переглядом, який на великій кількості відгуків
+     * виконується паралельно ({@link ParallelScan}). Призначений для запитів і звітів, що не
+     * можуть скористатися індексом відгуків за місцем.
      *
-     * @param reviewId ідентифікатор відгуку, який потрібно видалити.
-     * @return true, якщо відгук успішно видалено, інакше false.
+     * @param predicate умова відбору; може викликатися з кількох потоків одночасно.
+     * @return відгуки, що задовольняють умову, у порядку списку відгуків.
      */
-    public boolean deleteReview(int reviewId) {
-        boolean isRemoved = reviews.removeIf(review -> review.getId() == reviewId);
-        if (isRemoved) {
-            saveReviews();
+    public List<Review> scan(Predicate<? super Review> predicate) {
+        return ParallelScan.shared().filter(engine.scan(), predicate);
+    }
+
+    /**
+     * Повертає відгуки про одне історичне місце. У режимі шардів завантажує лише шард цього місця,
+     * а в режимі журналу читає відгуки за вторинним індексом.
+     *
+     * @param placeName назва історичного місця.
+     * @return список відгуків про місце.
+     */
+    public List<Review> getReviewsForPlace(String placeName) {
+        return getReviewsForPlace(placeName, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Повертає одну сторінку відгуків про історичне місце в порядку їх додавання. У режимі журналу
+     * час роботи пропорційний розміру сторінки, а не кількості відгуків.
+     *
+     * @param placeName назва історичного місця.
+     * @param offset    кількість відгуків, які потрібно пропустити.
+     * @param limit     максимальна кількість відгуків на сторінці.
+     * @return список відгуків сторінки; порожній, якщо сторінка за межами списку.
+     * @throws IllegalArgumentException якщо зсув або розмір сторінки від'ємні.
+     */
+    public synchronized List<Review> getReviewsForPlace(String placeName, int offset,
+        int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Некоректна сторінка: " + offset + ", " + limit);
+        }
+        List<Review> page = new ArrayList<>();
+        if (shards != null) {
+            List<Review> reviews = shards.partition(placeName);
+            int end = (int) Math.min(reviews.size(), (long) offset + limit);
+            if (offset < end) {
+                page.addAll(reviews.subList(offset, end));
+            }
+            return page;
+        }
+        IntHashMap<Review> reviews = reviewsByPlace.get(placeName);
+        if (reviews != null) {
+            page.addAll(reviews.values(offset, limit));
+        }
+        return page;
+    }
+
+    /**
+     * Повертає кількість відгуків про історичне місце.
+     *
+     * @param placeName назва історичного місця.
+     * @return кількість відгуків.
+     */
+    public synchronized int countReviewsForPlace(String placeName) {
+        if (shards != null) {
+            RatingAggregate ratings = ratingsByPlace.get(placeName);
+            return ratings != null ? ratings.getCount() : 0;
+        }
+        IntHashMap<Review> reviews = reviewsByPlace.get(placeName);
+        return reviews != null ? reviews.size() : 0;
+    }
+
+    /**
+     * Повертає відгук за ідентифікатором з первинного індексу рушія.
+     *
+     * @param reviewId ідентифікатор відгуку.
+     * @return відгук або null, якщо його немає.
+     */
+    public Review findById(int reviewId) {
+        return engine.get(reviewId);
+    }
+
+    /**
+     * Замінює наявний відгук з вказаним ідентифікатором. Якщо відгук переноситься до іншого
+     * місця, у режимі шардів він видаляється зі шарду попереднього місця.
+     *
+     * @param reviewId ідентифікатор відгуку.
+     * @param review   нові дані відгуку з тим самим ідентифікатором.
+     * @return true, якщо відгук було оновлено, або false, якщо відгуку з таким ідентифікатором
+     * немає.
+     * @throws IllegalArgumentException якщо ідентифікатор відгуку не збігається з вказаним.
+     */
+    public synchronized boolean updateById(int reviewId, Review review) {
+        if (review.getId() != reviewId) {
+            throw new IllegalArgumentException("Ідентифікатор відгуку не збігається: " + reviewId);
+        }
+        Review previous = engine.get(reviewId);
+        if (previous == null) {
+            return false;
+        }
+        try {
+            boolean moved = !previous.getPlaceName().equals(review.getPlaceName());
+            if (shards != null && moved) {
+                shards.delete(previous.getPlaceName(), reviewId);
+            }
+            engine.put(review);
+            if (shards == null) {
+                if (moved) {
+                    unindexReview(previous);
+                }
+                indexReview(review);
+            }
+            if (moved || previous.getRating() != review.getRating()) {
+                uncountRating(previous);
+                countRating(review);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
-        return isRemoved;
     }
 
     /**
-     * Завантажує відгуки з файлу `data/reviews.json`. Якщо файл не існує або сталася помилка,
-     * відгуки не завантажуються.
+     * Видаляє відгук за вказаним ідентифікатором. У режимі журналу видалення записується як
+     * надгробок.
+     *
+     * @param reviewId ідентифікатор відгуку, який потрібно видалити.
+     * @return true, якщо відгук успішно видалено, інакше false.
      */
-    private void loadReviews() {
+    public synchronized boolean deleteById(int reviewId) {
         try {
-            Path path = Paths.get(FILE_NAME);
-            if (Files.exists(path)) {
-                String json = new String(Files.readAllBytes(path));
-                Gson gson = new Gson();
-                Review[] reviewArray = gson.fromJson(json, Review[].class);
-                reviews = new ArrayList<>(Arrays.asList(reviewArray));
+            Review previous = engine.get(reviewId);
+            boolean deleted = engine.delete(reviewId);
+            if (deleted && previous != null) {
+                if (shards == null) {
+                    unindexReview(previous);
+                }
+                uncountRating(previous);
             }
+            return deleted;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Видаляє відгук про вказане історичне місце. У режимі шардів перезаписується лише шард цього
+     * місця.
+     *
+     * @param placeName назва історичного місця, до якого належить відгук.
+     * @param reviewId  ідентифікатор відгуку, який потрібно видалити.
+     * @return true, якщо відгук успішно видалено, інакше false.
+     */
+    public synchronized boolean deleteReview(String placeName, int reviewId) {
+        if (shards != null) {
+            Review previous = shards.partition(placeName).stream()
+                .filter(review -> review.getId() == reviewId)
+                .findFirst()
+                .orElse(null);
+            boolean deleted = shards.delete(placeName, reviewId);
+            if (deleted && previous != null) {
+                uncountRating(previous);
+            }
+            return deleted;
+        }
+        return deleteById(reviewId);
+    }
+
+    /**
+     * Повертає агрегат оцінок історичного місця: кількість, середню та згладжену оцінку і
+     * розподіл оцінок. Не звертається до відгуків.
+     *
+     * @param placeName назва історичного місця.
+     * @return копія агрегату оцінок; для місця без відгуків — порожній агрегат.
+     */
+    public synchronized RatingAggregate getRatings(String placeName) {
+        RatingAggregate ratings = ratingsByPlace.get(placeName);
+        return (ratings != null ? ratings : new RatingAggregate())
+            .copy(priorMean(), RATING_PRIOR_WEIGHT);
+    }
+
+    /**
+     * Повертає агрегати оцінок усіх місць, про які є відгуки, з однією апріорною середньою. Не
+     * звертається до відгуків.
+     *
+     * @return нова таблиця копій агрегатів за назвою місця.
+     */
+    public synchronized Map<String, RatingAggregate> getAllRatings() {
+        double priorMean = priorMean();
+        Map<String, RatingAggregate> result = new HashMap<>();
+        ratingsByPlace.forEach((placeName, ratings) ->
+            result.put(placeName, ratings.copy(priorMean, RATING_PRIOR_WEIGHT)));
+        return result;
+    }
+
+    /**
+     * Повертає апріорну середню згладженої оцінки — середню оцінку всіх відгуків.
+     *
+     * @return апріорна середня; середина шкали, якщо відгуків немає.
+     */
+    private double priorMean() {
+        return allRatings.getCount() == 0
+            ? (RatingAggregate.MIN_RATING + RatingAggregate.MAX_RATING) / 2.0
+            : allRatings.getAverage();
+    }
+
+    /**
+     * Додає відгук до вторинного індексу за назвою місця або оновлює його там, зберігаючи
+     * позицію.
+     *
+     * @param review відгук.
+     */
+    private void indexReview(Review review) {
+        reviewsByPlace.computeIfAbsent(review.getPlaceName(), place -> new IntHashMap<>())
+            .put(review.getId(), review);
+    }
+
+    /**
+     * Вилучає відгук із вторинного індексу за назвою місця.
+     *
+     * @param review відгук.
+     */
+    private void unindexReview(Review review) {
+        IntHashMap<Review> reviews = reviewsByPlace.get(review.getPlaceName());
+        if (reviews != null) {
+            reviews.remove(review.getId());
+            if (reviews.isEmpty()) {
+                reviewsByPlace.remove(review.getPlaceName());
+            }
+        }
+    }
+
+    /**
+     * Реєструє слухача, який викликається з назвою місця щоразу, коли змінюються оцінки цього
+     * місця. Слухач викликається під блокуванням репозиторію, тож він не повинен чекати на інші
+     * потоки.
+     *
+     * @param listener слухач змін оцінок.
+     */
+    public void addRatingListener(Consumer<String> listener) {
+        ratingListeners.add(listener);
+    }
+
+    /**
+     * Враховує оцінку відгуку в агрегаті його місця та в загальному агрегаті і сповіщає слухачів.
+     *
+     * @param review відгук.
+     */
+    private void countRating(Review review) {
+        ratingListeners.forEach(listener -> listener.accept(review.getPlaceName()));
+        RatingAggregate ratings = ratingsByPlace.get(review.getPlaceName());
+        if (ratings == null) {
+            ratings = new RatingAggregate();
+            ratingsByPlace.put(review.getPlaceName(), ratings);
+        }
+        ratings.add(review.getRating());
+        allRatings.add(review.getRating());
+    }
+
+    /**
+     * Вилучає оцінку відгуку з агрегату його місця та із загального агрегату і сповіщає слухачів.
+     *
+     * @param review відгук.
+     */
+    private void uncountRating(Review review) {
+        ratingListeners.forEach(listener -> listener.accept(review.getPlaceName()));
+        RatingAggregate ratings = ratingsByPlace.get(review.getPlaceName());
+        if (ratings == null) {
+            return;
+        }
+        ratings.remove(review.getRating());
+        allRatings.remove(review.getRating());
+        if (ratings.getCount() == 0) {
+            ratingsByPlace.remove(review.getPlaceName());
         }
     }
 
     /**
-     * Зберігає поточний список відгуків у файл `data/reviews.json`.
+     * Скидає на диск усі незбережені зміни та закриває сховище.
      */
-    private void saveReviews() {
+    public void close() {
         try {
-            Gson gson = new Gson();
-            String json = gson.toJson(reviews);
-            Files.write(Paths.get(FILE_NAME), json.getBytes());
+            engine.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -1,50 +1,122 @@
 package com.agors.historiography.persistence.repository;
 
 import com.agors.historiography.domain.entity.User;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import com.agors.historiography.persistence.storage.AtomicFileWriter;
+import com.agors.historiography.persistence.storage.BlockCompressedFile;
+import com.agors.historiography.persistence.storage.JsonCodec;
+import com.agors.historiography.persistence.storage.JsonFileStorageEngine;
+import com.agors.historiography.persistence.storage.StorageEngine;
+import com.agors.historiography.persistence.storage.StorageEngines;
+import com.agors.historiography.persistence.storage.WriteBehindFlusher;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Репозиторій для роботи з користувачами. Цей клас надає методи для додавання, видалення, перевірки
  * наявності користувача, а також для завантаження користувачів з файлу формату JSON.
+ * <p>
+ * Користувачі зберігаються через {@link StorageEngine} з ключем за ім'ям користувача, який обирає
+ * {@link StorageEngines} відповідно до конфігурації. Репозиторій додатково тримає хеш-індекс за
+ * нормалізованою електронною поштою, тож усі операції пошуку виконуються за O(1) без звернення до
+ * файлу; файл перезаписується лише під час додавання або видалення користувача, причому запис
+ * виконується відкладено у фоновому потоці через {@link WriteBehindFlusher}.
+ * <p>
+ * Перед кожним пошуком рушій звіряє файл зі змінами інших екземплярів застосунку, тож перевірки
+ * зайнятості імені та електронної пошти бачать користувачів, зареєстрованих іншим процесом. Якщо
+ * рушій перечитав файл, індекс за електронною поштою позначається застарілим і перебудовується.
  */
 public class UserRepository {
 
-    private static final String USERS_FILE = "data/users.json";
+    private static final String USERS_FILE = "users.json";
+    private final StorageEngine<String, User> users;
+    private final Map<String, User> usersByEmail = new HashMap<>();
+    private volatile boolean emailIndexStale;
     private User currentUser;
 
     /**
-     * Конструктор, який перевіряє існування файлу користувачів та створює його, якщо він не існує.
+     * Конструктор, який відкриває сховище користувачів та будує індекс за електронною поштою.
      */
     public UserRepository() {
-        createFileIfNotExists();
+        users = openEngine();
+        rebuildEmailIndex();
+        users.addReloadListener(() -> emailIndexStale = true);
     }
 
     /**
-     * Створює файл з користувачами, якщо він не існує.
+     * Будує індекс за електронною поштою з усіх користувачів рушія.
      */
-    private void createFileIfNotExists() {
-        File file = new File(USERS_FILE);
+    private synchronized void rebuildEmailIndex() {
+        emailIndexStale = false;
+        usersByEmail.clear();
+        for (User user : users.scan()) {
+            usersByEmail.put(normalizeEmail(user.getEmail()), user);
+        }
+    }
 
-        if (!file.exists()) {
-            try {
-                new File("data").mkdirs();
-                file.createNewFile();
+    /**
+     * Просить рушій перечитати файл, якщо його змінив інший екземпляр застосунку, і перебудовує
+     * індекс за електронною поштою, якщо рушій перечитав файл після останньої побудови.
+     */
+    private void checkReloaded() {
+        try {
+            users.refreshIfChanged();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (emailIndexStale) {
+            rebuildEmailIndex();
+        }
+    }
 
-                try (FileWriter writer = new FileWriter(file)) {
-                    writer.write("{\"users\":{}}");
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    /**
+     * Відкриває налаштований рушій зберігання користувачів. Якщо файл не вдалося прочитати,
+     * репозиторій не відкривається: інакше нові реєстрації тихо губилися б після виходу.
+     *
+     * @return завантажений рушій.
+     * @throws UncheckedIOException якщо сховище користувачів не вдалося відкрити.
+     */
+    private static StorageEngine<String, User> openEngine() {
+        try {
+            return StorageEngines.openFile(USERS_FILE, User::getUsername, new UsersFileFormat());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не вдалося відкрити сховище користувачів", e);
+        }
+    }
+
+    /**
+     * Зберігає користувача та додає його до індексу за електронною поштою.
+     *
+     * @param user користувач для збереження.
+     */
+    private void index(User user) {
+        try {
+            users.put(user);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        usersByEmail.put(normalizeEmail(user.getEmail()), user);
+    }
+
+    /**
+     * Нормалізує електронну пошту для пошуку в індексі: прибирає пробіли та зводить до нижнього
+     * регістру.
+     *
+     * @param email електронна пошта.
+     * @return нормалізована електронна пошта.
+     */
+    private static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -71,22 +143,9 @@ public class UserRepository {
      * @param email електронна пошта користувача.
      * @return true, якщо електронна пошта вже використовується, інакше false.
      */
-    public boolean isEmailTaken(String email) {
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            for (String username : users.keySet()) {
-                JsonObject user = users.getAsJsonObject(username);
-                if (user.get("email").getAsString().equals(email)) {
-                    return true;
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return false;
+    public synchronized boolean isEmailTaken(String email) {
+        checkReloaded();
+        return usersByEmail.containsKey(normalizeEmail(email));
     }
 
     /**
@@ -95,47 +154,22 @@ public class UserRepository {
      * @param username ім'я користувача.
      * @return true, якщо ім'я користувача вже використовується, інакше false.
      */
-    public boolean isUsernameTaken(String username) {
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            if (users.has(username)) {
-                return true;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return false;
+    public synchronized boolean isUsernameTaken(String username) {
+        return users.get(username) != null;
     }
 
     /**
-     * Додає нового користувача.
+     * Додає нового користувача та зберігає зміни у файл.
      *
      * @param user користувач для додавання.
      */
-    public void addUser(User user) {
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            JsonObject newUser = new JsonObject();
-            newUser.addProperty("email", user.getEmail());
-            newUser.addProperty("password", user.getPassword());
-            newUser.addProperty("role", user.getRole());
-
-            users.add(user.getUsername(), newUser);
-
-            Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
-
-            try (FileWriter writer = new FileWriter(USERS_FILE)) {
-                prettyGson.toJson(data, writer);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+    public synchronized void addUser(User user) {
+        checkReloaded();
+        User previous = users.get(user.getUsername());
+        if (previous != null) {
+            usersByEmail.remove(normalizeEmail(previous.getEmail()));
         }
+        index(user);
     }
 
     /**
@@ -146,24 +180,7 @@ public class UserRepository {
      * @return true, якщо користувач існує, інакше false.
      */
     public boolean isUserExists(String usernameOrEmail, String password) {
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            for (String username : users.keySet()) {
-                JsonObject user = users.getAsJsonObject(username);
-                if (user.get("email").getAsString().equals(usernameOrEmail) || username.equals(
-                    usernameOrEmail)) {
-                    if (user.get("password").getAsString().equals(password)) {
-                        return true;
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return false;
+        return getUser(usernameOrEmail, password) != null;
     }
 
     /**
@@ -174,24 +191,9 @@ public class UserRepository {
      * @return користувача, якщо знайдений, інакше null.
      */
     public User getUser(String usernameOrEmail, String password) {
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            for (String username : users.keySet()) {
-                JsonObject user = users.getAsJsonObject(username);
-                if (user.get("email").getAsString().equals(usernameOrEmail) || username.equals(
-                    usernameOrEmail)) {
-                    if (user.get("password").getAsString().equals(password)) {
-                        String role = user.get("role").getAsString();
-                        return new User(username, user.get("email").getAsString(),
-                            user.get("password").getAsString(), role);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        User user = getUserByUsernameOrEmail(usernameOrEmail);
+        if (user != null && user.getPassword().equals(password)) {
+            return user;
         }
         return null;
     }
@@ -202,51 +204,20 @@ public class UserRepository {
      * @param username ім'я користувача.
      * @return користувача, якщо знайдений, інакше null.
      */
-    public User getUserByUsername(String username) {
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            if (users.has(username)) {
-                JsonObject user = users.getAsJsonObject(username);
-                String email = user.get("email").getAsString();
-                String password = user.get("password").getAsString();
-                String role = user.get("role").getAsString();
-
-                return new User(username, email, password, role);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return null;
+    public synchronized User getUserByUsername(String username) {
+        return users.get(username);
     }
 
     /**
-     * Повертає користувача за електронною поштою.
+     * Повертає користувача за електронною поштою. Регістр літер та пробіли на краях не
+     * враховуються.
      *
      * @param email електронна пошта користувача.
      * @return користувача, якщо знайдений, інакше null.
      */
-    public User getUserByEmail(String email) {
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            for (String username : users.keySet()) {
-                JsonObject user = users.getAsJsonObject(username);
-                if (user.get("email").getAsString().equals(email)) {
-                    String password = user.get("password").getAsString();
-                    String role = user.get("role").getAsString();
-
-                    return new User(username, email, password, role);
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return null;
+    public synchronized User getUserByEmail(String email) {
+        checkReloaded();
+        return usersByEmail.get(normalizeEmail(email));
     }
 
     /**
@@ -268,51 +239,119 @@ public class UserRepository {
      *
      * @return список користувачів.
      */
-    public List<User> getAllUsers() {
-        List<User> usersList = new ArrayList<>();
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            for (String username : users.keySet()) {
-                JsonObject userJson = users.getAsJsonObject(username);
-                String email = userJson.get("email").getAsString();
-                String password = userJson.get("password").getAsString();
-                String role = userJson.get("role").getAsString();
-
-                usersList.add(new User(username, email, password, role));
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return usersList;
+    public synchronized List<User> getAllUsers() {
+        return users.scan();
     }
 
     /**
-     * Видаляє користувача за ім'ям користувача.
+     * Видаляє користувача за ім'ям користувача та зберігає зміни у файл.
      *
      * @param username ім'я користувача для видалення.
      */
-    public void deleteUser(String username) {
-        try (FileReader reader = new FileReader(USERS_FILE)) {
-            Gson gson = new Gson();
-            JsonObject data = gson.fromJson(reader, JsonObject.class);
-            JsonObject users = data.getAsJsonObject("users");
-
-            if (users.has(username)) {
-                users.remove(username);
+    public synchronized void deleteUser(String username) {
+        checkReloaded();
+        User removed = users.get(username);
+        if (removed != null) {
+            try {
+                users.delete(username);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            usersByEmail.remove(normalizeEmail(removed.getEmail()));
+        } else {
+            System.out.println("Користувач не знайдений.");
+        }
+    }
 
-                Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
+    /**
+     * Формат файлу користувачів: об'єкт {@code users}, у якому ключем є ім'я користувача, а
+     * значенням — електронна пошта, пароль та роль.
+     */
+    private static final class UsersFileFormat implements JsonFileStorageEngine.Format<User> {
+
+        /**
+         * Потоково зчитує користувачів з файлу через {@link JsonReader}, не будуючи дерева JSON.
+         * Відсутній або порожній файл вважається порожнім.
+         *
+         * @param file файл користувачів.
+         * @param sink споживач, що отримує користувачів по одному.
+         * @throws IOException якщо файл не вдалося прочитати.
+         */
+        @Override
+        public void read(Path file, Consumer<User> sink) throws IOException {
+            if (!Files.exists(file) || Files.size(file) == 0) {
+                return;
+            }
+            try (JsonReader reader = new JsonReader(new InputStreamReader(
+                BlockCompressedFile.newInputStream(file), StandardCharsets.UTF_8))) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    return;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!"users".equals(reader.nextName())
+                        || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        sink.accept(readUser(reader.nextName(), reader));
+                    }
+                    reader.endObject();
+                }
+                reader.endObject();
+            }
+        }
 
-                try (FileWriter writer = new FileWriter(USERS_FILE)) {
-                    prettyGson.toJson(data, writer);
+        /**
+         * Зчитує поля одного користувача.
+         *
+         * @param username ім'я користувача, що є ключем об'єкта.
+         * @param reader   потоковий читач, розташований перед об'єктом користувача.
+         * @return прочитаний користувач.
+         * @throws IOException якщо об'єкт не вдалося прочитати.
+         */
+        private static User readUser(String username, JsonReader reader) throws IOException {
+            String email = null;
+            String password = null;
+            String role = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "email" -> email = JsonCodec.nextStringOrNull(reader);
+                    case "password" -> password = JsonCodec.nextStringOrNull(reader);
+                    case "role" -> role = JsonCodec.nextStringOrNull(reader);
+                    default -> reader.skipValue();
                 }
-            } else {
-                System.out.println("Користувач не знайдений.");
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            reader.endObject();
+            return new User(username, email, password, role);
+        }
+
+        /**
+         * Потоково записує користувачів через {@link AtomicFileWriter}, тож файл ніколи не
+         * залишається напівзаписаним.
+         *
+         * @param file   файл користувачів.
+         * @param values користувачі для запису.
+         * @throws IOException якщо запис не вдався.
+         */
+        @Override
+        public void write(Path file, List<User> values) throws IOException {
+            AtomicFileWriter.writeJson(file, true, writer -> {
+                writer.beginObject();
+                writer.name("users").beginObject();
+                for (User user : values) {
+                    writer.name(user.getUsername()).beginObject();
+                    writer.name("email").value(user.getEmail());
+                    writer.name("password").value(user.getPassword());
+                    writer.name("role").value(user.getRole());
+                    writer.endObject();
+                }
+                writer.endObject();
+                writer.endObject();
+            });
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.agors.historiography.persistence.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Сеанс пошуку підрядка під час введення запиту. Сеанс пам'ятає результати попередніх запитів
+ * стеком: якщо запит подовжився, кожен новий результат є підмножиною попереднього, тож
+ * перевіряються лише місця попереднього результату; якщо запит скоротився (Backspace), сеанс
+ * повертається до збереженого раніше результату без повторного пошуку. Повний пошук виконується
+ * лише для першого непорожнього символу запиту або коли новий запит не продовжує жоден із
+ * збережених: результат порожнього запиту — весь каталог, і уточнювати його дорожче, ніж шукати
+ * за індексом.
+ * <p>
+ * Отже, вартість одного натискання клавіші залежить від кількості поточних результатів, а не від
+ * розміру каталогу. Сеанс не відстежує змін даних: його потрібно створювати заново для кожного
+ * відкриття форми пошуку. Клас не потокобезпечний.
+ *
+ * @param <T> тип результату.
+ */
+public class IncrementalSearch<T> {
+
+    private final Function<String, List<T>> fullSearch;
+    private final BiPredicate<T, String> matcher;
+    private final Deque<Step<T>> steps = new ArrayDeque<>();
+
+    /**
+     * Конструктор сеансу.
+     *
+     * @param fullSearch повний пошук за запитом.
+     * @param matcher    умова, чи відповідає результат ключу запиту ({@link SearchKeys}); має
+     *                   збігатися з умовою повного пошуку.
+     */
+    public IncrementalSearch(Function<String, List<T>> fullSearch,
+        BiPredicate<T, String> matcher) {
+        this.fullSearch = fullSearch;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Повертає результати для поточного запиту, уточнюючи або відновлюючи попередні.
+     *
+     * @param query поточний запит.
+     * @return незмінний список результатів.
+     */
+    public List<T> update(String query) {
+        String lowerQuery = SearchKeys.normalize(query);
+        while (!steps.isEmpty() && !lowerQuery.startsWith(steps.peek().query)) {
+            steps.pop();
+        }
+        Step<T> previous = steps.peek();
+        if (previous != null && previous.query.equals(lowerQuery)) {
+            return previous.results;
+        }
+
+        List<T> results;
+        if (previous == null || previous.query.isEmpty()) {
+            results = List.copyOf(fullSearch.apply(query));
+        } else {
+            List<T> refined = new ArrayList<>();
+            for (T candidate : previous.results) {
+                if (matcher.test(candidate, lowerQuery)) {
+                    refined.add(candidate);
+                }
+            }
+            results = List.copyOf(refined);
+        }
+        steps.push(new Step<>(lowerQuery, results));
+        return results;
+    }
+
+    /**
+     * Забуває всі збережені результати, наприклад після зміни даних.
+     */
+    public void reset() {
+        steps.clear();
+    }
+
+    /**
+     * Збережений результат одного запиту.
+     *
+     * @param <T> тип результату.
+     */
+    private static final class Step<T> {
+
+        private final String query;
+        private final List<T> results;
+
+        /**
+         * Конструктор кроку.
+         *
+         * @param query   ключ пошуку запиту.
+         * @param results результати запиту.
+         */
+        Step(String query, List<T> results) {
+            this.query = query;
+            this.results = results;
+        }
+    }
+}
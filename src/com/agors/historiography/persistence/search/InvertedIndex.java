@@ -0,0 +1,152 @@
+package com.agors.historiography.persistence.search;
+
+import com.agors.historiography.persistence.storage.IntHashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Інвертований повнотекстовий індекс документів з цілочисельними ідентифікаторами. Для кожного
+ * терміна, отриманого {@link UkrainianAnalyzer}, зберігається список документів, що його
+ * містять, тож запит розв'язується перетином списків термінів запиту, а не переглядом усіх
+ * документів.
+ * <p>
+ * Кожен документ під час першого додавання отримує порядковий номер, і списки термінів зберігають
+ * саме порядкові номери у зростаючому порядку. Оновлення документа не змінює його номера, тож
+ * результати запиту повертаються в порядку додавання документів без окремого сортування.
+ * Клас потокобезпечний.
+ */
+public class InvertedIndex {
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final IntHashMap<Document> documentsById = new IntHashMap<>();
+    private final IntHashMap<Document> documentsByOrdinal = new IntHashMap<>();
+    private int nextOrdinal;
+
+    /**
+     * Додає документ або замінює терміни наявного документа.
+     *
+     * @param id     ідентифікатор документа.
+     * @param fields текстові поля документа; поля зі значенням null пропускаються.
+     */
+    public synchronized void put(int id, String... fields) {
+        Document document = documentsById.get(id);
+        if (document == null) {
+            document = new Document(id, nextOrdinal++);
+            documentsById.put(id, document);
+            documentsByOrdinal.put(document.ordinal, document);
+        } else {
+            unlink(document);
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (String field : fields) {
+            terms.addAll(UkrainianAnalyzer.terms(field));
+        }
+        document.terms = terms.toArray(new String[0]);
+        for (String term : document.terms) {
+            postings.computeIfAbsent(term, key -> new PostingList()).add(document.ordinal);
+        }
+    }
+
+    /**
+     * Видаляє документ з індексу.
+     *
+     * @param id ідентифікатор документа.
+     * @return true, якщо документ був в індексі.
+     */
+    public synchronized boolean remove(int id) {
+        Document document = documentsById.remove(id);
+        if (document == null) {
+            return false;
+        }
+        documentsByOrdinal.remove(document.ordinal);
+        unlink(document);
+        return true;
+    }
+
+    /**
+     * Повертає кількість документів в індексі.
+     *
+     * @return кількість документів.
+     */
+    public synchronized int size() {
+        return documentsById.size();
+    }
+
+    /**
+     * Шукає документи, що містять усі терміни запиту. Запит без термінів відповідає всім
+     * документам.
+     *
+     * @param query текст запиту.
+     * @return ідентифікатори знайдених документів у порядку їх додавання.
+     */
+    public synchronized int[] search(String query) {
+        Set<String> terms = new LinkedHashSet<>(UkrainianAnalyzer.terms(query));
+        if (terms.isEmpty()) {
+            int[] all = new int[documentsByOrdinal.size()];
+            int[] count = {0};
+            documentsByOrdinal.forEach((ordinal, document) -> all[count[0]++] = document.id);
+            return all;
+        }
+        List<PostingList> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        int[] matches = lists.get(0).toArray();
+        int count = matches.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retainAll(matches, count);
+        }
+
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = documentsByOrdinal.get(matches[i]).id;
+        }
+        return ids;
+    }
+
+    /**
+     * Вилучає порядковий номер документа зі списків усіх його термінів.
+     *
+     * @param document документ.
+     */
+    private void unlink(Document document) {
+        for (String term : document.terms) {
+            PostingList list = postings.get(term);
+            if (list != null && list.remove(document.ordinal) && list.size() == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Документ індексу.
+     */
+    private static final class Document {
+
+        private final int id;
+        private final int ordinal;
+        private String[] terms = new String[0];
+
+        /**
+         * Конструктор документа.
+         *
+         * @param id      ідентифікатор документа.
+         * @param ordinal порядковий номер документа.
+         */
+        Document(int id, int ordinal) {
+            this.id = id;
+            this.ordinal = ordinal;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.agors.historiography.persistence.search;
+
+import java.util.Arrays;
+
+/**
+ * Відсортований за зростанням список порядкових номерів документів одного ключа індексу (терміна
+ * або n-грами). Номери зберігаються в примітивному масиві без упакування.
+ */
+final class PostingList {
+
+    private int[] ordinals = new int[4];
+    private int size;
+
+    /**
+     * Додає номер документа. Нові документи мають найбільші номери, тож зазвичай номер
+     * дописується в кінець.
+     *
+     * @param ordinal порядковий номер документа.
+     */
+    void add(int ordinal) {
+        int position = size > 0 && ordinals[size - 1] < ordinal
+            ? size : Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if (position < 0) {
+            position = -position - 1;
+        } else if (position < size) {
+            return;
+        }
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+        ordinals[position] = ordinal;
+        size++;
+    }
+
+    /**
+     * Видаляє номер документа.
+     *
+     * @param ordinal порядковий номер документа.
+     * @return true, якщо номер був у списку.
+     */
+    boolean remove(int ordinal) {
+        int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Повертає кількість номерів у списку.
+     *
+     * @return кількість номерів.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Повертає копію номерів списку.
+     *
+     * @return новий відсортований масив номерів.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(ordinals, size);
+    }
+
+    /**
+     * Залишає в масиві кандидатів лише номери, що є в цьому списку. Позиція в списку шукається
+     * експоненційним пошуком від попередньої, тож перетин короткого масиву з довгим списком не
+     * переглядає весь список.
+     *
+     * @param candidates відсортовані номери-кандидати; результат записується на їх місце.
+     * @param count      кількість кандидатів.
+     * @return кількість кандидатів, що залишилися.
+     */
+    int retainAll(int[] candidates, int count) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < size; i++) {
+            int target = candidates[i];
+            int bound = 1;
+            while (from + bound < size && ordinals[from + bound] < target) {
+                bound <<= 1;
+            }
+            int position = Arrays.binarySearch(ordinals, from, Math.min(size, from + bound + 1),
+                target);
+            if (position >= 0) {
+                candidates[kept++] = target;
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,60 @@
+package com.agors.historiography.persistence.search;
+
+import java.text.Normalizer;
+
+/**
+ * Нормалізовані ключі пошуку для текстових полів. Ключ — це текст у формі NFC, у якому всі види
+ * апострофа (ʼ ’ ‘ ` ´ ′) замінено на {@code '}, а регістр зведено до нижнього. Рядки, що
+ * відрізняються лише формою Unicode, апострофом чи регістром, мають однаковий ключ, тож пошук
+ * підрядка порівнює ключі без повторного зведення полів.
+ * <p>
+ * Ключі полів обчислюються один раз, під час завантаження або зміни запису, а під час пошуку
+ * нормалізується лише сам запит. Якщо текст уже нормалізований, повертається той самий екземпляр
+ * рядка без нових виділень пам'яті.
+ */
+public final class SearchKeys {
+
+    /**
+     * Єдиний вигляд апострофа в ключах.
+     */
+    public static final char APOSTROPHE = '\'';
+
+    private SearchKeys() {
+    }
+
+    /**
+     * Обчислює ключ пошуку тексту.
+     *
+     * @param text текст.
+     * @return ключ пошуку; порожній рядок для null.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String composed = Normalizer.isNormalized(text, Normalizer.Form.NFC)
+            ? text : Normalizer.normalize(text, Normalizer.Form.NFC);
+        StringBuilder key = null;
+        for (int i = 0; i < composed.length(); i++) {
+            char c = composed.charAt(i);
+            char folded = isApostrophe(c) ? APOSTROPHE : Character.toLowerCase(c);
+            if (key == null && folded != c) {
+                key = new StringBuilder(composed.length()).append(composed, 0, i);
+            }
+            if (key != null) {
+                key.append(folded);
+            }
+        }
+        return key == null ? composed : key.toString();
+    }
+
+    /**
+     * Перевіряє, чи є символ апострофом або схожим на нього знаком.
+     *
+     * @param c символ.
+     * @return true для апострофа.
+     */
+    public static boolean isApostrophe(char c) {
+        return c == '\'' || c == 'ʼ' || c == '’' || c == '‘' || c == '`' || c == '´' || c == '′';
+    }
+}
@@ -0,0 +1,220 @@
+package com.agors.historiography.persistence.search;
+
+import com.agors.historiography.persistence.storage.IntHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Індекс символьних n-грам для пошуку підрядка («contains») у коротких текстових полях. Для кожної
+ * n-грами довжиною від одного до трьох символів зберігається список документів, у полях яких вона
+ * трапляється.
+ * <p>
+ * Запит довжиною щонайменше три символи розкладається на триграми; документ може містити запит,
+ * лише якщо містить усі його триграми, тож кандидати отримуються перетином їх списків, а рядок
+ * перевіряється лише для кандидатів. Коротший запит сам є n-грамою, і його список одразу дає
+ * кандидатів. Поля та запит порівнюються як ключі {@link SearchKeys}, тож результат точно
+ * збігається з перевіркою {@code contains} над ключами полів, але не переглядає всі документи.
+ * Ключі полів обчислюються під час додавання документа; якщо передано вже нормалізовані ключі,
+ * індекс зберігає ті самі екземпляри рядків.
+ * <p>
+ * Документ містить кілька полів з фіксованими номерами; запит вказує, у яких полях шукати. Як і в
+ * {@link InvertedIndex}, списки зберігають порядкові номери документів, тож результати
+ * повертаються в порядку додавання. Клас потокобезпечний.
+ */
+public class TrigramIndex {
+
+    private static final int GRAM = 3;
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final IntHashMap<Document> documentsById = new IntHashMap<>();
+    private final IntHashMap<Document> documentsByOrdinal = new IntHashMap<>();
+    private int nextOrdinal;
+
+    /**
+     * Додає документ або замінює поля наявного документа.
+     *
+     * @param id     ідентифікатор документа.
+     * @param fields текстові поля або їх ключі пошуку в порядку номерів полів; значення null
+     *               вважається порожнім рядком.
+     */
+    public synchronized void put(int id, String... fields) {
+        Document document = documentsById.get(id);
+        if (document == null) {
+            document = new Document(id, nextOrdinal++);
+            documentsById.put(id, document);
+            documentsByOrdinal.put(document.ordinal, document);
+        } else {
+            unlink(document);
+        }
+        document.fields = new String[fields.length];
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i < fields.length; i++) {
+            String field = SearchKeys.normalize(fields[i]);
+            document.fields[i] = field;
+            collectGrams(field, grams);
+        }
+        document.grams = new long[grams.size()];
+        int count = 0;
+        for (long gram : grams) {
+            document.grams[count++] = gram;
+            postings.computeIfAbsent(gram, key -> new PostingList()).add(document.ordinal);
+        }
+    }
+
+    /**
+     * Видаляє документ з індексу.
+     *
+     * @param id ідентифікатор документа.
+     * @return true, якщо документ був в індексі.
+     */
+    public synchronized boolean remove(int id) {
+        Document document = documentsById.remove(id);
+        if (document == null) {
+            return false;
+        }
+        documentsByOrdinal.remove(document.ordinal);
+        unlink(document);
+        return true;
+    }
+
+    /**
+     * Шукає документи, ключ хоча б одного з вказаних полів яких містить ключ запиту як підрядок.
+     * Порожній запит відповідає всім документам.
+     *
+     * @param query  підрядок для пошуку.
+     * @param fields номери полів, у яких виконується пошук.
+     * @return ідентифікатори знайдених документів у порядку їх додавання.
+     */
+    public synchronized int[] search(String query, int... fields) {
+        String lowerQuery = SearchKeys.normalize(query);
+        int[] candidates;
+        int count;
+        if (lowerQuery.isEmpty()) {
+            candidates = new int[documentsByOrdinal.size()];
+            int[] next = {0};
+            documentsByOrdinal.forEach((ordinal, document) -> candidates[next[0]++] = ordinal);
+            count = candidates.length;
+        } else {
+            Set<Long> grams = new HashSet<>();
+            if (lowerQuery.length() < GRAM) {
+                grams.add(gram(lowerQuery, 0, lowerQuery.length()));
+            } else {
+                for (int i = 0; i + GRAM <= lowerQuery.length(); i++) {
+                    grams.add(gram(lowerQuery, i, GRAM));
+                }
+            }
+            List<PostingList> lists = new ArrayList<>(grams.size());
+            for (long gram : grams) {
+                PostingList list = postings.get(gram);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+            candidates = lists.get(0).toArray();
+            count = candidates.length;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                count = lists.get(i).retainAll(candidates, count);
+            }
+        }
+
+        int[] ids = new int[count];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            Document document = documentsByOrdinal.get(candidates[i]);
+            if (document.contains(lowerQuery, fields)) {
+                ids[found++] = document.id;
+            }
+        }
+        return found == ids.length ? ids : Arrays.copyOf(ids, found);
+    }
+
+    /**
+     * Додає до множини всі n-грами поля довжиною від одного до трьох символів.
+     *
+     * @param field ключ пошуку поля.
+     * @param grams множина n-грам.
+     */
+    private static void collectGrams(String field, Set<Long> grams) {
+        for (int start = 0; start < field.length(); start++) {
+            for (int length = 1; length <= GRAM && start + length <= field.length(); length++) {
+                grams.add(gram(field, start, length));
+            }
+        }
+    }
+
+    /**
+     * Кодує n-граму довжиною до трьох символів в одне число: довжина та коди символів.
+     *
+     * @param text   текст.
+     * @param start  початок n-грами.
+     * @param length довжина n-грами.
+     * @return код n-грами.
+     */
+    private static long gram(String text, int start, int length) {
+        long code = length;
+        for (int i = 0; i < length; i++) {
+            code = code << 16 | text.charAt(start + i);
+        }
+        return code;
+    }
+
+    /**
+     * Вилучає порядковий номер документа зі списків усіх його n-грам.
+     *
+     * @param document документ.
+     */
+    private void unlink(Document document) {
+        for (long gram : document.grams) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(document.ordinal) && list.size() == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Документ індексу.
+     */
+    private static final class Document {
+
+        private final int id;
+        private final int ordinal;
+        private String[] fields = new String[0];
+        private long[] grams = new long[0];
+
+        /**
+         * Конструктор документа.
+         *
+         * @param id      ідентифікатор документа.
+         * @param ordinal порядковий номер документа.
+         */
+        Document(int id, int ordinal) {
+            this.id = id;
+            this.ordinal = ordinal;
+        }
+
+        /**
+         * Перевіряє, чи містить хоча б одне з вказаних полів підрядок.
+         *
+         * @param lowerQuery ключ пошуку підрядка.
+         * @param numbers    номери полів.
+         * @return true, якщо підрядок знайдено.
+         */
+        boolean contains(String lowerQuery, int[] numbers) {
+            for (int number : numbers) {
+                if (number < fields.length && fields[number].contains(lowerQuery)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.agors.historiography.persistence.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Аналізатор українського тексту для повнотекстового пошуку. Розбиває текст на слова, зводить їх
+ * до єдиного регістру та відкидає поширені закінчення, тож різні відмінкові форми одного слова
+ * («замок», «замку», «замком») потрапляють до одного терміна індексу.
+ * <p>
+ * Текст спершу зводиться до ключа пошуку {@link SearchKeys} (форма NFC, нижній регістр), тож
+ * розкладені на базову літеру й діакритичний знак «й» та «ї» не розривають слово. Далі
+ * враховуються особливості української: апострофи вилучаються зі слова («пам'ятка» і «памʼятка»
+ * дають один термін), а «ґ» зводиться до «г», оскільки в запитах її часто замінюють.
+ * Стемінг легкий: відкидається одне найдовше відоме закінчення, якщо після цього залишається
+ * щонайменше {@link #MIN_STEM_LENGTH} символи, а випадні «о» та «е» в основах на
+ * «-ок» і «-ець» вилучаються.
+ */
+public final class UkrainianAnalyzer {
+
+    /**
+     * Найменша довжина основи слова після відкидання закінчення.
+     */
+    public static final int MIN_STEM_LENGTH = 3;
+
+    // Закінчення впорядковані від найдовших, тож відкидається найдовше з тих, що підходять.
+    private static final String[] ENDINGS = {
+        "ського", "ському", "ський", "ських", "ська", "ське",
+        "ами", "ями", "ові", "еві", "єві", "ому", "ого", "ими", "іми", "ськ",
+        "ій", "ої", "ою", "ею", "єю", "их", "іх", "ім", "им", "ах", "ях", "ам", "ям", "ий", "ів",
+        "їв", "ом", "ем",
+        "а", "я", "у", "ю", "і", "ї", "и", "е", "є", "о", "ь", "й"
+    };
+
+    private UkrainianAnalyzer() {
+    }
+
+    /**
+     * Зводить текст до єдиної форми без стемінгу: ключ пошуку без апострофів, «ґ» як «г».
+     *
+     * @param text текст.
+     * @return зведений текст або порожній рядок для null.
+     */
+    public static String fold(String text) {
+        String key = SearchKeys.normalize(text);
+        StringBuilder folded = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == SearchKeys.APOSTROPHE) {
+                continue;
+            }
+            folded.append(c == 'ґ' ? 'г' : c);
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Розбиває текст на терміни: зведені слова з відкинутими закінченнями. Повтори не
+     * вилучаються.
+     *
+     * @param text текст.
+     * @return список термінів у порядку слів у тексті.
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                terms.add(stem(folded.substring(start, i)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Відкидає закінчення зведеного слова і випадний голосний перед останнім приголосним
+     * основи.
+     *
+     * @param word зведене слово.
+     * @return основа слова.
+     */
+    public static String stem(String word) {
+        String stem = word;
+        for (String ending : ENDINGS) {
+            if (word.length() - ending.length() >= MIN_STEM_LENGTH && word.endsWith(ending)) {
+                stem = word.substring(0, word.length() - ending.length());
+                break;
+            }
+        }
+        // Випадний голосний: «замок» — «замку», «хлопець» — «хлопця».
+        if (stem.length() > MIN_STEM_LENGTH && (stem.endsWith("ок") || stem.endsWith("ец"))) {
+            stem = stem.substring(0, stem.length() - 2) + stem.charAt(stem.length() - 1);
+        }
+        return stem;
+    }
+}
@@ -0,0 +1,171 @@
+package com.agors.historiography.persistence.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Спільний засіб безпечного збереження файлів даних. Дані потоково записуються через буферизований
+ * {@link FileChannel} у тимчасовий файл поруч із цільовим, скидаються на диск (fsync) і лише після
+ * цього атомарно перейменовуються поверх цільового файлу, після чого на диск скидається й сам
+ * каталог, щоб перейменування пережило збій.
+ * <p>
+ * Кожен запис отримує власний тимчасовий файл з унікальною назвою, тож одночасні записи одного
+ * файлу не пошкоджують тимчасові файли один одного: цільовим стає файл того запису, що завершився
+ * останнім.
+ * <p>
+ * Таким чином читач або збій під час запису ніколи не бачать напівзаписаного файлу, а пікове
+ * споживання пам'яті не залежить від обсягу даних, оскільки JSON не збирається в рядок цілком.
+ * Якщо в {@link StorageConfig} увімкнено стиснення, вміст записується у форматі
+ * {@link BlockCompressedFile}.
+ */
+public final class AtomicFileWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private AtomicFileWriter() {
+    }
+
+    /**
+     * Дія, що записує вміст файлу через потоковий {@link JsonWriter}.
+     */
+    @FunctionalInterface
+    public interface JsonWriteAction {
+
+        /**
+         * Записує вміст документа.
+         *
+         * @param writer потоковий записувач JSON.
+         * @throws IOException якщо запис не вдався.
+         */
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * Потоково записує сутності у вигляді JSON-масиву та атомарно замінює цільовий файл.
+     *
+     * @param target      цільовий файл.
+     * @param gson        екземпляр Gson для серіалізації сутностей.
+     * @param entities    сутності для запису.
+     * @param elementType тип однієї сутності.
+     * @param <T>         тип сутності.
+     * @throws IOException якщо запис або перейменування не вдалися.
+     */
+    public static <T> void writeArray(Path target, Gson gson, Iterable<T> entities,
+        Type elementType) throws IOException {
+        writeJson(target, false, writer -> {
+            writer.beginArray();
+            for (T entity : entities) {
+                gson.toJson(entity, elementType, writer);
+            }
+            writer.endArray();
+        });
+    }
+
+    /**
+     * Потоково записує JSON-документ у тимчасовий файл, скидає його на диск та атомарно замінює ним
+     * цільовий файл.
+     *
+     * @param target цільовий файл.
+     * @param pretty true, якщо документ потрібно форматувати з відступами.
+     * @param action дія, що записує вміст документа.
+     * @throws IOException якщо запис або перейменування не вдалися.
+     */
+    public static void writeJson(Path target, boolean pretty, JsonWriteAction action)
+        throws IOException {
+        Path temp = createTemp(target);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel),
+                BUFFER_SIZE);
+            BlockCompressedFile.BlockOutputStream compressed = null;
+            if (StorageConfig.compressionEnabled()) {
+                compressed = BlockCompressedFile.newOutputStream(stream,
+                    StorageConfig.compressionBlockBytes());
+                stream = compressed;
+            }
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(stream,
+                StandardCharsets.UTF_8));
+            if (pretty && compressed == null) {
+                writer.setIndent("  ");
+            }
+            action.write(writer);
+            writer.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        replace(temp, target);
+    }
+
+    /**
+     * Створює порожній тимчасовий файл з унікальною назвою в каталозі цільового файлу.
+     *
+     * @param target цільовий файл.
+     * @return шлях до створеного тимчасового файлу.
+     * @throws IOException якщо файл не вдалося створити.
+     */
+    public static Path createTemp(Path target) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path directory = absolute.getParent();
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, absolute.getFileName() + ".", ".tmp");
+    }
+
+    /**
+     * Атомарно перейменовує тимчасовий файл поверх цільового і скидає на диск каталог, у якому
+     * відбулося перейменування. Якщо файлова система не підтримує атомарне перейменування,
+     * виконується звичайна заміна.
+     *
+     * @param temp   тимчасовий файл.
+     * @param target цільовий файл.
+     * @throws IOException якщо перейменування не вдалося.
+     */
+    public static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Скидає на диск запис каталогу, щоб створення чи перейменування файлу в ньому пережило збій.
+     * На платформах, де каталог не можна відкрити як канал (зокрема Windows), нічого не робить:
+     * там перейменування фіксується файловою системою.
+     *
+     * @param directory каталог.
+     * @throws IOException якщо скидання відкритого каталогу не вдалося.
+     */
+    public static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+}
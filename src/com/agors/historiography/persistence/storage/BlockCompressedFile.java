@@ -0,0 +1,514 @@
+package com.agors.historiography.persistence.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Блоковий стиснений формат файлів даних на основі {@code java.util.zip}. Вміст ділиться на блоки
+ * фіксованого розміру, кожен з яких стискається окремо, а наприкінці файлу записується індекс
+ * блоків.
+ * <p>
+ * Структура файлу:
+ * <ul>
+ *     <li>заголовок: сигнатура, версія формату та розмір блоку до стиснення;</li>
+ *     <li>стиснені блоки один за одним;</li>
+ *     <li>індекс: для кожного блоку — зміщення у файлі, довжина після та до стиснення;</li>
+ *     <li>хвіст: зміщення індексу, кількість блоків і сигнатура.</li>
+ * </ul>
+ * Незалежні блоки дозволяють під час завантаження розпаковувати кілька блоків паралельно, а під
+ * час точкового читання — розпаковувати лише блок, що містить потрібні байти. Формат файлу
+ * визначається за сигнатурою, тож звичайні JSON-файли читаються без попереднього перетворення.
+ */
+public final class BlockCompressedFile {
+
+    private static final int MAGIC = 0x48475A42; // "HGZB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final int TRAILER_BYTES = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BlockCompressedFile() {
+    }
+
+    /**
+     * Перевіряє, чи записано файл у блоковому стисненому форматі.
+     *
+     * @param file файл даних.
+     * @return true, якщо файл починається із сигнатури формату.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    public static boolean isCompressed(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_BYTES + TRAILER_BYTES) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            readFully(channel, magic, 0);
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Відкриває потік читання вмісту файлу. Стиснений файл розпаковується прозоро, причому
+     * кілька наступних блоків розпаковуються паралельно; звичайний файл читається як є.
+     *
+     * @param file файл даних.
+     * @return буферизований потік розпакованого вмісту.
+     * @throws IOException якщо файл не вдалося відкрити.
+     */
+    public static InputStream newInputStream(Path file) throws IOException {
+        if (isCompressed(file)) {
+            return new BlockInputStream(file);
+        }
+        return new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+    }
+
+    /**
+     * Створює потік запису у блоковому стисненому форматі поверх вихідного потоку. Після запису
+     * всього вмісту потрібно викликати {@link BlockOutputStream#finish()}.
+     *
+     * @param out       вихідний потік файлу.
+     * @param blockSize розмір блоку до стиснення в байтах.
+     * @return потік стисненого запису.
+     * @throws IOException якщо не вдалося записати заголовок.
+     */
+    public static BlockOutputStream newOutputStream(OutputStream out, int blockSize)
+        throws IOException {
+        return new BlockOutputStream(out, blockSize);
+    }
+
+    /**
+     * Зчитує діапазон байтів розпакованого вмісту. Для стисненого файлу розпаковуються лише
+     * блоки, що перетинаються з діапазоном.
+     *
+     * @param file   файл даних.
+     * @param offset зміщення першого байта у розпакованому вмісті.
+     * @param length кількість байтів.
+     * @return прочитані байти.
+     * @throws IOException якщо файл не вдалося прочитати або діапазон виходить за межі вмісту.
+     */
+    public static byte[] readRange(Path file, long offset, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] result = new byte[length];
+            if (!isCompressed(channel)) {
+                readFully(channel, ByteBuffer.wrap(result), offset);
+                return result;
+            }
+            BlockIndex index = BlockIndex.read(channel);
+            int copied = 0;
+            for (int block = index.blockAt(offset); copied < length; block++) {
+                if (block >= index.count()) {
+                    throw new IOException("Діапазон виходить за межі файлу: " + file);
+                }
+                byte[] data = index.inflate(channel, block);
+                int from = (int) (offset + copied - index.uncompressedStart[block]);
+                int chunk = Math.min(length - copied, data.length - from);
+                System.arraycopy(data, from, result, copied, chunk);
+                copied += chunk;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Перевіряє сигнатуру відкритого файлу.
+     *
+     * @param channel канал файлу.
+     * @return true, якщо файл стиснений.
+     * @throws IOException якщо читання не вдалося.
+     */
+    private static boolean isCompressed(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_BYTES + TRAILER_BYTES) {
+            return false;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        readFully(channel, magic, 0);
+        return magic.getInt(0) == MAGIC;
+    }
+
+    /**
+     * Зчитує з каналу рівно стільки байтів, скільки вміщує буфер.
+     *
+     * @param channel  канал файлу.
+     * @param buffer   буфер призначення.
+     * @param position позиція у файлі.
+     * @throws IOException якщо файл закінчився раніше або читання не вдалося.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, current);
+            if (read < 0) {
+                throw new IOException("Несподіваний кінець файлу");
+            }
+            current += read;
+        }
+    }
+
+    /**
+     * Потік запису у блоковому стисненому форматі.
+     */
+    public static final class BlockOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte[] block;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final byte[] compressBuffer = new byte[BUFFER_SIZE];
+        private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        private final DataOutputStream index = new DataOutputStream(indexBytes);
+        private long written = HEADER_BYTES;
+        private int filled;
+        private int blockCount;
+        private boolean finished;
+
+        /**
+         * Конструктор потоку, що одразу записує заголовок.
+         *
+         * @param out       вихідний потік файлу.
+         * @param blockSize розмір блоку до стиснення в байтах.
+         * @throws IOException якщо не вдалося записати заголовок.
+         */
+        private BlockOutputStream(OutputStream out, int blockSize) throws IOException {
+            this.out = new DataOutputStream(out);
+            block = new byte[Math.max(1024, blockSize)];
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+            this.out.writeInt(block.length);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (filled == block.length) {
+                writeBlock();
+            }
+            block[filled++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (filled == block.length) {
+                    writeBlock();
+                }
+                int chunk = Math.min(length, block.length - filled);
+                System.arraycopy(bytes, offset, block, filled, chunk);
+                filled += chunk;
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        /**
+         * Не записує неповний блок: вміст потрапляє у файл блоками під час запису та у
+         * {@link #finish()}.
+         */
+        @Override
+        public void flush() {
+        }
+
+        /**
+         * Записує останній блок, індекс і хвіст файлу та скидає вихідний потік.
+         *
+         * @throws IOException якщо запис не вдався.
+         */
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            if (filled > 0) {
+                writeBlock();
+            }
+            long indexPosition = written;
+            index.flush();
+            indexBytes.writeTo(out);
+            out.writeLong(indexPosition);
+            out.writeInt(blockCount);
+            out.writeInt(MAGIC);
+            out.flush();
+            deflater.end();
+            finished = true;
+        }
+
+        /**
+         * Завершує запис і закриває вихідний потік.
+         *
+         * @throws IOException якщо запис не вдався.
+         */
+        @Override
+        public void close() throws IOException {
+            finish();
+            out.close();
+        }
+
+        /**
+         * Стискає заповнену частину буфера як один блок і додає запис до індексу.
+         *
+         * @throws IOException якщо запис не вдався.
+         */
+        private void writeBlock() throws IOException {
+            long position = written;
+            deflater.reset();
+            deflater.setInput(block, 0, filled);
+            deflater.finish();
+            int compressed = 0;
+            while (!deflater.finished()) {
+                int produced = deflater.deflate(compressBuffer);
+                out.write(compressBuffer, 0, produced);
+                compressed += produced;
+            }
+            written += compressed;
+            index.writeLong(position);
+            index.writeInt(compressed);
+            index.writeInt(filled);
+            blockCount++;
+            filled = 0;
+        }
+    }
+
+    /**
+     * Індекс блоків стисненого файлу.
+     */
+    private static final class BlockIndex {
+
+        private final long[] compressedStart;
+        private final int[] compressedLength;
+        private final int[] uncompressedLength;
+        private final long[] uncompressedStart;
+
+        /**
+         * Конструктор індексу.
+         *
+         * @param count кількість блоків.
+         */
+        private BlockIndex(int count) {
+            compressedStart = new long[count];
+            compressedLength = new int[count];
+            uncompressedLength = new int[count];
+            uncompressedStart = new long[count + 1];
+        }
+
+        /**
+         * Зчитує індекс з хвоста файлу.
+         *
+         * @param channel канал файлу.
+         * @return індекс блоків.
+         * @throws IOException якщо хвіст або індекс пошкоджені.
+         */
+        static BlockIndex read(FileChannel channel) throws IOException {
+            long size = channel.size();
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            readFully(channel, trailer, size - TRAILER_BYTES);
+            long indexPosition = trailer.getLong(0);
+            int count = trailer.getInt(8);
+            if (trailer.getInt(12) != MAGIC || count < 0
+                || indexPosition + (long) count * INDEX_ENTRY_BYTES != size - TRAILER_BYTES) {
+                throw new IOException("Пошкоджений індекс стисненого файлу");
+            }
+
+            BlockIndex index = new BlockIndex(count);
+            ByteBuffer entries = ByteBuffer.allocate(count * INDEX_ENTRY_BYTES);
+            readFully(channel, entries, indexPosition);
+            entries.flip();
+            for (int i = 0; i < count; i++) {
+                index.compressedStart[i] = entries.getLong();
+                index.compressedLength[i] = entries.getInt();
+                index.uncompressedLength[i] = entries.getInt();
+                index.uncompressedStart[i + 1] =
+                    index.uncompressedStart[i] + index.uncompressedLength[i];
+            }
+            return index;
+        }
+
+        /**
+         * Повертає кількість блоків.
+         *
+         * @return кількість блоків.
+         */
+        int count() {
+            return compressedStart.length;
+        }
+
+        /**
+         * Повертає номер блоку, що містить байт із вказаним зміщенням розпакованого вмісту.
+         *
+         * @param offset зміщення у розпакованому вмісті.
+         * @return номер блоку.
+         */
+        int blockAt(long offset) {
+            int low = 0;
+            int high = count() - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (uncompressedStart[middle] <= offset) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Зчитує та розпаковує один блок. Позиційне читання каналу дозволяє розпаковувати кілька
+         * блоків одночасно.
+         *
+         * @param channel канал файлу.
+         * @param block   номер блоку.
+         * @return розпакований вміст блоку.
+         * @throws IOException якщо блок пошкоджений.
+         */
+        byte[] inflate(FileChannel channel, int block) throws IOException {
+            ByteBuffer compressed = ByteBuffer.allocate(compressedLength[block]);
+            readFully(channel, compressed, compressedStart[block]);
+            byte[] data = new byte[uncompressedLength[block]];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array());
+                int total = 0;
+                while (total < data.length && !inflater.finished()) {
+                    int produced = inflater.inflate(data, total, data.length - total);
+                    if (produced == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    total += produced;
+                }
+                if (total != data.length) {
+                    throw new IOException("Пошкоджений блок стисненого файлу: " + block);
+                }
+                return data;
+            } catch (DataFormatException e) {
+                throw new IOException("Пошкоджений блок стисненого файлу: " + block, e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Потік послідовного читання стисненого файлу. Наперед розпаковує у спільному пулі потоків
+     * кілька наступних блоків, тож розпакування блоків відбувається паралельно з розбором уже
+     * розпакованих.
+     */
+    private static final class BlockInputStream extends InputStream {
+
+        private static final int READ_AHEAD = Math.max(2,
+            Runtime.getRuntime().availableProcessors());
+
+        private final FileChannel channel;
+        private final BlockIndex index;
+        private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+        private int nextBlock;
+        private byte[] current = new byte[0];
+        private int position;
+
+        /**
+         * Конструктор потоку.
+         *
+         * @param file стиснений файл.
+         * @throws IOException якщо файл не вдалося відкрити або його індекс пошкоджений.
+         */
+        BlockInputStream(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                index = BlockIndex.read(channel);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            fillReadAhead();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureData()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!ensureData()) {
+                return -1;
+            }
+            int chunk = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, chunk);
+            position += chunk;
+            return chunk;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (CompletableFuture<byte[]> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+            channel.close();
+        }
+
+        /**
+         * Переходить до наступного розпакованого блоку, якщо поточний вичерпано.
+         *
+         * @return true, якщо є дані для читання.
+         * @throws IOException якщо блок не вдалося розпакувати.
+         */
+        private boolean ensureData() throws IOException {
+            while (position == current.length) {
+                CompletableFuture<byte[]> next = pending.poll();
+                if (next == null) {
+                    return false;
+                }
+                try {
+                    current = next.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof UncheckedIOException io) {
+                        throw io.getCause();
+                    }
+                    throw new IOException(e.getCause());
+                }
+                position = 0;
+                fillReadAhead();
+            }
+            return true;
+        }
+
+        /**
+         * Ставить у чергу розпакування блоки, доки їх кількість не досягне вікна попереднього
+         * читання.
+         */
+        private void fillReadAhead() {
+            while (pending.size() < READ_AHEAD && nextBlock < index.count()) {
+                int block = nextBlock++;
+                pending.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return index.inflate(channel, block);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.agors.historiography.persistence.storage;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * Бінарний версійований стовпцевий формат каталогу історичних місць, призначений лише для
+ * читання. Файл відкривається через {@link FileChannel#map}, тож дані не розбираються під час
+ * запуску: кожне поле декодується з відображеної пам'яті лише під час звернення до нього.
+ * <p>
+ * Структура файлу:
+ * <ul>
+ *     <li>заголовок: сигнатура, версія формату, кількість записів і кількість рядкових
+ *     стовпців;</li>
+ *     <li>таблиця стовпців: для кожного рядкового стовпця — позиція стовпця зміщень, позиція та
+ *     довжина купи рядків;</li>
+ *     <li>стовпець ідентифікаторів фіксованої ширини ({@code int} на запис);</li>
+ *     <li>для кожного рядкового стовпця — зміщення фіксованої ширини ({@code long}, на одне більше
+ *     за кількість записів) та купа рядків у кодуванні UTF-8.</li>
+ * </ul>
+ * Рядкові стовпці йдуть у порядку: назва, опис, локація, категорія.
+ * <p>
+ * Як {@link StorageEngine} каталог доступний лише для читання: зміни відхиляються з
+ * {@link UnsupportedOperationException}.
+ */
+public final class ColumnarPlaceCatalog implements StorageEngine<Integer, HistoricalPlace> {
+
+    /**
+     * Рядкові стовпці каталогу.
+     */
+    public enum Column {
+        NAME(HistoricalPlace::getName),
+        DESCRIPTION(HistoricalPlace::getDescription),
+        LOCATION(HistoricalPlace::getLocation),
+        CATEGORY(HistoricalPlace::getCategory);
+
+        private final Function<HistoricalPlace, String> getter;
+
+        Column(Function<HistoricalPlace, String> getter) {
+            this.getter = getter;
+        }
+    }
+
+    private static final int MAGIC = 0x48475043; // "HGPC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int COLUMN_ENTRY_BYTES = 24;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final long idsPosition;
+    private final long[] offsetsPositions = new long[Column.values().length];
+    private final long[] heapPositions = new long[Column.values().length];
+    private final IntHashMap<Integer> indexById;
+
+    /**
+     * Конструктор, що перевіряє заголовок відображеного файлу та зчитує таблицю стовпців.
+     *
+     * @param buffer відображений у пам'ять вміст файлу.
+     * @throws IOException якщо файл має невідому сигнатуру або версію.
+     */
+    private ColumnarPlaceCatalog(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Файл не є бінарним каталогом історичних місць");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Непідтримувана версія бінарного каталогу: " + version);
+        }
+        count = buffer.getInt(8);
+        int columns = buffer.getInt(12);
+        if (columns != Column.values().length) {
+            throw new IOException("Неочікувана кількість стовпців каталогу: " + columns);
+        }
+        for (int c = 0; c < columns; c++) {
+            int entry = HEADER_BYTES + c * COLUMN_ENTRY_BYTES;
+            offsetsPositions[c] = buffer.getLong(entry);
+            heapPositions[c] = buffer.getLong(entry + 8);
+        }
+        idsPosition = HEADER_BYTES + (long) columns * COLUMN_ENTRY_BYTES;
+        indexById = new IntHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            indexById.put(id(i), i);
+        }
+    }
+
+    /**
+     * Відкриває бінарний каталог, відображаючи файл у пам'ять у режимі лише для читання.
+     *
+     * @param file файл каталогу.
+     * @return відкритий каталог.
+     * @throws IOException якщо файл не вдалося відкрити або він має некоректний формат.
+     */
+    public static ColumnarPlaceCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Бінарний каталог перевищує 2 ГБ: " + file);
+            }
+            return new ColumnarPlaceCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Перетворює JSON-файл каталогу на бінарний стовпцевий формат.
+     *
+     * @param jsonFile   вихідний JSON-файл з масивом історичних місць.
+     * @param binaryFile файл, у який буде записано бінарний каталог.
+     * @throws IOException якщо читання або запис не вдалися.
+     */
+    public static void convert(Path jsonFile, Path binaryFile) throws IOException {
+        List<HistoricalPlace> places = StreamingJsonLoader.loadArray(jsonFile, JsonCodec.gson(),
+            HistoricalPlace.class, 256, StreamingJsonLoader.NO_LIMIT,
+            StreamingJsonLoader.ProgressListener.NONE);
+        write(binaryFile, places);
+    }
+
+    /**
+     * Записує історичні місця у бінарний стовпцевий формат. Файл спочатку записується поруч як
+     * тимчасовий з унікальною назвою ({@link AtomicFileWriter#createTemp(Path)}), скидається на
+     * диск і лише потім атомарно замінює цільовий.
+     *
+     * @param target цільовий файл.
+     * @param places історичні місця для запису.
+     * @throws IOException якщо запис не вдався.
+     */
+    public static void write(Path target, List<HistoricalPlace> places) throws IOException {
+        int count = places.size();
+        int columns = Column.values().length;
+        long idsPosition = HEADER_BYTES + (long) columns * COLUMN_ENTRY_BYTES;
+        long position = idsPosition + 4L * count;
+
+        Path temp = AtomicFileWriter.createTemp(target);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate((int) idsPosition);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(columns);
+
+            ByteBuffer ids = ByteBuffer.allocate(4 * count);
+            for (HistoricalPlace place : places) {
+                ids.putInt(place.getId());
+            }
+            writeFully(channel, ids.flip(), idsPosition);
+
+            for (Column column : Column.values()) {
+                long offsetsPosition = position;
+                long heapPosition = offsetsPosition + 8L * (count + 1);
+                ByteBuffer offsets = ByteBuffer.allocate(8 * (count + 1));
+                ByteBuffer heap = ByteBuffer.allocate(BUFFER_SIZE);
+                long heapLength = 0;
+                long written = heapPosition;
+
+                for (HistoricalPlace place : places) {
+                    offsets.putLong(heapLength);
+                    String value = column.getter.apply(place);
+                    byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > heap.remaining()) {
+                        written += writeFully(channel, heap.flip(), written);
+                        heap.clear();
+                    }
+                    if (bytes.length > heap.capacity()) {
+                        written += writeFully(channel, ByteBuffer.wrap(bytes), written);
+                    } else {
+                        heap.put(bytes);
+                    }
+                    heapLength += bytes.length;
+                }
+                offsets.putLong(heapLength);
+                writeFully(channel, heap.flip(), written);
+                writeFully(channel, offsets.flip(), offsetsPosition);
+
+                header.putLong(offsetsPosition).putLong(heapPosition).putLong(heapLength);
+                position = heapPosition + heapLength;
+            }
+
+            writeFully(channel, header.flip(), 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        AtomicFileWriter.replace(temp, target);
+    }
+
+    /**
+     * Повертає кількість записів у каталозі.
+     *
+     * @return кількість історичних місць.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Повертає ідентифікатор запису.
+     *
+     * @param index порядковий номер запису.
+     * @return ідентифікатор історичного місця.
+     */
+    public int id(int index) {
+        checkIndex(index);
+        return buffer.getInt((int) (idsPosition + 4L * index));
+    }
+
+    /**
+     * Декодує значення рядкового стовпця для запису.
+     *
+     * @param column стовпець.
+     * @param index  порядковий номер запису.
+     * @return значення поля.
+     */
+    public String value(Column column, int index) {
+        checkIndex(index);
+        int c = column.ordinal();
+        int offsetEntry = (int) (offsetsPositions[c] + 8L * index);
+        long start = buffer.getLong(offsetEntry);
+        long end = buffer.getLong(offsetEntry + 8);
+        byte[] bytes = new byte[(int) (end - start)];
+        buffer.get((int) (heapPositions[c] + start), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Створює сутність історичного місця із записом каталогу.
+     *
+     * @param index порядковий номер запису.
+     * @return історичне місце.
+     */
+    public HistoricalPlace record(int index) {
+        return new HistoricalPlace(id(index), value(Column.NAME, index),
+            value(Column.DESCRIPTION, index), value(Column.LOCATION, index),
+            value(Column.CATEGORY, index));
+    }
+
+    /**
+     * Каталог відображається в пам'ять під час {@link #open(Path)}, тож окреме завантаження не
+     * потрібне.
+     */
+    @Override
+    public void load() {
+    }
+
+    /**
+     * Повертає незмінне подання каталогу у вигляді списку.
+     *
+     * @return список історичних місць лише для читання.
+     */
+    @Override
+    public List<HistoricalPlace> scan() {
+        return asList();
+    }
+
+    /**
+     * Шукає історичне місце за ідентифікатором через індекс, побудований під час відкриття
+     * каталогу зі стовпця ідентифікаторів.
+     *
+     * @param id ідентифікатор історичного місця.
+     * @return історичне місце або null, якщо його немає.
+     */
+    @Override
+    public HistoricalPlace get(Integer id) {
+        Integer index = indexById.get(id);
+        return index == null ? null : record(index);
+    }
+
+    /**
+     * Каталог доступний лише для читання.
+     *
+     * @param value історичне місце.
+     * @throws UnsupportedOperationException завжди.
+     */
+    @Override
+    public void put(HistoricalPlace value) {
+        throw new UnsupportedOperationException("Бінарний каталог доступний лише для читання");
+    }
+
+    /**
+     * Каталог доступний лише для читання.
+     *
+     * @param id ідентифікатор історичного місця.
+     * @return ніколи не повертає значення.
+     * @throws UnsupportedOperationException завжди.
+     */
+    @Override
+    public boolean delete(Integer id) {
+        throw new UnsupportedOperationException("Бінарний каталог доступний лише для читання");
+    }
+
+    /**
+     * Каталог не має незбережених змін.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Відображення звільняється збирачем сміття, тож окреме закриття не потрібне.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Повертає незмінне подання каталогу у вигляді списку. Елементи створюються з відображеної
+     * пам'яті під час звернення до них.
+     *
+     * @return список історичних місць лише для читання.
+     */
+    public List<HistoricalPlace> asList() {
+        return new PlaceListView();
+    }
+
+    /**
+     * Перевіряє, що порядковий номер запису знаходиться в межах каталогу.
+     *
+     * @param index порядковий номер запису.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+        }
+    }
+
+    /**
+     * Записує весь вміст буфера у канал за вказаною позицією.
+     *
+     * @param channel  канал файлу.
+     * @param source   буфер з даними.
+     * @param position позиція у файлі.
+     * @return кількість записаних байтів.
+     * @throws IOException якщо запис не вдався.
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer source, long position)
+        throws IOException {
+        int total = source.remaining();
+        long current = position;
+        while (source.hasRemaining()) {
+            current += channel.write(source, current);
+        }
+        return total;
+    }
+
+    /**
+     * Подання каталогу у вигляді списку з довільним доступом.
+     */
+    private final class PlaceListView extends AbstractList<HistoricalPlace> implements
+        RandomAccess {
+
+        @Override
+        public HistoricalPlace get(int index) {
+            return ColumnarPlaceCatalog.this.record(index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.agors.historiography.persistence.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Блокування файлу даних між процесами зі штампом версії. Кілька екземплярів застосунку можуть
+ * працювати з одним каталогом даних: читачі беруть спільне блокування, а записувач — виключне,
+ * тож запис файлу ніколи не перетинається з читанням чи іншим записом того самого файлу в іншому
+ * процесі. Блокування береться окремо для кожного файлу, а не для всього каталогу.
+ * <p>
+ * Блокування тримається на супровідному файлі {@code <file>.lock}, оскільки сам файл даних
+ * атомарно замінюється під час запису. У тому самому файлі зберігається штамп версії —
+ * лічильник, який записувач збільшує після кожного запису. Рушій запам'ятовує версію, яку він
+ * прочитав, і під час збереження порівнює її з поточною: розбіжність означає, що файл тим часом
+ * змінив інший процес, і рушій має об'єднати свої зміни з новим вмістом (оптимістичне
+ * блокування).
+ * <p>
+ * Блокування файлової системи належать усьому процесу, тому всередині JVM потоки, що працюють з
+ * одним файлом, додатково впорядковуються через {@link ReentrantLock}. Повторне блокування в тому
+ * самому потоці дозволене, як і спільне всередині виключного. Виключне блокування всередині
+ * спільного заборонене: підвищення довелося б виконувати зняттям і повторним взяттям блокування,
+ * і між ними інший процес міг би записати файл. Тож операція «прочитати, об'єднати, записати»
+ * має одразу брати виключне блокування.
+ */
+public final class DataFileLock implements AutoCloseable {
+
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final Map<Path, Holder> HOLDERS = new HashMap<>();
+
+    private final Holder holder;
+    private boolean closed;
+
+    /**
+     * Конструктор блокування. Викликається після того, як блокування взято.
+     *
+     * @param holder стан блокування файлу.
+     */
+    private DataFileLock(Holder holder) {
+        this.holder = holder;
+    }
+
+    /**
+     * Бере спільне блокування файлу для читання.
+     *
+     * @param file файл даних.
+     * @return взяте блокування, яке потрібно закрити після читання.
+     * @throws IOException якщо файл блокування не вдалося відкрити або заблокувати.
+     */
+    public static DataFileLock shared(Path file) throws IOException {
+        return acquire(file, true);
+    }
+
+    /**
+     * Бере виключне блокування файлу для запису. Потік, що вже тримає спільне блокування цього
+     * файлу, не може взяти виключне.
+     *
+     * @param file файл даних.
+     * @return взяте блокування, яке потрібно закрити після запису.
+     * @throws IOException           якщо файл блокування не вдалося відкрити або заблокувати.
+     * @throws IllegalStateException якщо потік уже тримає спільне блокування файлу.
+     */
+    public static DataFileLock exclusive(Path file) throws IOException {
+        return acquire(file, false);
+    }
+
+    /**
+     * Повертає поточний штамп версії файлу.
+     *
+     * @return версія файлу; 0, якщо файл ще жодного разу не записувався з блокуванням.
+     * @throws IOException якщо штамп не вдалося прочитати.
+     */
+    public long version() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (holder.channel.read(buffer, buffer.position()) < 0) {
+                return 0;
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    /**
+     * Збільшує штамп версії файлу після запису. Потребує виключного блокування.
+     *
+     * @return нова версія файлу.
+     * @throws IOException якщо штамп не вдалося записати.
+     */
+    public long bumpVersion() throws IOException {
+        if (holder.shared) {
+            throw new IllegalStateException(
+                "Штамп версії змінюється лише під виключним блокуванням");
+        }
+        long next = version() + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, next);
+        while (buffer.hasRemaining()) {
+            holder.channel.write(buffer, buffer.position());
+        }
+        return next;
+    }
+
+    /**
+     * Знімає блокування. Блокування файлової системи знімається, коли потік закриває останнє з
+     * вкладених блокувань файлу.
+     *
+     * @throws IOException якщо блокування не вдалося зняти.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (--holder.holds == 0 && holder.lock != null) {
+                holder.lock.release();
+                holder.lock = null;
+            }
+        } finally {
+            holder.threadLock.unlock();
+        }
+    }
+
+    /**
+     * Бере блокування файлу, за потреби відкриваючи файл блокування.
+     *
+     * @param file   файл даних.
+     * @param shared true для спільного блокування, false для виключного.
+     * @return взяте блокування.
+     * @throws IOException           якщо файл блокування не вдалося відкрити або заблокувати.
+     * @throws IllegalStateException якщо потік тримає спільне блокування і просить виключне.
+     */
+    private static DataFileLock acquire(Path file, boolean shared) throws IOException {
+        Path target = file.toAbsolutePath().normalize();
+        Holder holder;
+        synchronized (HOLDERS) {
+            holder = HOLDERS.computeIfAbsent(target, key -> new Holder());
+        }
+        holder.threadLock.lock();
+        try {
+            if (holder.channel == null) {
+                Files.createDirectories(target.getParent());
+                holder.channel = FileChannel.open(
+                    target.resolveSibling(target.getFileName() + LOCK_SUFFIX),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            if (holder.lock == null) {
+                holder.lock = holder.channel.lock(0, Long.MAX_VALUE, shared);
+                holder.shared = shared;
+            } else if (holder.shared && !shared) {
+                throw new IllegalStateException(
+                    "Виключне блокування потрібно брати до спільного: " + target);
+            }
+            holder.holds++;
+            return new DataFileLock(holder);
+        } catch (IOException | RuntimeException e) {
+            holder.threadLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Стан блокування одного файлу в межах JVM. Файл блокування залишається відкритим до
+     * завершення роботи, щоб повторні блокування не відкривали його знову.
+     */
+    private static final class Holder {
+
+        private final ReentrantLock threadLock = new ReentrantLock();
+        private FileChannel channel;
+        private FileLock lock;
+        private boolean shared;
+        private int holds;
+    }
+}
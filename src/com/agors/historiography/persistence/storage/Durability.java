@@ -0,0 +1,45 @@
+package com.agors.historiography.persistence.storage;
+
+/**
+ * Режим довговічності записів журналу. Визначає, коли дані, дописані у файл, примусово
+ * скидаються на диск.
+ */
+public enum Durability {
+
+    /**
+     * Примусове скидання на диск (fsync) після кожного запису. Найнадійніший і найповільніший
+     * режим.
+     */
+    SYNC,
+
+    /**
+     * Пакетне скидання на диск: записи накопичуються та скидаються разом через фіксований
+     * інтервал часу.
+     */
+    BATCHED,
+
+    /**
+     * Записи залишаються в буфері операційної системи, яка сама вирішує, коли скинути їх на диск.
+     */
+    OS_BUFFERED;
+
+    /**
+     * Перетворює текстове значення з конфігурації на режим довговічності. Регістр літер не
+     * враховується.
+     *
+     * @param value        текстове значення режиму.
+     * @param defaultValue режим, що повертається, якщо значення порожнє або невідоме.
+     * @return режим довговічності.
+     */
+    public static Durability parse(String value, Durability defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        for (Durability durability : values()) {
+            if (durability.name().equalsIgnoreCase(value.trim())) {
+                return durability;
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,122 @@
+package com.agors.historiography.persistence.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Рушій зберігання, що тримає сутності лише в пам'яті у порядку їх додавання. Використовується в
+ * тестах і вимірюваннях продуктивності, а також як основа для файлових рушіїв.
+ *
+ * @param <K> тип ключа сутності.
+ * @param <V> тип сутності.
+ */
+public class InMemoryStorageEngine<K, V> implements StorageEngine<K, V> {
+
+    private final Function<V, K> keyOf;
+    private final Map<K, V> entries = new LinkedHashMap<>();
+
+    /**
+     * Конструктор рушія.
+     *
+     * @param keyOf функція, що повертає ключ сутності.
+     */
+    public InMemoryStorageEngine(Function<V, K> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    @Override
+    public void load() throws IOException {
+    }
+
+    @Override
+    public synchronized List<V> scan() {
+        return new ArrayList<>(entries.values());
+    }
+
+    @Override
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public void put(V value) throws IOException {
+        K key = keyOf.apply(value);
+        synchronized (this) {
+            replaced(key, entries.put(key, value));
+        }
+        changed(key);
+    }
+
+    @Override
+    public boolean delete(K key) throws IOException {
+        boolean removed;
+        synchronized (this) {
+            V previous = entries.remove(key);
+            removed = previous != null;
+            if (removed) {
+                replaced(key, previous);
+            }
+        }
+        if (removed) {
+            changed(key);
+        }
+        return removed;
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Додає прочитану зі сховища сутність без позначення змін. Використовується під час
+     * завантаження.
+     *
+     * @param value прочитана сутність.
+     */
+    protected synchronized void putLoaded(V value) {
+        entries.put(keyOf.apply(value), value);
+    }
+
+    /**
+     * Видаляє сутність без позначення змін. Використовується під час повторного завантаження.
+     *
+     * @param key ключ сутності.
+     */
+    protected synchronized void removeLoaded(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Видаляє всі сутності без позначення змін перед повторним завантаженням.
+     */
+    protected synchronized void clearLoaded() {
+        entries.clear();
+    }
+
+    /**
+     * Викликається під блокуванням рушія одразу після кожної зміни з попереднім значенням ключа.
+     * Файлові рушії запам'ятовують тут значення, яке було у файлі до першої незбереженої зміни.
+     *
+     * @param key      ключ доданої, оновленої або видаленої сутності.
+     * @param previous попереднє значення або null, якщо сутності не було.
+     */
+    protected void replaced(K key, V previous) {
+    }
+
+    /**
+     * Викликається після кожної зміни поза блокуванням рушія. Файлові рушії планують тут запис.
+     *
+     * @param key ключ доданої, оновленої або видаленої сутності.
+     */
+    protected void changed(K key) {
+    }
+}
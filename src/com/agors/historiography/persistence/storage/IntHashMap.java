@@ -0,0 +1,313 @@
+package com.agors.historiography.persistence.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Хеш-таблиця з примітивними ключами {@code int}, що зберігає порядок додавання. Використовується
+ * як первинний індекс сутностей за ідентифікатором замість {@code HashMap<Integer, V>}: ключі не
+ * упаковуються в {@link Integer}, а пошук, додавання та видалення виконуються за O(1).
+ * <p>
+ * Записи зберігаються в щільних масивах у порядку додавання, а окрема таблиця з відкритою
+ * адресацією (лінійне зондування) зіставляє ключ з позицією запису. Видалений запис лише
+ * позначається, а масиви ущільнюються під час чергового розширення, тож обхід {@link #values()}
+ * завжди повертає записи в порядку додавання. Оновлення наявного ключа не змінює його позиції.
+ * Значення можуть бути null. Клас не потокобезпечний.
+ *
+ * @param <V> тип значення.
+ */
+public final class IntHashMap<V> {
+
+    private static final int FREE = -1;
+    private static final int REMOVED = -2;
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] slots;
+    private int[] keys;
+    private Object[] values;
+    private boolean[] live;
+    private int used;
+    private int size;
+
+    /**
+     * Конструктор порожньої таблиці.
+     */
+    public IntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Конструктор порожньої таблиці з початковою місткістю.
+     *
+     * @param expectedSize очікувана кількість записів.
+     */
+    public IntHashMap(int expectedSize) {
+        allocate(Math.max(MIN_CAPACITY, expectedSize));
+    }
+
+    /**
+     * Функція обходу записів таблиці.
+     *
+     * @param <V> тип значення.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        /**
+         * Обробляє один запис.
+         *
+         * @param key   ключ запису.
+         * @param value значення запису.
+         */
+        void accept(int key, V value);
+    }
+
+    /**
+     * Повертає значення за ключем.
+     *
+     * @param key ключ.
+     * @return значення або null, якщо ключа немає.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slots[slot]];
+    }
+
+    /**
+     * Перевіряє наявність ключа.
+     *
+     * @param key ключ.
+     * @return true, якщо ключ є в таблиці.
+     */
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Додає запис або замінює значення наявного ключа, зберігаючи його позицію.
+     *
+     * @param key   ключ.
+     * @param value значення.
+     * @return попереднє значення або null, якщо ключа не було.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int entry = slots[slot];
+            V previous = (V) values[entry];
+            values[entry] = value;
+            return previous;
+        }
+        if (used == keys.length) {
+            rebuild(size >= keys.length / 2 ? keys.length * 2 : keys.length);
+        }
+        int entry = used++;
+        keys[entry] = key;
+        values[entry] = value;
+        live[entry] = true;
+        insertSlot(key, entry);
+        size++;
+        return null;
+    }
+
+    /**
+     * Видаляє запис за ключем.
+     *
+     * @param key ключ.
+     * @return видалене значення або null, якщо ключа не було.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = slots[slot];
+        V previous = (V) values[entry];
+        slots[slot] = REMOVED;
+        values[entry] = null;
+        live[entry] = false;
+        size--;
+        return previous;
+    }
+
+    /**
+     * Повертає кількість записів.
+     *
+     * @return кількість записів.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Перевіряє, чи таблиця порожня.
+     *
+     * @return true, якщо записів немає.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Видаляє всі записи.
+     */
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        used = 0;
+        size = 0;
+    }
+
+    /**
+     * Повертає значення в порядку додавання.
+     *
+     * @return новий список значень.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (int i = 0; i < used; i++) {
+            if (live[i]) {
+                result.add((V) values[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Повертає частину значень у порядку додавання. Якщо в таблиці є видалені записи, вона
+     * спершу ущільнюється, тож час роботи без видалень пропорційний розміру частини.
+     *
+     * @param offset кількість значень, які потрібно пропустити.
+     * @param limit  максимальна кількість значень.
+     * @return новий список значень; порожній, якщо зсув за межами таблиці.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values(int offset, int limit) {
+        if (used != size) {
+            rebuild(keys.length);
+        }
+        int end = (int) Math.min(size, (long) offset + limit);
+        List<V> result = new ArrayList<>(Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            result.add((V) values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Повертає ключі в порядку додавання.
+     *
+     * @return новий масив ключів.
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < used; i++) {
+            if (live[i]) {
+                result[count++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Обходить записи в порядку додавання. Таблицю не можна змінювати під час обходу.
+     *
+     * @param consumer функція обходу.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int i = 0; i < used; i++) {
+            if (live[i]) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Шукає позицію ключа в таблиці адрес.
+     *
+     * @param key ключ.
+     * @return індекс у таблиці адрес або -1, якщо ключа немає.
+     */
+    private int findSlot(int key) {
+        int mask = slots.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == FREE) {
+                return -1;
+            }
+            if (entry >= 0 && keys[entry] == key) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Записує позицію запису в першу вільну або звільнену комірку таблиці адрес.
+     *
+     * @param key   ключ.
+     * @param entry позиція запису.
+     */
+    private void insertSlot(int key, int entry) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = entry;
+    }
+
+    /**
+     * Ущільнює записи, відкидаючи видалені, і перебудовує таблицю адрес.
+     *
+     * @param capacity нова місткість масивів записів.
+     */
+    private void rebuild(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldLive = live;
+        int oldUsed = used;
+        allocate(capacity);
+        used = 0;
+        for (int i = 0; i < oldUsed; i++) {
+            if (oldLive[i]) {
+                keys[used] = oldKeys[i];
+                values[used] = oldValues[i];
+                live[used] = true;
+                insertSlot(oldKeys[i], used);
+                used++;
+            }
+        }
+    }
+
+    /**
+     * Виділяє масиви записів і таблицю адрес. Таблиця адрес щонайменше вдвічі більша за масиви
+     * записів, тож заповненість, разом зі звільненими комірками, не перевищує половини.
+     *
+     * @param capacity місткість масивів записів.
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        live = new boolean[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(MIN_CAPACITY, capacity) - 1) << 2;
+        slots = new int[tableSize];
+        Arrays.fill(slots, FREE);
+    }
+
+    /**
+     * Перемішує біти ключа для рівномірного розподілу по таблиці адрес.
+     *
+     * @param key ключ.
+     * @return хеш ключа.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,202 @@
+package com.agors.historiography.persistence.storage;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import com.agors.historiography.domain.entity.Review;
+import com.agors.historiography.domain.entity.User;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Спільний кодек JSON для всіх репозиторіїв і рушіїв зберігання. Надає один екземпляр
+ * {@link Gson}, у якому зареєстровано написані вручну потокові {@link TypeAdapter} для доменних
+ * сутностей, тож читання і запис не використовують рефлексію, а кеш адаптерів Gson не
+ * втрачається між викликами. Екземпляр {@link Gson} безпечний для використання з кількох потоків.
+ * <p>
+ * Формат повністю сумісний з рефлексивним: ключі збігаються з назвами полів, поля зі значенням
+ * null не записуються, невідомі поля під час читання пропускаються, а відсутні отримують
+ * значення за замовчуванням.
+ */
+public final class JsonCodec {
+
+    private static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapter(HistoricalPlace.class, new HistoricalPlaceAdapter().nullSafe())
+        .registerTypeAdapter(Review.class, new ReviewAdapter().nullSafe())
+        .registerTypeAdapter(User.class, new UserAdapter().nullSafe())
+        .create();
+
+    private JsonCodec() {
+    }
+
+    /**
+     * Повертає спільний екземпляр Gson із зареєстрованими адаптерами сутностей.
+     *
+     * @return спільний екземпляр Gson.
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * Зчитує рядкове значення, допускаючи null.
+     *
+     * @param reader потоковий читач JSON.
+     * @return рядок або null.
+     * @throws IOException якщо значення не вдалося прочитати.
+     */
+    public static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Зчитує цілочисельне значення, допускаючи null.
+     *
+     * @param reader потоковий читач JSON.
+     * @return число або 0 для null.
+     * @throws IOException якщо значення не вдалося прочитати.
+     */
+    private static int nextIntOrZero(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextInt();
+    }
+
+    /**
+     * Записує рядкове поле, якщо його значення не null.
+     *
+     * @param writer потоковий записувач JSON.
+     * @param name   назва поля.
+     * @param value  значення поля.
+     * @throws IOException якщо запис не вдався.
+     */
+    private static void writeString(JsonWriter writer, String name, String value)
+        throws IOException {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    /**
+     * Адаптер історичного місця.
+     */
+    private static final class HistoricalPlaceAdapter extends TypeAdapter<HistoricalPlace> {
+
+        @Override
+        public void write(JsonWriter writer, HistoricalPlace place) throws IOException {
+            writer.beginObject();
+            writer.name("id").value(place.getId());
+            writeString(writer, "name", place.getName());
+            writeString(writer, "description", place.getDescription());
+            writeString(writer, "location", place.getLocation());
+            writeString(writer, "category", place.getCategory());
+            writer.endObject();
+        }
+
+        @Override
+        public HistoricalPlace read(JsonReader reader) throws IOException {
+            int id = 0;
+            String name = null;
+            String description = null;
+            String location = null;
+            String category = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = nextIntOrZero(reader);
+                    case "name" -> name = nextStringOrNull(reader);
+                    case "description" -> description = nextStringOrNull(reader);
+                    case "location" -> location = nextStringOrNull(reader);
+                    case "category" -> category = nextStringOrNull(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new HistoricalPlace(id, name, description, location, category);
+        }
+    }
+
+    /**
+     * Адаптер відгуку.
+     */
+    private static final class ReviewAdapter extends TypeAdapter<Review> {
+
+        @Override
+        public void write(JsonWriter writer, Review review) throws IOException {
+            writer.beginObject();
+            writer.name("id").value(review.getId());
+            writeString(writer, "placeName", review.getPlaceName());
+            writeString(writer, "text", review.getText());
+            writer.name("rating").value(review.getRating());
+            writeString(writer, "author", review.getAuthor());
+            writer.endObject();
+        }
+
+        @Override
+        public Review read(JsonReader reader) throws IOException {
+            int id = 0;
+            String placeName = null;
+            String text = null;
+            int rating = 0;
+            String author = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = nextIntOrZero(reader);
+                    case "placeName" -> placeName = nextStringOrNull(reader);
+                    case "text" -> text = nextStringOrNull(reader);
+                    case "rating" -> rating = nextIntOrZero(reader);
+                    case "author" -> author = nextStringOrNull(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new Review(id, placeName, text, rating, author);
+        }
+    }
+
+    /**
+     * Адаптер користувача.
+     */
+    private static final class UserAdapter extends TypeAdapter<User> {
+
+        @Override
+        public void write(JsonWriter writer, User user) throws IOException {
+            writer.beginObject();
+            writeString(writer, "username", user.getUsername());
+            writeString(writer, "email", user.getEmail());
+            writeString(writer, "password", user.getPassword());
+            writeString(writer, "role", user.getRole());
+            writer.endObject();
+        }
+
+        @Override
+        public User read(JsonReader reader) throws IOException {
+            String username = null;
+            String email = null;
+            String password = null;
+            String role = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "username" -> username = nextStringOrNull(reader);
+                    case "email" -> email = nextStringOrNull(reader);
+                    case "password" -> password = nextStringOrNull(reader);
+                    case "role" -> role = nextStringOrNull(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new User(username, email, password, role);
+        }
+    }
+}
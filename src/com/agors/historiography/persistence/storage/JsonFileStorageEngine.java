@@ -0,0 +1,301 @@
+package com.agors.historiography.persistence.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Рушій зберігання, що тримає сутності в пам'яті та зберігає їх у JSON-файлі. Файл зчитується
+ * потоково один раз під час завантаження, а після змін повністю перезаписується відкладено через
+ * {@link WriteBehindFlusher} і {@link AtomicFileWriter}.
+ * <p>
+ * Структуру документа визначає {@link Format}; за замовчуванням це JSON-масив сутностей.
+ * <p>
+ * Читання і запис файлу виконуються під блокуванням {@link DataFileLock}, тож кілька процесів
+ * можуть спільно використовувати каталог даних. Перед кожним читанням ({@link #get(Object)},
+ * {@link #scan()}) і записом рушій звіряє штамп версії файлу під спільним блокуванням; якщо файл
+ * змінив інший процес, рушій перечитує його і повторно застосовує до нього лише свої незбережені
+ * зміни, замість того щоб затерти чужі. Після такого перечитування викликаються слухачі
+ * {@link #addReloadListener(Runnable)}.
+ * <p>
+ * Для кожного зміненого ключа рушій пам'ятає значення, яке було у файлі до першої незбереженої
+ * зміни. Якщо інший процес за цей час теж змінив значення ключа, це конфлікт: перемагає значення
+ * з файлу, а локальна зміна відкидається з попередженням, а не затирає чужий запис.
+ *
+ * @param <K> тип ключа сутності.
+ * @param <V> тип сутності.
+ */
+public class JsonFileStorageEngine<K, V> extends InMemoryStorageEngine<K, V> {
+
+    private final Path file;
+    private final Format<V> format;
+    private final Set<K> pending = new LinkedHashSet<>();
+    private final Map<K, V> base = new HashMap<>(); // значення змінених ключів у файлі
+    private final Gson gson = JsonCodec.gson();
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private long version;
+
+    /**
+     * Формат JSON-документа, у якому зберігаються сутності.
+     *
+     * @param <V> тип сутності.
+     */
+    public interface Format<V> {
+
+        /**
+         * Потоково зчитує сутності з файлу. Відсутній файл вважається порожнім.
+         *
+         * @param file файл даних.
+         * @param sink споживач, що отримує сутності по одній.
+         * @throws IOException якщо файл не вдалося прочитати.
+         */
+        void read(Path file, Consumer<V> sink) throws IOException;
+
+        /**
+         * Записує всі сутності у файл.
+         *
+         * @param file   файл даних.
+         * @param values сутності для запису.
+         * @throws IOException якщо запис не вдався.
+         */
+        void write(Path file, List<V> values) throws IOException;
+    }
+
+    /**
+     * Конструктор рушія.
+     *
+     * @param file   файл даних.
+     * @param keyOf  функція, що повертає ключ сутності.
+     * @param format формат JSON-документа.
+     */
+    public JsonFileStorageEngine(Path file, Function<V, K> keyOf, Format<V> format) {
+        super(keyOf);
+        this.file = file.toAbsolutePath().normalize();
+        this.format = format;
+    }
+
+    /**
+     * Повертає формат JSON-масиву сутностей.
+     *
+     * @param elementType тип однієї сутності.
+     * @param <V>         тип сутності.
+     * @return формат JSON-масиву.
+     */
+    public static <V> Format<V> arrayFormat(Type elementType) {
+        Gson gson = JsonCodec.gson();
+        return new Format<>() {
+            @Override
+            public void read(Path file, Consumer<V> sink) throws IOException {
+                StreamingJsonLoader.<V>streamArray(file, gson, elementType,
+                    StreamingJsonLoader.NO_LIMIT, StreamingJsonLoader.ProgressListener.NONE, sink);
+            }
+
+            @Override
+            public void write(Path file, List<V> values) throws IOException {
+                AtomicFileWriter.writeArray(file, gson, values, elementType);
+            }
+        };
+    }
+
+    /**
+     * Зчитує сутності з файлу під спільним блокуванням і запам'ятовує його версію. Перед читанням
+     * записуються незбережені зміни цього файлу, зроблені іншим екземпляром рушія.
+     *
+     * @throws IOException якщо файл не вдалося прочитати або він має некоректний формат.
+     */
+    @Override
+    public void load() throws IOException {
+        WriteBehindFlusher.shared().flush(file);
+        try (DataFileLock lock = DataFileLock.shared(file)) {
+            synchronized (this) {
+                read();
+                version = lock.version();
+            }
+        }
+    }
+
+    /**
+     * Повертає всі сутності, спершу перечитавши файл, якщо його змінив інший процес.
+     *
+     * @return список сутностей у порядку їх першого додавання.
+     */
+    @Override
+    public List<V> scan() {
+        refreshQuietly();
+        return super.scan();
+    }
+
+    /**
+     * Повертає сутність за ключем, спершу перечитавши файл, якщо його змінив інший процес.
+     *
+     * @param key ключ сутності.
+     * @return сутність або null, якщо її немає.
+     */
+    @Override
+    public V get(K key) {
+        refreshQuietly();
+        return super.get(key);
+    }
+
+    /**
+     * Звіряє штамп версії файлу під спільним блокуванням і, якщо файл змінив інший процес,
+     * перечитує його та повторно застосовує незбережені зміни.
+     *
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    @Override
+    public void refreshIfChanged() throws IOException {
+        try (DataFileLock lock = DataFileLock.shared(file)) {
+            long current = lock.version();
+            synchronized (this) {
+                if (current != version) {
+                    merge();
+                    version = current;
+                }
+            }
+        }
+    }
+
+    /**
+     * Перечитує змінений файл, не пробрасуючи винятків: якщо файл не вдалося прочитати, читання
+     * обслуговується з пам'яті.
+     */
+    private void refreshQuietly() {
+        try {
+            refreshIfChanged();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        WriteBehindFlusher.shared().flush(file);
+    }
+
+    @Override
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    @Override
+    protected void replaced(K key, V previous) {
+        if (!base.containsKey(key)) {
+            base.put(key, previous);
+        }
+    }
+
+    @Override
+    protected void changed(K key) {
+        synchronized (this) {
+            pending.add(key);
+        }
+        WriteBehindFlusher.shared().markDirty(file, this::writeSnapshot);
+    }
+
+    /**
+     * Записує знімок усіх сутностей у файл під виключним блокуванням. Якщо файл тим часом змінив
+     * інший процес, незбережені зміни спершу об'єднуються з його поточним вмістом.
+     */
+    private void writeSnapshot() {
+        try (DataFileLock lock = DataFileLock.exclusive(file)) {
+            List<V> snapshot;
+            Set<K> written;
+            Map<K, V> writtenBase;
+            synchronized (this) {
+                if (lock.version() != version) {
+                    merge();
+                }
+                snapshot = super.scan();
+                written = new LinkedHashSet<>(pending);
+                writtenBase = new HashMap<>(base);
+                pending.clear();
+                base.clear();
+            }
+            try {
+                format.write(file, snapshot);
+            } catch (IOException e) {
+                synchronized (this) {
+                    pending.addAll(written);
+                    base.putAll(writtenBase);
+                }
+                throw e;
+            }
+            long next = lock.bumpVersion();
+            synchronized (this) {
+                version = next;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Перечитує файл і повторно застосовує до нього незбережені зміни цього рушія, після чого
+     * сповіщає слухачів перечитування. Зміна ключа, значення якого у файлі тим часом змінив інший
+     * процес, відкидається: у рушії залишається значення з файлу. Викликається під блокуванням
+     * рушія.
+     *
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    private void merge() throws IOException {
+        Map<K, V> local = new HashMap<>();
+        for (K key : pending) {
+            local.put(key, super.get(key));
+        }
+        clearLoaded();
+        read();
+        for (Map.Entry<K, V> entry : local.entrySet()) {
+            K key = entry.getKey();
+            if (!sameJson(super.get(key), base.get(key))) {
+                System.err.println("Конфлікт змін у файлі " + file + ": зміну ключа " + key
+                    + " відкинуто, бо його змінив інший процес");
+                pending.remove(key);
+                base.remove(key);
+            } else if (entry.getValue() == null) {
+                removeLoaded(key);
+            } else {
+                putLoaded(entry.getValue());
+            }
+        }
+        reloadListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Порівнює дві сутності за їх JSON-поданням.
+     *
+     * @param first  перша сутність або null.
+     * @param second друга сутність або null.
+     * @return true, якщо обидві відсутні або мають однакове JSON-подання.
+     */
+    private boolean sameJson(V first, V second) {
+        if (first == null || second == null) {
+            return first == second;
+        }
+        return Objects.equals(gson.toJsonTree(first), gson.toJsonTree(second));
+    }
+
+    /**
+     * Зчитує сутності з файлу без позначення змін.
+     *
+     * @throws IOException якщо файл не вдалося прочитати або він має некоректний формат.
+     */
+    private void read() throws IOException {
+        try {
+            format.read(file, this::putLoaded);
+        } catch (JsonParseException e) {
+            throw new IOException("Некоректний формат файлу даних: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,881 @@
+package com.agors.historiography.persistence.storage;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Рушій зберігання історичних місць у JSON-файлі, що не тримає описи в пам'яті. Опис — найбільше
+ * поле місця, але списки місць показують лише назви, тож резидентними залишаються лише назва,
+ * локація та категорія, а для кожного опису запам'ятовується його зміщення та довжина у файлі.
+ * <p>
+ * Зміщення відраховуються в розпакованому вмісті, тож рушій однаково працює зі звичайним і
+ * стисненим ({@link BlockCompressedFile}) файлом; для стисненого файлу точкове читання опису
+ * розпаковує лише один блок.
+ * <p>
+ * Сам опис зчитується з файлу лише на вимогу ({@link #get(Integer)} або
+ * {@link #description(int)}) і потрапляє до обмеженого за розміром кешу {@link LruCache}. Змінені
+ * описи утримуються в пам'яті, доки файл не буде перезаписано, після чого зміщення оновлюються.
+ * <p>
+ * Локації та категорії кодуються словниками {@link StringDictionary}: запис тримає лише
+ * цілочисельні коди, а місця, що повертає рушій, посилаються на спільні екземпляри рядків
+ * словника. Словники належать таблиці записів і будуються заново щоразу, коли таблиця заново
+ * зчитується з файлу (після власного запису або перечитування), тож значення, яких уже немає в
+ * жодному місці, не накопичуються.
+ * <p>
+ * Метод {@link #scan()} повертає місця без опису ({@code description == null}).
+ * <p>
+ * Файл читається і записується під блокуванням {@link DataFileLock}. Якщо штамп версії показує,
+ * що файл змінив інший процес, зміщення описів застаріли: рушій сканує файл знову і повторно
+ * застосовує свої незбережені зміни, як перед читанням опису, так і перед записом, після чого
+ * сповіщає слухачів {@link #addReloadListener(Runnable)}.
+ * <p>
+ * Відкладений перезапис файлу не тримає монітор рушія: стан фіксується під монітором, файл
+ * записується й сканується лише під виключним блокуванням {@link DataFileLock}, а нові
+ * зміщення підставляються знову під монітором. Тож {@link #scan()}, {@link #summary(int)} та
+ * читання описів з кешу не чекають на запис. Якщо читач бачить штамп власного запису рушія ще до
+ * підстановки, він сам підставляє готові таблиці, а не перечитує файл як змінений іншим
+ * процесом, тож слухачі перечитування не сповіщаються.
+ */
+public class LazyPlaceStorageEngine implements StorageEngine<Integer, HistoricalPlace> {
+
+    private static final long STRING_OVERHEAD_BYTES = 40;
+
+    private final Path file;
+    private final Gson gson = JsonCodec.gson();
+    private final Object writeLock = new Object();
+    private IntHashMap<PlaceRow> rows = new IntHashMap<>();
+    private PlaceDictionaries dictionaries = new PlaceDictionaries();
+    private IntHashMap<DescriptionRef> descriptionRefs = new IntHashMap<>();
+    private final IntHashMap<String> unsavedDescriptions = new IntHashMap<>();
+    private final LruCache<Integer, String> descriptions;
+    private final Set<Integer> pending = new LinkedHashSet<>();
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private long version;
+    private volatile OwnWrite ownWrite; // власний запис, таблиці якого ще не підставлено
+
+    /**
+     * Конструктор рушія.
+     *
+     * @param file       JSON-файл з масивом історичних місць.
+     * @param cacheBytes приблизний максимальний обсяг кешу описів у байтах.
+     */
+    public LazyPlaceStorageEngine(Path file, long cacheBytes) {
+        this.file = file.toAbsolutePath().normalize();
+        descriptions = new LruCache<>(cacheBytes,
+            text -> STRING_OVERHEAD_BYTES + 2L * text.length());
+    }
+
+    /**
+     * Потоково сканує файл під спільним блокуванням і запам'ятовує поля місць без описів,
+     * зміщення описів та версію файлу. Перед читанням записуються незбережені зміни цього файлу,
+     * зроблені іншим екземпляром рушія.
+     *
+     * @throws IOException якщо файл не вдалося прочитати або він має некоректний формат.
+     */
+    @Override
+    public void load() throws IOException {
+        WriteBehindFlusher.shared().flush(file);
+        synchronized (this) {
+            try (DataFileLock lock = DataFileLock.shared(file)) {
+                dictionaries = new PlaceDictionaries();
+                scanFile(rows, descriptionRefs, dictionaries);
+                version = lock.version();
+            }
+        }
+    }
+
+    /**
+     * Повертає всі історичні місця без описів.
+     *
+     * @return список місць з {@code description == null}.
+     */
+    @Override
+    public synchronized List<HistoricalPlace> scan() {
+        List<HistoricalPlace> result = new ArrayList<>(rows.size());
+        for (PlaceRow row : rows.values()) {
+            result.add(toPlace(row, null));
+        }
+        return result;
+    }
+
+    /**
+     * Повертає всі історичні місця разом з описами. Описи зчитуються одним послідовним проходом
+     * файлу, а не точковим читанням кожного опису, і не потрапляють до кешу; незбережені зміни
+     * цього рушія враховуються. Усі описи одночасно перебувають у пам'яті, тож метод призначений
+     * для повних переглядів каталогу, а не для показу списків.
+     *
+     * @return список повних місць у порядку зберігання.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    public synchronized List<HistoricalPlace> scanWithDescriptions() throws IOException {
+        IntHashMap<String> texts = new IntHashMap<>(rows.size());
+        try (DataFileLock lock = DataFileLock.shared(file)) {
+            checkVersion(lock.version());
+            StreamingJsonLoader.<HistoricalPlace>streamArray(file, gson, HistoricalPlace.class,
+                StreamingJsonLoader.NO_LIMIT, StreamingJsonLoader.ProgressListener.NONE,
+                place -> texts.put(place.getId(), place.getDescription()));
+        } catch (JsonParseException e) {
+            throw new IOException("Некоректний формат файлу історичних місць: " + file, e);
+        }
+        List<HistoricalPlace> result = new ArrayList<>(rows.size());
+        for (PlaceRow row : rows.values()) {
+            String text = unsavedDescriptions.containsKey(row.id)
+                ? unsavedDescriptions.get(row.id) : texts.get(row.id);
+            result.add(toPlace(row, text));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean contains(Integer id) {
+        return rows.containsKey(id);
+    }
+
+    /**
+     * Повертає історичне місце без опису, не звертаючись до файлу.
+     *
+     * @param id ідентифікатор історичного місця.
+     * @return місце з {@code description == null} або null, якщо його немає.
+     */
+    public synchronized HistoricalPlace summary(int id) {
+        PlaceRow row = rows.get(id);
+        return row == null ? null : toPlace(row, null);
+    }
+
+    /**
+     * Повертає повну копію історичного місця разом з описом. Опис береться з кешу або
+     * зчитується з файлу.
+     *
+     * @param id ідентифікатор історичного місця.
+     * @return історичне місце або null, якщо його немає.
+     */
+    @Override
+    public synchronized HistoricalPlace get(Integer id) {
+        PlaceRow row = rows.get(id);
+        return row == null ? null : toPlace(row, description(id));
+    }
+
+    /**
+     * Повертає опис історичного місця. Опис береться зі змінених, з кешу або зчитується з файлу
+     * за збереженим зміщенням і додається до кешу.
+     *
+     * @param id ідентифікатор історичного місця.
+     * @return опис або null, якщо місця чи опису немає.
+     */
+    public synchronized String description(int id) {
+        if (unsavedDescriptions.containsKey(id)) {
+            return unsavedDescriptions.get(id);
+        }
+        String cached = descriptions.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        String text = readDescription(id);
+        if (text != null) {
+            descriptions.put(id, text);
+        }
+        return text;
+    }
+
+    @Override
+    public void put(HistoricalPlace value) throws IOException {
+        synchronized (this) {
+            int id = value.getId();
+            rows.put(id, toRow(id, value.getName(), value.getLocation(), value.getCategory()));
+            unsavedDescriptions.put(id, value.getDescription());
+            descriptions.remove(id);
+            pending.add(id);
+        }
+        changed();
+    }
+
+    @Override
+    public boolean delete(Integer id) throws IOException {
+        synchronized (this) {
+            if (rows.remove(id) == null) {
+                return false;
+            }
+            descriptionRefs.remove(id);
+            unsavedDescriptions.remove(id);
+            descriptions.remove(id);
+            pending.add(id);
+        }
+        changed();
+        return true;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        WriteBehindFlusher.shared().flush(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    @Override
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Планує відкладений перезапис файлу.
+     */
+    private void changed() {
+        WriteBehindFlusher.shared().markDirty(file, this::writeSnapshot);
+    }
+
+    /**
+     * Перезаписує файл незбереженими змінами. Якщо файл тим часом змінив інший процес, спершу
+     * під монітором оновлює зміщення і повторно застосовує зміни, а потім повторює запис.
+     */
+    private void writeSnapshot() {
+        synchronized (writeLock) {
+            try {
+                while (!writeDetached()) {
+                    synchronized (this) {
+                        try (DataFileLock lock = DataFileLock.shared(file)) {
+                            checkVersion(lock.version());
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Перезаписує файл через {@link AtomicFileWriter} під виключним блокуванням, не тримаючи
+     * монітор рушія. Під монітором фіксуються лише записи, незбережені описи, зміщення та версія.
+     * Описи по одному зчитуються зі старого файлу, який залишається на місці до атомарної заміни,
+     * тож у пам'яті одночасно перебуває лише один опис. Після заміни збільшується штамп версії, а
+     * новий файл сканується в окремі таблиці, які під монітором замінюють поточні; зміни, зроблені
+     * під час запису, застосовуються поверх них і залишаються незбереженими.
+     *
+     * @return false, якщо файл змінив інший процес і запис потрібно повторити після оновлення.
+     * @throws IOException якщо файл не вдалося записати або прочитати.
+     */
+    private boolean writeDetached() throws IOException {
+        List<PlaceRow> snapshotRows;
+        IntHashMap<String> snapshotTexts = new IntHashMap<>();
+        IntHashMap<DescriptionRef> snapshotRefs = new IntHashMap<>();
+        Set<Integer> saved;
+        long snapshotVersion;
+        PlaceDictionaries snapshotDictionaries;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return true;
+            }
+            snapshotRows = rows.values();
+            snapshotDictionaries = dictionaries;
+            unsavedDescriptions.forEach(snapshotTexts::put);
+            descriptionRefs.forEach(snapshotRefs::put);
+            saved = new LinkedHashSet<>(pending);
+            snapshotVersion = version;
+            pending.clear();
+        }
+
+        IntHashMap<PlaceRow> newRows = new IntHashMap<>(snapshotRows.size());
+        IntHashMap<DescriptionRef> newRefs = new IntHashMap<>(snapshotRows.size());
+        PlaceDictionaries newDictionaries = new PlaceDictionaries();
+        boolean written = false;
+        try (DataFileLock lock = DataFileLock.exclusive(file)) {
+            if (lock.version() != snapshotVersion) {
+                return false;
+            }
+            AtomicFileWriter.writeJson(file, false, writer -> {
+                writer.beginArray();
+                for (PlaceRow row : snapshotRows) {
+                    String text = snapshotTexts.containsKey(row.id) ? snapshotTexts.get(row.id)
+                        : readDescription(snapshotRefs.get(row.id));
+                    gson.toJson(snapshotDictionaries.place(row, text), HistoricalPlace.class,
+                        writer);
+                }
+                writer.endArray();
+            });
+            long newVersion = lock.bumpVersion();
+            written = true;
+            scanFile(newRows, newRefs, newDictionaries);
+            ownWrite = new OwnWrite(snapshotVersion, newVersion, newRows, newRefs,
+                newDictionaries, saved);
+        } finally {
+            if (!written) {
+                synchronized (this) {
+                    pending.addAll(saved);
+                }
+            }
+        }
+
+        synchronized (this) {
+            OwnWrite write = ownWrite;
+            if (write != null) {
+                applyOwnWrite(write);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Звіряє штамп версії файлу з останнім відомим рушію. Якщо це штамп власного запису, таблиці
+     * якого ще не підставлено, підставляє їх; інакше файл змінив інший процес і він перечитується.
+     * Викликається під монітором і блокуванням {@link DataFileLock}.
+     *
+     * @param current поточний штамп версії файлу.
+     * @throws IOException якщо файл не вдалося прочитати або він має некоректний формат.
+     */
+    private void checkVersion(long current) throws IOException {
+        if (current == version) {
+            return;
+        }
+        OwnWrite write = ownWrite;
+        if (write != null && write.version == current) {
+            applyOwnWrite(write);
+            return;
+        }
+        refresh();
+        version = current;
+    }
+
+    /**
+     * Підставляє таблиці, зчитані з файлу після власного запису, і повторно застосовує зміни,
+     * зроблені під час запису. Якщо до цього файл уже перечитано, таблиці не підставляються.
+     * Незбережені описи, що потрапили до файлу, звільняються. Викликається під монітором.
+     *
+     * @param write власний запис.
+     */
+    private void applyOwnWrite(OwnWrite write) {
+        if (ownWrite != write) {
+            return;
+        }
+        ownWrite = null;
+        if (version == write.snapshotVersion) {
+            applyPending(write.rows, write.refs, write.dictionaries);
+            rows = write.rows;
+            descriptionRefs = write.refs;
+            dictionaries = write.dictionaries;
+            version = write.version;
+        }
+        for (int id : write.saved) {
+            if (!pending.contains(id)) {
+                unsavedDescriptions.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Зчитує опис з файлу за збереженим зміщенням без додавання до кешу. Якщо файл тим часом
+     * змінив інший процес, спершу оновлює зміщення.
+     *
+     * @param id ідентифікатор історичного місця.
+     * @return опис або null, якщо його немає.
+     */
+    private String readDescription(int id) {
+        try (DataFileLock lock = DataFileLock.shared(file)) {
+            checkVersion(lock.version());
+            return readDescription(descriptionRefs.get(id));
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Зчитує опис з файлу за зміщенням. Викликається під блокуванням {@link DataFileLock}.
+     *
+     * @param ref зміщення опису або null.
+     * @return опис або null, якщо його немає.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    private String readDescription(DescriptionRef ref) throws IOException {
+        if (ref == null) {
+            return null;
+        }
+        JsonElement value = decode(BlockCompressedFile.readRange(file, ref.offset, ref.length));
+        return value.isJsonNull() ? null : value.getAsString();
+    }
+
+    /**
+     * Сканує файл, змінений іншим процесом, і повторно застосовує незбережені зміни цього рушія.
+     * Кеш описів очищується, оскільки описи у файлі могли змінитися. Наприкінці сповіщає
+     * слухачів перечитування.
+     *
+     * @throws IOException якщо файл не вдалося прочитати або він має некоректний формат.
+     */
+    private void refresh() throws IOException {
+        IntHashMap<PlaceRow> newRows = new IntHashMap<>(rows.size());
+        IntHashMap<DescriptionRef> newRefs = new IntHashMap<>(rows.size());
+        PlaceDictionaries newDictionaries = new PlaceDictionaries();
+        scanFile(newRows, newRefs, newDictionaries);
+        applyPending(newRows, newRefs, newDictionaries);
+        rows = newRows;
+        descriptionRefs = newRefs;
+        dictionaries = newDictionaries;
+        descriptions.clear();
+        reloadListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Застосовує незбережені зміни рушія до таблиць, щойно зчитаних з файлу. Записи змін
+     * перекодовуються словниками нових таблиць.
+     *
+     * @param targetRows         резидентні записи з файлу.
+     * @param targetRefs         зміщення описів з файлу.
+     * @param targetDictionaries словники, якими закодовано записи з файлу.
+     */
+    private void applyPending(IntHashMap<PlaceRow> targetRows,
+        IntHashMap<DescriptionRef> targetRefs, PlaceDictionaries targetDictionaries) {
+        for (int id : pending) {
+            PlaceRow row = rows.get(id);
+            if (row == null) {
+                targetRows.remove(id);
+                targetRefs.remove(id);
+            } else {
+                targetRows.put(id, targetDictionaries.recode(row, dictionaries));
+            }
+        }
+    }
+
+    /**
+     * Сканує файл і заново будує резидентні поля місць та зміщення описів. Значення опису лише
+     * пропускаються, без декодування.
+     *
+     * @param targetRows         таблиця для резидентних записів; попередній вміст видаляється.
+     * @param targetRefs         таблиця для зміщень описів; попередній вміст видаляється.
+     * @param targetDictionaries словники для кодування записів таблиці.
+     * @throws IOException якщо файл не вдалося прочитати або він має некоректний формат.
+     */
+    private void scanFile(IntHashMap<PlaceRow> targetRows, IntHashMap<DescriptionRef> targetRefs,
+        PlaceDictionaries targetDictionaries) throws IOException {
+        targetRows.clear();
+        targetRefs.clear();
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return;
+        }
+        try (ByteScanner scanner = new ByteScanner(BlockCompressedFile.newInputStream(file))) {
+            scanner.skipWhitespace();
+            if (scanner.peek() == 'n') {
+                scanner.readValue(false);
+                return;
+            }
+            scanner.expect('[');
+            scanner.skipWhitespace();
+            if (scanner.peek() == ']') {
+                return;
+            }
+            do {
+                scanObject(scanner, targetRows, targetRefs, targetDictionaries);
+                scanner.skipWhitespace();
+            } while (scanner.consumeIf(','));
+            scanner.expect(']');
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            throw new IOException("Некоректний формат файлу історичних місць: " + file, e);
+        }
+    }
+
+    /**
+     * Сканує один об'єкт історичного місця.
+     *
+     * @param scanner            сканер файлу.
+     * @param targetRows         таблиця для резидентних записів.
+     * @param targetRefs         таблиця для зміщень описів.
+     * @param targetDictionaries словники для кодування записів таблиці.
+     * @throws IOException якщо об'єкт не вдалося прочитати.
+     */
+    private void scanObject(ByteScanner scanner, IntHashMap<PlaceRow> targetRows,
+        IntHashMap<DescriptionRef> targetRefs, PlaceDictionaries targetDictionaries)
+        throws IOException {
+        scanner.skipWhitespace();
+        scanner.expect('{');
+        int id = 0;
+        String name = null;
+        String location = null;
+        String category = null;
+        DescriptionRef ref = null;
+
+        scanner.skipWhitespace();
+        if (scanner.peek() != '}') {
+            do {
+                scanner.skipWhitespace();
+                String key = decode(scanner.readValue(true)).getAsString();
+                scanner.skipWhitespace();
+                scanner.expect(':');
+                scanner.skipWhitespace();
+                if ("description".equals(key)) {
+                    long offset = scanner.position();
+                    boolean isNull = scanner.peek() == 'n';
+                    scanner.readValue(false);
+                    if (!isNull) {
+                        ref = new DescriptionRef(offset, (int) (scanner.position() - offset));
+                    }
+                } else {
+                    JsonElement value = decode(scanner.readValue(true));
+                    String text = value.isJsonNull() ? null : value.getAsString();
+                    switch (key) {
+                        case "id" -> id = value.getAsInt();
+                        case "name" -> name = text;
+                        case "location" -> location = text;
+                        case "category" -> category = text;
+                        default -> {
+                            // Невідоме поле не зберігається.
+                        }
+                    }
+                }
+                scanner.skipWhitespace();
+            } while (scanner.consumeIf(','));
+        }
+        scanner.expect('}');
+
+        targetRows.put(id, targetDictionaries.row(id, name, location, category));
+        if (ref != null) {
+            targetRefs.put(id, ref);
+        }
+    }
+
+    /**
+     * Створює резидентний запис, кодуючи локацію та категорію словниками поточної таблиці.
+     *
+     * @param id       ідентифікатор історичного місця.
+     * @param name     назва.
+     * @param location локація.
+     * @param category категорія.
+     * @return резидентний запис.
+     */
+    private PlaceRow toRow(int id, String name, String location, String category) {
+        return dictionaries.row(id, name, location, category);
+    }
+
+    /**
+     * Створює сутність історичного місця із резидентного запису поточної таблиці.
+     *
+     * @param row         резидентний запис.
+     * @param description опис або null.
+     * @return історичне місце.
+     */
+    private HistoricalPlace toPlace(PlaceRow row, String description) {
+        return dictionaries.place(row, description);
+    }
+
+    /**
+     * Декодує сирі байти одного JSON-значення.
+     *
+     * @param raw байти значення у кодуванні UTF-8.
+     * @return розібране значення.
+     */
+    private static JsonElement decode(byte[] raw) {
+        return JsonParser.parseString(new String(raw, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Резидентний запис історичного місця: назва та коди локації й категорії.
+     */
+    private static final class PlaceRow {
+
+        private final int id;
+        private final String name;
+        private final int location;
+        private final int category;
+
+        /**
+         * Конструктор запису.
+         *
+         * @param id       ідентифікатор історичного місця.
+         * @param name     назва.
+         * @param location код локації.
+         * @param category код категорії.
+         */
+        PlaceRow(int id, String name, int location, int category) {
+            this.id = id;
+            this.name = name;
+            this.location = location;
+            this.category = category;
+        }
+    }
+
+    /**
+     * Словники локацій і категорій, якими закодовано записи однієї таблиці.
+     */
+    private static final class PlaceDictionaries {
+
+        private final StringDictionary locations = new StringDictionary();
+        private final StringDictionary categories = new StringDictionary();
+
+        /**
+         * Створює резидентний запис, кодуючи локацію та категорію цими словниками.
+         *
+         * @param id       ідентифікатор історичного місця.
+         * @param name     назва.
+         * @param location локація.
+         * @param category категорія.
+         * @return резидентний запис.
+         */
+        PlaceRow row(int id, String name, String location, String category) {
+            return new PlaceRow(id, name, locations.encode(location),
+                categories.encode(category));
+        }
+
+        /**
+         * Перекодовує запис, закодований іншими словниками, цими словниками.
+         *
+         * @param row    резидентний запис.
+         * @param source словники, якими закодовано запис.
+         * @return запис з кодами цих словників.
+         */
+        PlaceRow recode(PlaceRow row, PlaceDictionaries source) {
+            return row(row.id, row.name, source.locations.decode(row.location),
+                source.categories.decode(row.category));
+        }
+
+        /**
+         * Створює сутність історичного місця із запису, закодованого цими словниками.
+         *
+         * @param row         резидентний запис.
+         * @param description опис або null.
+         * @return історичне місце.
+         */
+        HistoricalPlace place(PlaceRow row, String description) {
+            return new HistoricalPlace(row.id, row.name, description,
+                locations.decode(row.location), categories.decode(row.category));
+        }
+    }
+
+    /**
+     * Файл, записаний цим рушієм: штампи версії до й після запису, таблиці нового файлу та
+     * ідентифікатори збережених змін.
+     */
+    private static final class OwnWrite {
+
+        private final long snapshotVersion;
+        private final long version;
+        private final IntHashMap<PlaceRow> rows;
+        private final IntHashMap<DescriptionRef> refs;
+        private final PlaceDictionaries dictionaries;
+        private final Set<Integer> saved;
+
+        /**
+         * Конструктор власного запису.
+         *
+         * @param snapshotVersion штамп версії, з якого почався запис.
+         * @param version         штамп версії записаного файлу.
+         * @param rows            резидентні записи нового файлу.
+         * @param refs            зміщення описів у новому файлі.
+         * @param dictionaries    словники, якими закодовано записи нового файлу.
+         * @param saved           ідентифікатори змін, що потрапили до файлу.
+         */
+        OwnWrite(long snapshotVersion, long version, IntHashMap<PlaceRow> rows,
+            IntHashMap<DescriptionRef> refs, PlaceDictionaries dictionaries, Set<Integer> saved) {
+            this.snapshotVersion = snapshotVersion;
+            this.version = version;
+            this.rows = rows;
+            this.refs = refs;
+            this.dictionaries = dictionaries;
+            this.saved = saved;
+        }
+    }
+
+    /**
+     * Зміщення та довжина опису у файлі, включно з лапками JSON-рядка.
+     */
+    private static final class DescriptionRef {
+
+        private final long offset;
+        private final int length;
+
+        /**
+         * Конструктор посилання на опис.
+         *
+         * @param offset зміщення першого байта значення у файлі.
+         * @param length довжина значення в байтах.
+         */
+        DescriptionRef(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Побайтовий сканер JSON, що відстежує зміщення у файлі. Розбирає лише структуру документа і
+     * повертає сирі байти значень, не декодуючи їх.
+     */
+    private static final class ByteScanner implements AutoCloseable {
+
+        private final InputStream in;
+        private long position;
+        private int peeked = -2;
+
+        /**
+         * Конструктор сканера.
+         *
+         * @param in вхідний потік файлу.
+         */
+        ByteScanner(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Повертає зміщення наступного непрочитаного байта.
+         *
+         * @return зміщення у файлі.
+         */
+        long position() {
+            return position;
+        }
+
+        /**
+         * Повертає наступний байт, не споживаючи його.
+         *
+         * @return байт або -1 наприкінці файлу.
+         * @throws IOException якщо читання не вдалося.
+         */
+        int peek() throws IOException {
+            if (peeked == -2) {
+                peeked = in.read();
+            }
+            return peeked;
+        }
+
+        /**
+         * Споживає наступний байт.
+         *
+         * @return байт або -1 наприкінці файлу.
+         * @throws IOException якщо читання не вдалося.
+         */
+        int next() throws IOException {
+            int value = peek();
+            peeked = -2;
+            if (value >= 0) {
+                position++;
+            }
+            return value;
+        }
+
+        /**
+         * Пропускає пробільні символи.
+         *
+         * @throws IOException якщо читання не вдалося.
+         */
+        void skipWhitespace() throws IOException {
+            int c = peek();
+            while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                next();
+                c = peek();
+            }
+        }
+
+        /**
+         * Споживає наступний байт, якщо він дорівнює очікуваному.
+         *
+         * @param expected очікуваний символ.
+         * @return true, якщо байт було спожито.
+         * @throws IOException якщо читання не вдалося.
+         */
+        boolean consumeIf(char expected) throws IOException {
+            if (peek() == expected) {
+                next();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Споживає наступний байт і перевіряє, що він дорівнює очікуваному.
+         *
+         * @param expected очікуваний символ.
+         * @throws IOException якщо читання не вдалося.
+         */
+        void expect(char expected) throws IOException {
+            int c = next();
+            if (c != expected) {
+                throw new JsonParseException("Очікувався символ '" + expected + "' на позиції "
+                    + (position - 1));
+            }
+        }
+
+        /**
+         * Споживає одне JSON-значення будь-якого типу.
+         *
+         * @param keep true, якщо байти значення потрібно повернути.
+         * @return байти значення або null, якщо {@code keep == false}.
+         * @throws IOException якщо читання не вдалося.
+         */
+        byte[] readValue(boolean keep) throws IOException {
+            ByteArrayOutputStream sink = keep ? new ByteArrayOutputStream() : null;
+            int first = peek();
+            if (first == '"' || first == '{' || first == '[') {
+                int depth = 0;
+                boolean inString = false;
+                boolean escaped = false;
+                do {
+                    int c = nextOrFail();
+                    if (sink != null) {
+                        sink.write(c);
+                    }
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (c == '\\') {
+                            escaped = true;
+                        } else if (c == '"') {
+                            inString = false;
+                        }
+                    } else if (c == '"') {
+                        inString = true;
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                } while (inString || depth > 0);
+            } else {
+                long start = position;
+                int c = peek();
+                while (c >= 0 && c != ',' && c != '}' && c != ']' && c != ' ' && c != '\t'
+                    && c != '\n' && c != '\r') {
+                    next();
+                    if (sink != null) {
+                        sink.write(c);
+                    }
+                    c = peek();
+                }
+                if (position == start) {
+                    throw new JsonParseException("Очікувалося значення на позиції " + position);
+                }
+            }
+            return sink == null ? null : sink.toByteArray();
+        }
+
+        /**
+         * Споживає наступний байт і перевіряє, що файл не закінчився.
+         *
+         * @return байт.
+         * @throws IOException якщо читання не вдалося.
+         */
+        private int nextOrFail() throws IOException {
+            int c = next();
+            if (c < 0) {
+                throw new JsonParseException("Несподіваний кінець файлу");
+            }
+            return c;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.agors.historiography.persistence.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потокобезпечний кеш з витісненням найдавніше використаних записів (LRU), обмежений сумарною
+ * вагою значень, а не їх кількістю. Вагу значення визначає передана функція, наприклад
+ * приблизний розмір рядка в байтах. Кеш рахує влучання, промахи та витіснення для моніторингу.
+ *
+ * @param <K> тип ключа.
+ * @param <V> тип значення.
+ */
+public class LruCache<K, V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Конструктор кешу.
+     *
+     * @param maxWeight максимальна сумарна вага значень у кеші.
+     * @param weigher   функція, що повертає вагу значення.
+     */
+    public LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Повертає значення за ключем і позначає його як щойно використане.
+     *
+     * @param key ключ.
+     * @return значення або null, якщо його немає в кеші.
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Додає значення до кешу та витісняє найдавніше використані записи, доки сумарна вага не
+     * повернеться в межі. Значення, вага якого перевищує місткість кешу, не кешується.
+     *
+     * @param key   ключ.
+     * @param value значення.
+     */
+    public synchronized void put(K key, V value) {
+        remove(key);
+        long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        entries.put(key, value);
+        weight += valueWeight;
+        var iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Map.Entry<K, V> eldest = iterator.next();
+            weight -= weigher.applyAsLong(eldest.getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Видаляє значення з кешу.
+     *
+     * @param key ключ.
+     */
+    public synchronized void remove(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) {
+            weight -= weigher.applyAsLong(removed);
+        }
+    }
+
+    /**
+     * Очищає кеш.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Повертає кількість записів у кеші.
+     *
+     * @return кількість записів.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Повертає поточну сумарну вагу значень у кеші.
+     *
+     * @return сумарна вага.
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Повертає кількість звернень до {@link #get(Object)}, що знайшли значення в кеші.
+     *
+     * @return кількість влучань.
+     */
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    /**
+     * Повертає кількість звернень до {@link #get(Object)}, що не знайшли значення в кеші.
+     *
+     * @return кількість промахів.
+     */
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    /**
+     * Повертає кількість записів, витіснених через перевищення місткості кешу. Явне видалення
+     * та очищення кешу не враховуються.
+     *
+     * @return кількість витіснень.
+     */
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+}
@@ -0,0 +1,173 @@
+package com.agors.historiography.persistence.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * Паралельний повний перегляд сутностей для запитів, які не можуть скористатися індексом
+ * (довільні умови, звіти адміністратора). Список сутностей ділиться на послідовні блоки
+ * фіксованого розміру, які перевіряються задачами {@link ForkJoinPool}; кожен блок читається
+ * одним потоком підряд, тож дані блоку залишаються в кеші процесора.
+ * <p>
+ * Результати блоків зберігаються окремо й об'єднуються в порядку блоків, тож результат
+ * збігається з послідовним переглядом. Списки, коротші за поріг, а також усі списки при
+ * вимкненому паралельному перегляді перевіряються послідовно в потоці виклику, адже для них
+ * накладні витрати на задачі перевищують виграш. Умова може викликатися з кількох потоків
+ * одночасно, тому не повинна змінювати спільний стан.
+ */
+public final class ParallelScan {
+
+    private static volatile ParallelScan shared;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int chunkSize;
+
+    /**
+     * Конструктор паралельного перегляду.
+     *
+     * @param parallelism кількість потоків; 1 або менше вимикає паралельний перегляд.
+     * @param threshold   мінімальна кількість сутностей для паралельного перегляду.
+     * @param chunkSize   кількість сутностей в одному блоці.
+     */
+    public ParallelScan(int parallelism, int threshold, int chunkSize) {
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("parallel-scan-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false) : null;
+        this.threshold = Math.max(1, threshold);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Повертає спільний для всіх репозиторіїв екземпляр, створений з налаштувань
+     * {@link StorageConfig}.
+     *
+     * @return спільний екземпляр.
+     */
+    public static ParallelScan shared() {
+        ParallelScan instance = shared;
+        if (instance == null) {
+            synchronized (ParallelScan.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new ParallelScan(
+                        StorageConfig.parallelScanEnabled() ? StorageConfig.scanParallelism() : 1,
+                        StorageConfig.parallelScanThreshold(), StorageConfig.scanChunkSize());
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Повертає сутності, що задовольняють умову, у тому самому порядку, що й у вихідному списку.
+     *
+     * @param source    сутності; список має підтримувати швидкий доступ за індексом і не
+     *                  змінюватися під час перегляду.
+     * @param predicate умова відбору.
+     * @param <T>       тип сутності.
+     * @return новий список відібраних сутностей.
+     */
+    public <T> List<T> filter(List<T> source, Predicate<? super T> predicate) {
+        if (pool == null || source.size() < threshold) {
+            return filterRange(source, 0, source.size(), predicate);
+        }
+        int chunks = (source.size() + chunkSize - 1) / chunkSize;
+        List<List<T>> parts = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            parts.add(null);
+        }
+        pool.invoke(new ChunkTask<>(source, predicate, parts, 0, chunks));
+
+        int total = 0;
+        for (List<T> part : parts) {
+            total += part.size();
+        }
+        List<T> result = new ArrayList<>(total);
+        for (List<T> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    /**
+     * Послідовно відбирає сутності з частини списку.
+     *
+     * @param source    сутності.
+     * @param from      початок частини включно.
+     * @param to        кінець частини виключно.
+     * @param predicate умова відбору.
+     * @param <T>       тип сутності.
+     * @return відібрані сутності в порядку списку.
+     */
+    private static <T> List<T> filterRange(List<T> source, int from, int to,
+        Predicate<? super T> predicate) {
+        List<T> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            T value = source.get(i);
+            if (predicate.test(value)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Задача перегляду діапазону блоків. Діапазон ділиться навпіл, доки не залишиться один блок.
+     *
+     * @param <T> тип сутності.
+     */
+    private final class ChunkTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> source;
+        private final Predicate<? super T> predicate;
+        private final List<List<T>> parts;
+        private final int fromChunk;
+        private final int toChunk;
+
+        /**
+         * Конструктор задачі.
+         *
+         * @param source    сутності.
+         * @param predicate умова відбору.
+         * @param parts     результати блоків за їх номерами.
+         * @param fromChunk перший блок включно.
+         * @param toChunk   останній блок виключно.
+         */
+        ChunkTask(List<T> source, Predicate<? super T> predicate, List<List<T>> parts,
+            int fromChunk, int toChunk) {
+            this.source = source;
+            this.predicate = predicate;
+            this.parts = parts;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        /**
+         * Переглядає один блок або ділить діапазон на дві задачі.
+         */
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk == 1) {
+                int from = fromChunk * chunkSize;
+                int to = Math.min(source.size(), from + chunkSize);
+                parts.set(fromChunk, filterRange(source, from, to, predicate));
+                return;
+            }
+            int middle = (fromChunk + toChunk) >>> 1;
+            invokeAll(new ChunkTask<>(source, predicate, parts, fromChunk, middle),
+                new ChunkTask<>(source, predicate, parts, middle, toChunk));
+        }
+    }
+}
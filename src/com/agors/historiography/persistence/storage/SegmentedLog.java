@@ -0,0 +1,468 @@
+package com.agors.historiography.persistence.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Сегментований журнал лише з дописуванням (append-only log) для зберігання сутностей за
+ * цілочисельним ідентифікатором.
+ * <p>
+ * Кожна зміна дописується в кінець активного сегмента як окремий JSON-рядок: додавання або
+ * оновлення ({@code put}) містить саму сутність, а видалення ({@code delete}) записується як
+ * надгробок (tombstone) з ідентифікатором. Під час запуску журнал зчитує знімок (JSON-масив
+ * сутностей) і програє поверх нього всі сегменти за порядком. Фоновий ущільнювач періодично
+ * записує новий знімок і видаляє сегменти, які в нього увійшли.
+ * <p>
+ * Повторне програвання сегментів поверх новішого знімка не змінює результату, оскільки кожен запис
+ * повністю визначає значення свого ключа. Тому збій на будь-якому етапі ущільнення не призводить до
+ * втрати даних. Недописаним після збою може бути лише останній рядок останнього сегмента: такий
+ * рядок відрізається від файлу, а пошкоджений запис у будь-якому іншому місці зупиняє відкриття
+ * журналу, щоб наступне ущільнення не відкинуло його назавжди. Поточний стан
+ * зберігається в {@link IntHashMap}, тож ідентифікатори не упаковуються в {@link Integer}.
+ *
+ * @param <V> тип сутності.
+ */
+public class SegmentedLog<V> implements StorageEngine<Integer, V> {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path snapshotFile;
+    private final Path logDirectory;
+    private final Type valueType;
+    private final ToIntFunction<V> idOf;
+    private final Durability durability;
+    private final long batchIntervalMillis;
+    private final long segmentBytes;
+    private final int compactionThreshold;
+    private final Gson gson = JsonCodec.gson();
+    private final IntHashMap<V> entries = new IntHashMap<>();
+    private final TreeMap<Long, Path> sealedSegments = new TreeMap<>();
+    private final ExecutorService executor;
+
+    private FileChannel activeChannel;
+    private long activeSegment;
+    private boolean unsynced;
+    private boolean compacting;
+
+    /**
+     * Конструктор журналу. Файли журналу відкриваються під час {@link #load()}.
+     *
+     * @param snapshotFile        файл знімка у форматі JSON-масиву.
+     * @param logDirectory        каталог для файлів сегментів.
+     * @param valueType           тип сутності для серіалізації.
+     * @param idOf                функція, що повертає ідентифікатор сутності.
+     * @param durability          режим довговічності записів.
+     * @param batchIntervalMillis інтервал пакетного скидання на диск для
+     *                            {@link Durability#BATCHED}; скидання виконує
+     *                            {@link WriteBehindFlusher}.
+     * @param segmentBytes        розмір сегмента, після якого відкривається новий.
+     * @param compactionThreshold кількість закритих сегментів, після якої запускається
+     *                            ущільнення.
+     */
+    public SegmentedLog(Path snapshotFile, Path logDirectory, Type valueType,
+        ToIntFunction<V> idOf, Durability durability, long batchIntervalMillis, long segmentBytes,
+        int compactionThreshold) {
+        this.snapshotFile = snapshotFile;
+        this.logDirectory = logDirectory;
+        this.valueType = valueType;
+        this.idOf = idOf;
+        this.durability = durability;
+        this.batchIntervalMillis = batchIntervalMillis;
+        this.segmentBytes = segmentBytes;
+        this.compactionThreshold = Math.max(1, compactionThreshold);
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segmented-log-" + logDirectory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Відкриває журнал: зчитує знімок, програє наявні сегменти та створює новий активний сегмент
+     * для подальших записів.
+     *
+     * @throws IOException якщо не вдалося прочитати знімок або відкрити сегмент.
+     */
+    @Override
+    public void load() throws IOException {
+        synchronized (this) {
+            Files.createDirectories(logDirectory);
+            readSnapshot();
+            replaySegments();
+            openNewSegment();
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * Повертає копію всіх поточних сутностей у порядку їх першого додавання.
+     *
+     * @return список сутностей.
+     */
+    @Override
+    public synchronized List<V> scan() {
+        return entries.values();
+    }
+
+    /**
+     * Повертає сутність за ідентифікатором.
+     *
+     * @param id ідентифікатор сутності.
+     * @return сутність або null, якщо її немає.
+     */
+    @Override
+    public synchronized V get(Integer id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Додає або оновлює сутність і дописує відповідний запис у журнал.
+     *
+     * @param value сутність для збереження.
+     * @throws IOException якщо не вдалося дописати запис.
+     */
+    @Override
+    public synchronized void put(V value) throws IOException {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", "put");
+        record.add("value", gson.toJsonTree(value, valueType));
+        append(record);
+        entries.put(idOf.applyAsInt(value), value);
+    }
+
+    /**
+     * Видаляє сутність за ідентифікатором і дописує надгробок у журнал.
+     *
+     * @param id ідентифікатор сутності.
+     * @return true, якщо сутність існувала та була видалена, інакше false.
+     * @throws IOException якщо не вдалося дописати запис.
+     */
+    @Override
+    public synchronized boolean delete(Integer id) throws IOException {
+        if (!entries.containsKey(id)) {
+            return false;
+        }
+        JsonObject record = new JsonObject();
+        record.addProperty("op", "delete");
+        record.addProperty("key", id);
+        append(record);
+        entries.remove(id);
+        return true;
+    }
+
+    /**
+     * Примусово скидає на диск усі дописані записи активного сегмента.
+     *
+     * @throws IOException якщо скидання не вдалося.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (unsynced && activeChannel != null) {
+            activeChannel.force(false);
+            unsynced = false;
+        }
+    }
+
+    /**
+     * Скидає записи на диск та закриває журнал. Спершу дочікується завершення вже запланованого
+     * ущільнення, щоб воно не працювало із закритим сегментом.
+     *
+     * @throws IOException якщо не вдалося закрити активний сегмент або очікування перервано.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Перервано очікування ущільнення журналу");
+        }
+        synchronized (this) {
+            flush();
+            if (activeChannel != null) {
+                activeChannel.close();
+                activeChannel = null;
+            }
+        }
+    }
+
+    /**
+     * Дописує запис в активний сегмент з урахуванням режиму довговічності та, за потреби,
+     * переходить до нового сегмента.
+     *
+     * @param record запис журналу.
+     * @throws IOException якщо запис не вдався.
+     */
+    private void append(JsonObject record) throws IOException {
+        byte[] line = (gson.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            activeChannel.write(buffer);
+        }
+
+        if (durability == Durability.SYNC) {
+            activeChannel.force(false);
+        } else {
+            unsynced = true;
+            if (durability == Durability.BATCHED) {
+                WriteBehindFlusher.shared().markDirty(this, this::syncQuietly,
+                    batchIntervalMillis, batchIntervalMillis);
+            }
+        }
+
+        if (activeChannel.size() >= segmentBytes) {
+            rollSegment();
+            scheduleCompactionIfNeeded();
+        }
+    }
+
+    /**
+     * Закриває активний сегмент, додає його до списку закритих та відкриває новий.
+     *
+     * @throws IOException якщо не вдалося закрити або відкрити сегмент.
+     */
+    private void rollSegment() throws IOException {
+        if (durability != Durability.OS_BUFFERED) {
+            activeChannel.force(false);
+        }
+        unsynced = false;
+        activeChannel.close();
+        sealedSegments.put(activeSegment, segmentPath(activeSegment));
+        openNewSegment();
+    }
+
+    /**
+     * Відкриває новий порожній активний сегмент з наступним порядковим номером.
+     *
+     * @throws IOException якщо не вдалося створити файл сегмента.
+     */
+    private void openNewSegment() throws IOException {
+        activeSegment = sealedSegments.isEmpty() ? activeSegment + 1
+            : Math.max(activeSegment, sealedSegments.lastKey()) + 1;
+        activeChannel = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Ставить у чергу фонове ущільнення, якщо кількість закритих сегментів досягла порогу.
+     */
+    private synchronized void scheduleCompactionIfNeeded() {
+        if (!compacting && !executor.isShutdown()
+            && sealedSegments.size() >= compactionThreshold) {
+            compacting = true;
+            executor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Ущільнює журнал: фіксує поточний стан, записує його як новий знімок і видаляє сегменти, що
+     * увійшли до знімка. Запис знімка відбувається поза блокуванням, тож нові записи не чекають на
+     * ущільнення.
+     */
+    private void compact() {
+        List<V> state;
+        List<Path> folded;
+        synchronized (this) {
+            try {
+                if (activeChannel.size() > 0) {
+                    rollSegment();
+                }
+            } catch (IOException e) {
+                compacting = false;
+                e.printStackTrace();
+                return;
+            }
+            state = entries.values();
+            folded = new ArrayList<>(sealedSegments.values());
+        }
+
+        try {
+            writeSnapshot(state);
+            for (Path segment : folded) {
+                Files.deleteIfExists(segment);
+            }
+            synchronized (this) {
+                sealedSegments.values().removeAll(folded);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Записує знімок через {@link AtomicFileWriter}, тож попередній знімок замінюється лише
+     * повністю записаним і скинутим на диск файлом.
+     *
+     * @param state сутності для запису.
+     * @throws IOException якщо запис не вдався.
+     */
+    private void writeSnapshot(List<V> state) throws IOException {
+        AtomicFileWriter.writeArray(snapshotFile, gson, state, valueType);
+    }
+
+    /**
+     * Потоково зчитує знімок через {@link StreamingJsonLoader}, якщо він існує.
+     *
+     * @throws IOException якщо не вдалося прочитати файл.
+     */
+    private void readSnapshot() throws IOException {
+        StreamingJsonLoader.<V>streamArray(snapshotFile, gson, valueType,
+            StreamingJsonLoader.NO_LIMIT, StreamingJsonLoader.ProgressListener.NONE,
+            value -> entries.put(idOf.applyAsInt(value), value));
+    }
+
+    /**
+     * Програє всі наявні сегменти за зростанням їх номерів.
+     *
+     * @throws IOException якщо не вдалося прочитати сегмент або журнал пошкоджено.
+     */
+    private void replaySegments() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDirectory,
+            SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                String name = segment.getFileName().toString();
+                try {
+                    long number = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length()));
+                    sealedSegments.put(number, segment);
+                } catch (NumberFormatException ignored) {
+                    // Сторонній файл у каталозі журналу — пропускаємо.
+                }
+            }
+        }
+
+        for (Path segment : sealedSegments.values()) {
+            replaySegment(segment, segment.equals(sealedSegments.lastEntry().getValue()));
+        }
+        if (!sealedSegments.isEmpty()) {
+            activeSegment = sealedSegments.lastKey();
+        }
+    }
+
+    /**
+     * Програє один сегмент. Якщо не вдається розібрати останній рядок останнього сегмента, це
+     * запис, недописаний під час збою: він відрізається від файлу, щоб сегмент залишився цілим і
+     * після відкриття нового активного сегмента.
+     *
+     * @param segment файл сегмента.
+     * @param last    true для сегмента, який був активним до відкриття журналу.
+     * @throws IOException якщо сегмент не вдалося прочитати або в ньому є пошкоджений запис.
+     */
+    private void replaySegment(Path segment, boolean last) throws IOException {
+        byte[] data = Files.readAllBytes(segment);
+        int start = 0;
+        int lineNumber = 0;
+        while (start < data.length) {
+            int end = start;
+            while (end < data.length && data[end] != '\n') {
+                end++;
+            }
+            lineNumber++;
+            String line = new String(data, start, end - start, StandardCharsets.UTF_8);
+            if (!line.isBlank()) {
+                try {
+                    applyRecord(line);
+                } catch (JsonParseException | IllegalStateException | NullPointerException
+                    | NumberFormatException | UnsupportedOperationException e) {
+                    if (!last || !isBlank(data, end)) {
+                        throw new IOException("Пошкоджений запис " + lineNumber
+                            + " у сегменті журналу " + segment, e);
+                    }
+                    try (FileChannel channel = FileChannel.open(segment,
+                        StandardOpenOption.WRITE)) {
+                        channel.truncate(start);
+                        channel.force(true);
+                    }
+                    return;
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Перевіряє, чи містить решта сегмента лише пробільні символи.
+     *
+     * @param data вміст сегмента.
+     * @param from позиція, з якої починається перевірка.
+     * @return true, якщо після позиції немає інших записів.
+     */
+    private static boolean isBlank(byte[] data, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] != '\n' && data[i] != '\r' && data[i] != ' ' && data[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Застосовує один рядок журналу до поточного стану. Стан змінюється лише після повного
+     * розбору запису.
+     *
+     * @param line JSON-рядок запису.
+     * @throws JsonParseException    якщо рядок не є записом журналу.
+     * @throws IllegalStateException якщо запис має невідому операцію або неочікувану структуру.
+     */
+    private void applyRecord(String line) {
+        JsonObject record = JsonParser.parseString(line).getAsJsonObject();
+        String op = record.get("op").getAsString();
+        if ("put".equals(op)) {
+            V value = gson.fromJson(record.get("value"), valueType);
+            entries.put(idOf.applyAsInt(value), value);
+        } else if ("delete".equals(op)) {
+            entries.remove(record.get("key").getAsInt());
+        } else {
+            throw new IllegalStateException("Невідома операція журналу: " + op);
+        }
+    }
+
+    /**
+     * Повертає шлях до файлу сегмента за його номером.
+     *
+     * @param number номер сегмента.
+     * @return шлях до файлу сегмента.
+     */
+    private Path segmentPath(long number) {
+        return logDirectory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number,
+            SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Скидає записи на диск, не пробрасуючи винятків. Використовується для пакетного скидання
+     * через {@link WriteBehindFlusher}.
+     */
+    private void syncQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
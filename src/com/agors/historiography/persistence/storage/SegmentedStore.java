@@ -0,0 +1,358 @@
+package com.agors.historiography.persistence.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Сховище сутностей у сегментах фіксованої місткості. Сутності розкладаються по сегментах у
+ * порядку додавання; кожен сегмент зберігається в окремому JSON-файлі, а маніфест перелічує файли
+ * сегментів у порядку їх читання.
+ * <p>
+ * Сховище відстежує, які сегменти змінилися після останнього збереження, тож збереження
+ * перезаписує лише змінені сегменти, а не всі сутності. Змінений сегмент записується в новий
+ * файл, після чого атомарно замінюється маніфест і лише потім видаляються застарілі файли, тому
+ * після збою маніфест завжди посилається на повний узгоджений набір сегментів. Запис виконується
+ * через {@link WriteBehindFlusher}.
+ *
+ * @param <V> тип сутності.
+ */
+public class SegmentedStore<V> implements StorageEngine<Integer, V> {
+
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".json";
+
+    private final Path directory;
+    private final Type valueType;
+    private final ToIntFunction<V> idOf;
+    private final int capacity;
+    private final Gson gson = JsonCodec.gson();
+    private final List<Segment<V>> segments = new ArrayList<>();
+    private final IntHashMap<Segment<V>> segmentOf = new IntHashMap<>();
+    private final List<String> obsoleteFiles = new ArrayList<>();
+    private boolean manifestDirty;
+    private long nextFileNumber = 1;
+
+    /**
+     * Конструктор сховища. Маніфест і сегменти зчитуються під час {@link #load()}.
+     *
+     * @param directory каталог сегментів.
+     * @param valueType тип сутності для серіалізації.
+     * @param idOf      функція, що повертає ідентифікатор сутності.
+     * @param capacity  максимальна кількість сутностей в одному сегменті.
+     */
+    public SegmentedStore(Path directory, Type valueType, ToIntFunction<V> idOf, int capacity) {
+        this.directory = directory;
+        this.valueType = valueType;
+        this.idOf = idOf;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Перевіряє, чи існує маніфест у вказаному каталозі.
+     *
+     * @param directory каталог сегментів.
+     * @return true, якщо сховище вже створене.
+     */
+    public static boolean exists(Path directory) {
+        return Files.exists(directory.resolve(MANIFEST_FILE));
+    }
+
+    /**
+     * Зчитує маніфест і всі сегменти, на які він посилається. Файли сегментів, що залишилися
+     * після перерваного збереження і не згадані в маніфесті, видаляються.
+     *
+     * @throws IOException якщо маніфест або сегмент не вдалося прочитати.
+     */
+    @Override
+    public synchronized void load() throws IOException {
+        Files.createDirectories(directory);
+        Set<String> referenced = new HashSet<>();
+        for (String file : readManifest()) {
+            Segment<V> segment = new Segment<>(file);
+            StreamingJsonLoader.<V>streamArray(directory.resolve(file), gson, valueType,
+                StreamingJsonLoader.NO_LIMIT, StreamingJsonLoader.ProgressListener.NONE,
+                value -> {
+                    int id = idOf.applyAsInt(value);
+                    segment.records.put(id, value);
+                    segmentOf.put(id, segment);
+                });
+            segments.add(segment);
+            referenced.add(file);
+        }
+        deleteUnreferenced(referenced);
+    }
+
+    @Override
+    public synchronized List<V> scan() {
+        List<V> result = new ArrayList<>(segmentOf.size());
+        for (Segment<V> segment : segments) {
+            result.addAll(segment.records.values());
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized V get(Integer id) {
+        Segment<V> segment = segmentOf.get(id);
+        return segment == null ? null : segment.records.get(id);
+    }
+
+    /**
+     * Додає або оновлює сутність. Оновлена сутність залишається у своєму сегменті, а нова
+     * дописується в останній сегмент або, якщо він заповнений, у новий. Позначається змінним лише
+     * цей сегмент.
+     *
+     * @param value сутність для збереження.
+     */
+    @Override
+    public void put(V value) {
+        synchronized (this) {
+            int id = idOf.applyAsInt(value);
+            Segment<V> segment = segmentOf.get(id);
+            if (segment == null) {
+                segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (segment == null || segment.records.size() >= capacity) {
+                    segment = new Segment<>(null);
+                    segments.add(segment);
+                    manifestDirty = true;
+                }
+                segmentOf.put(id, segment);
+            }
+            segment.records.put(id, value);
+            segment.dirty = true;
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * Видаляє сутність і позначає змінним лише її сегмент. Сегмент, що став порожнім, вилучається
+     * з маніфесту.
+     *
+     * @param id ідентифікатор сутності.
+     * @return true, якщо сутність була видалена.
+     */
+    @Override
+    public boolean delete(Integer id) {
+        synchronized (this) {
+            Segment<V> segment = segmentOf.remove(id);
+            if (segment == null) {
+                return false;
+            }
+            segment.records.remove(id);
+            if (segment.records.isEmpty()) {
+                segments.remove(segment);
+                if (segment.file != null) {
+                    obsoleteFiles.add(segment.file);
+                }
+                manifestDirty = true;
+            } else {
+                segment.dirty = true;
+            }
+        }
+        scheduleWrite();
+        return true;
+    }
+
+    /**
+     * Негайно записує всі змінені сегменти та маніфест.
+     */
+    @Override
+    public void flush() {
+        WriteBehindFlusher.shared().flush(manifestPath());
+    }
+
+    /**
+     * Записує всі незбережені зміни. Сховище не утримує відкритих файлів.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Планує відкладене збереження змінених сегментів.
+     */
+    private void scheduleWrite() {
+        WriteBehindFlusher.shared().markDirty(manifestPath(), this::writeDirty);
+    }
+
+    /**
+     * Записує змінені сегменти в нові файли, атомарно замінює маніфест і видаляє файли, на які
+     * маніфест більше не посилається. Якщо запис не вдався, сегменти знову позначаються змінними.
+     */
+    private void writeDirty() {
+        List<Segment<V>> written = new ArrayList<>();
+        List<String> newFiles = new ArrayList<>();
+        List<List<V>> snapshots = new ArrayList<>();
+        List<String> manifest = new ArrayList<>();
+        List<String> obsolete;
+        synchronized (this) {
+            if (!manifestDirty && segments.stream().noneMatch(segment -> segment.dirty)) {
+                return;
+            }
+            for (Segment<V> segment : segments) {
+                String file = segment.file;
+                if (segment.dirty || file == null) {
+                    file = String.format("%s%06d%s", SEGMENT_PREFIX, nextFileNumber++,
+                        SEGMENT_SUFFIX);
+                    written.add(segment);
+                    newFiles.add(file);
+                    snapshots.add(new ArrayList<>(segment.records.values()));
+                    segment.dirty = false;
+                }
+                manifest.add(file);
+            }
+            obsolete = new ArrayList<>(obsoleteFiles);
+            obsoleteFiles.clear();
+            manifestDirty = false;
+        }
+
+        try {
+            for (int i = 0; i < written.size(); i++) {
+                AtomicFileWriter.writeArray(directory.resolve(newFiles.get(i)), gson,
+                    snapshots.get(i), valueType);
+            }
+            writeManifest(manifest);
+        } catch (IOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                written.forEach(segment -> segment.dirty = true);
+                obsoleteFiles.addAll(obsolete);
+                obsoleteFiles.addAll(newFiles);
+                manifestDirty = true;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < written.size(); i++) {
+                Segment<V> segment = written.get(i);
+                if (segment.file != null) {
+                    obsolete.add(segment.file);
+                }
+                segment.file = newFiles.get(i);
+                if (!segments.contains(segment)) {
+                    obsoleteFiles.add(segment.file);
+                }
+            }
+        }
+        for (String file : obsolete) {
+            try {
+                Files.deleteIfExists(directory.resolve(file));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Видаляє з каталогу файли сегментів, на які не посилається маніфест.
+     *
+     * @param referenced назви файлів, згаданих у маніфесті.
+     * @throws IOException якщо каталог не вдалося прочитати.
+     */
+    private void deleteUnreferenced(Set<String> referenced) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+            SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!referenced.contains(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Повертає шлях до файлу маніфесту. Він також є ключем відкладеного запису сховища.
+     *
+     * @return шлях до маніфесту.
+     */
+    private Path manifestPath() {
+        return directory.resolve(MANIFEST_FILE);
+    }
+
+    /**
+     * Зчитує маніфест, якщо він існує.
+     *
+     * @return назви файлів сегментів у порядку читання.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    private List<String> readManifest() throws IOException {
+        List<String> files = new ArrayList<>();
+        Path manifest = manifestPath();
+        if (!Files.exists(manifest)) {
+            return files;
+        }
+        try (Reader reader = new InputStreamReader(BlockCompressedFile.newInputStream(manifest),
+            StandardCharsets.UTF_8)) {
+            JsonObject data = gson.fromJson(new JsonReader(reader), JsonObject.class);
+            nextFileNumber = data.get("nextFile").getAsLong();
+            for (JsonElement file : data.getAsJsonArray("segments")) {
+                files.add(file.getAsString());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Синхронно та атомарно записує маніфест.
+     *
+     * @param files назви файлів сегментів у порядку читання.
+     * @throws IOException якщо запис не вдався.
+     */
+    private void writeManifest(List<String> files) throws IOException {
+        long nextFile;
+        synchronized (this) {
+            nextFile = nextFileNumber;
+        }
+        AtomicFileWriter.writeJson(manifestPath(), true, writer -> {
+            writer.beginObject();
+            writer.name("version").value(1);
+            writer.name("capacity").value(capacity);
+            writer.name("nextFile").value(nextFile);
+            writer.name("segments").beginArray();
+            for (String file : files) {
+                writer.value(file);
+            }
+            writer.endArray();
+            writer.endObject();
+        });
+    }
+
+    /**
+     * Один сегмент сховища.
+     *
+     * @param <V> тип сутності.
+     */
+    private static final class Segment<V> {
+
+        private final IntHashMap<V> records = new IntHashMap<>();
+        private String file; // null, якщо сегмент ще не записаний
+        private boolean dirty;
+
+        /**
+         * Конструктор сегмента.
+         *
+         * @param file назва файлу сегмента або null для нового сегмента.
+         */
+        Segment(String file) {
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,733 @@
+package com.agors.historiography.persistence.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Сховище сутностей, розподілених на шарди за ключем розділу (наприклад, за назвою історичного
+ * місця). Кожен шард зберігається в окремому JSON-файлі, а невеликий файл маніфесту зіставляє
+ * ключі розділів з файлами шардів і зберігає межу виданих ідентифікаторів.
+ * <p>
+ * Шарди завантажуються ліниво під час першого звернення до розділу. Додавання або видалення
+ * сутності перезаписує лише шард її розділу; запис виконується через {@link WriteBehindFlusher}.
+ * Маніфест перезаписується синхронно лише під час створення нового шарду або вичерпання блоку
+ * ідентифікаторів, причому завжди раніше за сам шард, тож після збою маніфест ніколи не
+ * посилається на втрачені дані.
+ * <p>
+ * Сховище з наявними сутностями створюється методом {@link #create}: усі шарди та маніфест
+ * записуються один раз у тимчасовий каталог, який потім атомарно перейменовується на каталог
+ * сховища. Тож маніфест у каталозі сховища означає завершене створення, а збій посеред
+ * перенесення не залишає сховища, у якому бракує частини сутностей.
+ * <p>
+ * Якщо задано міру сутності, сховище веде зведення кожного розділу — скільки сутностей має кожне
+ * значення міри — у файлі {@code summary.json}, тож зведення можна отримати без читання шардів.
+ * Зведення розділу записується після його шарду разом з розміром і часом зміни записаного файлу.
+ * Під час відкриття зведення, що не відповідає файлу шарду (збій між двома записами), будується
+ * заново з самого шарду.
+ * <p>
+ * Якщо шард не вдалося прочитати, помилка передається викликачу, а шард не вважається
+ * завантаженим: наступне звернення повторить читання. Тож зміна розділу ніколи не перезапише
+ * файл шарду, який не було прочитано.
+ *
+ * @param <V> тип сутності.
+ */
+public class ShardedStore<V> implements StorageEngine<Integer, V> {
+
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String SUMMARY_FILE = "summary.json";
+    private static final String SHARD_PREFIX = "shard-";
+    private static final String SHARD_SUFFIX = ".json";
+    private static final int ID_BLOCK = 1000;
+
+    private final Path directory;
+    private final Type valueType;
+    private final ToIntFunction<V> idOf;
+    private final Function<V, String> partitionOf;
+    private final ToIntFunction<V> measureOf; // null, якщо зведення розділів не ведеться
+    private final Gson gson = JsonCodec.gson();
+    private final Map<String, String> shardFiles = new LinkedHashMap<>();
+    private final Map<String, IntHashMap<V>> loadedShards = new HashMap<>();
+    private final IntHashMap<String> partitionOfId = new IntHashMap<>();
+    private final Map<String, PartitionSummary> writtenSummaries = new HashMap<>();
+    private int idCeiling;
+    private int nextId;
+    private int nextShardNumber = 1;
+
+    /**
+     * Конструктор сховища. Маніфест зчитується під час {@link #load()}.
+     *
+     * @param directory   каталог шардів.
+     * @param valueType   тип сутності для серіалізації.
+     * @param idOf        функція, що повертає ідентифікатор сутності.
+     * @param partitionOf функція, що повертає ключ розділу сутності.
+     */
+    public ShardedStore(Path directory, Type valueType, ToIntFunction<V> idOf,
+        Function<V, String> partitionOf) {
+        this(directory, valueType, idOf, partitionOf, null);
+    }
+
+    /**
+     * Конструктор сховища, що веде зведення розділів за мірою сутності.
+     *
+     * @param directory   каталог шардів.
+     * @param valueType   тип сутності для серіалізації.
+     * @param idOf        функція, що повертає ідентифікатор сутності.
+     * @param partitionOf функція, що повертає ключ розділу сутності.
+     * @param measureOf   функція, що повертає міру сутності, або null без зведень.
+     */
+    public ShardedStore(Path directory, Type valueType, ToIntFunction<V> idOf,
+        Function<V, String> partitionOf, ToIntFunction<V> measureOf) {
+        this.directory = directory;
+        this.valueType = valueType;
+        this.idOf = idOf;
+        this.partitionOf = partitionOf;
+        this.measureOf = measureOf;
+    }
+
+    /**
+     * Відкриває сховище та зчитує маніфест і зведення. Шарди завантажуються лише для розділів,
+     * зведення яких відсутнє або не відповідає файлу шарду.
+     *
+     * @throws IOException якщо маніфест, зведення або застарілий шард не вдалося прочитати.
+     */
+    @Override
+    public synchronized void load() throws IOException {
+        Files.createDirectories(directory);
+        readManifest();
+        nextId = idCeiling + 1;
+        if (measureOf != null) {
+            readSummaries();
+            boolean changed = false;
+            for (String partition : shardFiles.keySet()) {
+                PartitionSummary summary = writtenSummaries.get(partition);
+                if (summary == null || !summary.matches(shardPath(partition))) {
+                    Path file = shardPath(partition);
+                    List<V> values = loadShard(partition).values();
+                    writtenSummaries.put(partition, PartitionSummary.of(file,
+                        countMeasures(values, measureOf)));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                WriteBehindFlusher.shared().markDirty(summaryPath(), this::writeSummaries);
+            }
+        }
+    }
+
+    /**
+     * Перевіряє, чи існує маніфест у вказаному каталозі.
+     *
+     * @param directory каталог шардів.
+     * @return true, якщо сховище вже створене.
+     */
+    public static boolean exists(Path directory) {
+        return Files.exists(directory.resolve(MANIFEST_FILE));
+    }
+
+    /**
+     * Створює сховище з переданими сутностями. Шарди та маніфест записуються у тимчасовий каталог
+     * поруч, маніфест — лише один раз наприкінці, після чого каталог атомарно перейменовується на
+     * каталог сховища. Залишки незавершеного створення (каталог без маніфесту) видаляються.
+     *
+     * @param directory   каталог шардів; сховища в ньому ще не повинно бути.
+     * @param valueType   тип сутності для серіалізації.
+     * @param idOf        функція, що повертає ідентифікатор сутності.
+     * @param partitionOf функція, що повертає ключ розділу сутності.
+     * @param measureOf   функція, що повертає міру сутності, або null без зведень.
+     * @param values      сутності для перенесення.
+     * @param <V>         тип сутності.
+     * @throws IOException якщо сховище вже існує або його не вдалося записати.
+     */
+    public static <V> void create(Path directory, Type valueType, ToIntFunction<V> idOf,
+        Function<V, String> partitionOf, ToIntFunction<V> measureOf, Iterable<V> values)
+        throws IOException {
+        Path target = directory.toAbsolutePath().normalize();
+        if (exists(target)) {
+            throw new IOException("Шардоване сховище вже існує: " + target);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".creating");
+        deleteDirectory(temp);
+        deleteDirectory(target);
+        Files.createDirectories(temp);
+
+        Map<String, List<V>> partitions = new LinkedHashMap<>();
+        int ceiling = 0;
+        for (V value : values) {
+            partitions.computeIfAbsent(partitionOf.apply(value), key -> new ArrayList<>())
+                .add(value);
+            ceiling = Math.max(ceiling, idOf.applyAsInt(value));
+        }
+        Gson gson = JsonCodec.gson();
+        Map<String, String> files = new LinkedHashMap<>();
+        Map<String, PartitionSummary> summaries = new LinkedHashMap<>();
+        for (Map.Entry<String, List<V>> entry : partitions.entrySet()) {
+            String file = shardFileName(files.size() + 1);
+            AtomicFileWriter.writeArray(temp.resolve(file), gson, entry.getValue(), valueType);
+            files.put(entry.getKey(), file);
+            if (measureOf != null) {
+                summaries.put(entry.getKey(), PartitionSummary.of(temp.resolve(file),
+                    countMeasures(entry.getValue(), measureOf)));
+            }
+        }
+        if (measureOf != null) {
+            writeSummaries(temp.resolve(SUMMARY_FILE), summaries);
+        }
+        writeManifest(temp, ceiling, files);
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        AtomicFileWriter.syncDirectory(target.getParent());
+    }
+
+    /**
+     * Видаляє каталог незавершеного створення сховища разом з файлами, якщо він існує.
+     *
+     * @param directory каталог.
+     * @throws IOException якщо каталог не вдалося видалити.
+     */
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Видає новий унікальний ідентифікатор. Ідентифікатори резервуються в маніфесті блоками, тож
+     * маніфест перезаписується лише раз на блок.
+     *
+     * @return новий ідентифікатор.
+     * @throws IOException якщо не вдалося зберегти маніфест.
+     */
+    public synchronized int nextId() throws IOException {
+        if (nextId > idCeiling) {
+            idCeiling = nextId + ID_BLOCK - 1;
+            writeManifest();
+        }
+        return nextId++;
+    }
+
+    /**
+     * Повертає сутності одного розділу, завантажуючи його шард під час першого звернення.
+     *
+     * @param partition ключ розділу.
+     * @return список сутностей розділу в порядку додавання.
+     * @throws UncheckedIOException якщо шард не вдалося прочитати.
+     */
+    public synchronized List<V> partition(String partition) {
+        return shard(partition).values();
+    }
+
+    /**
+     * Повертає ключі всіх розділів сховища.
+     *
+     * @return список ключів розділів у порядку створення.
+     */
+    public synchronized List<String> partitions() {
+        return new ArrayList<>(shardFiles.keySet());
+    }
+
+    /**
+     * Повертає зведення розділу: скільки його сутностей має кожне значення міри. Для
+     * незавантаженого розділу зведення береться з файлу зведень без читання шарду.
+     *
+     * @param partition ключ розділу.
+     * @return нова таблиця кількостей сутностей за значенням міри; порожня для невідомого розділу.
+     * @throws IllegalStateException якщо сховище не веде зведень.
+     */
+    public synchronized IntHashMap<Integer> measureCounts(String partition) {
+        if (measureOf == null) {
+            throw new IllegalStateException("Сховище не веде зведень розділів");
+        }
+        IntHashMap<V> shard = loadedShards.get(partition);
+        if (shard != null) {
+            return countMeasures(shard.values(), measureOf);
+        }
+        PartitionSummary summary = writtenSummaries.get(partition);
+        IntHashMap<Integer> counts = new IntHashMap<>();
+        if (summary != null) {
+            summary.counts.forEach(counts::put);
+        }
+        return counts;
+    }
+
+    /**
+     * Повертає сутності всіх розділів. Завантажує всі ще не завантажені шарди.
+     *
+     * @return список усіх сутностей.
+     * @throws UncheckedIOException якщо шард не вдалося прочитати.
+     */
+    @Override
+    public synchronized List<V> scan() {
+        List<V> result = new ArrayList<>();
+        for (String partition : shardFiles.keySet()) {
+            result.addAll(shard(partition).values());
+        }
+        return result;
+    }
+
+    /**
+     * Повертає сутність за ідентифікатором, коли її розділ невідомий. Спочатку перевіряються вже
+     * завантажені шарди, а потім, за потреби, завантажуються решта.
+     *
+     * @param id ідентифікатор сутності.
+     * @return сутність або null, якщо її немає.
+     */
+    @Override
+    public synchronized V get(Integer id) {
+        String partition = findPartition(id);
+        return partition == null ? null : shard(partition).get(id);
+    }
+
+    /**
+     * Додає або оновлює сутність і перезаписує лише шард її розділу. Якщо сутність з тим самим
+     * ідентифікатором є в іншому завантаженому шарді, вона звідти видаляється.
+     *
+     * @param value сутність для збереження.
+     * @throws IOException якщо не вдалося прочитати шард розділу або створити шард для нового
+     *                     розділу.
+     */
+    @Override
+    public synchronized void put(V value) throws IOException {
+        String partition = partitionOf.apply(value);
+        int id = idOf.applyAsInt(value);
+        IntHashMap<V> target = loadShard(partition);
+        String previous = partitionOfId.get(id);
+        if (previous != null && !previous.equals(partition)) {
+            loadShard(previous);
+        }
+        boolean manifestChanged = false;
+        if (!shardFiles.containsKey(partition)) {
+            shardFiles.put(partition, shardFileName(nextShardNumber++));
+            manifestChanged = true;
+        }
+        if (id >= nextId) {
+            nextId = id + 1;
+        }
+        if (id > idCeiling) {
+            idCeiling = id + ID_BLOCK - 1;
+            manifestChanged = true;
+        }
+        if (manifestChanged) {
+            writeManifest();
+        }
+        if (previous != null && !previous.equals(partition)) {
+            delete(previous, id);
+        }
+        target.put(id, value);
+        partitionOfId.put(id, partition);
+        scheduleShardWrite(partition);
+    }
+
+    /**
+     * Видаляє сутність із вказаного розділу та перезаписує лише його шард.
+     *
+     * @param partition ключ розділу.
+     * @param id        ідентифікатор сутності.
+     * @return true, якщо сутність була видалена.
+     * @throws UncheckedIOException якщо шард розділу не вдалося прочитати.
+     */
+    public synchronized boolean delete(String partition, int id) {
+        if (!shardFiles.containsKey(partition) || shard(partition).remove(id) == null) {
+            return false;
+        }
+        partitionOfId.remove(id);
+        scheduleShardWrite(partition);
+        return true;
+    }
+
+    /**
+     * Видаляє сутність за ідентифікатором, коли її розділ невідомий. Спочатку перевіряються вже
+     * завантажені шарди, а потім, за потреби, завантажуються решта.
+     *
+     * @param id ідентифікатор сутності.
+     * @return true, якщо сутність була видалена.
+     */
+    @Override
+    public synchronized boolean delete(Integer id) {
+        String partition = findPartition(id);
+        return partition != null && delete(partition, id);
+    }
+
+    /**
+     * Негайно записує всі незбережені шарди, а після них — зведення.
+     */
+    @Override
+    public void flush() {
+        List<Path> files = new ArrayList<>();
+        synchronized (this) {
+            for (String partition : loadedShards.keySet()) {
+                if (shardFiles.containsKey(partition)) {
+                    files.add(shardPath(partition));
+                }
+            }
+        }
+        if (measureOf != null) {
+            files.add(summaryPath());
+        }
+        for (Path file : files) {
+            WriteBehindFlusher.shared().flush(file);
+        }
+    }
+
+    /**
+     * Записує всі незбережені шарди. Сховище не утримує відкритих файлів.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Шукає розділ, що містить сутність з вказаним ідентифікатором. Для завантажених шардів
+     * розділ визначається за O(1) з індексу ідентифікаторів, а решта шардів, за потреби,
+     * завантажуються по одному.
+     *
+     * @param id ідентифікатор сутності.
+     * @return ключ розділу або null, якщо сутність не знайдено.
+     */
+    private String findPartition(int id) {
+        String partition = partitionOfId.get(id);
+        if (partition != null) {
+            return partition;
+        }
+        for (String candidate : shardFiles.keySet()) {
+            if (!loadedShards.containsKey(candidate) && shard(candidate).containsKey(id)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Повертає шард розділу, завантажуючи його з файлу під час першого звернення.
+     *
+     * @param partition ключ розділу.
+     * @return сутності шарду за ідентифікатором.
+     * @throws UncheckedIOException якщо шард не вдалося прочитати.
+     */
+    private IntHashMap<V> shard(String partition) {
+        try {
+            return loadShard(partition);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не вдалося прочитати шард розділу: " + partition, e);
+        }
+    }
+
+    /**
+     * Повертає шард розділу, завантажуючи його з файлу під час першого звернення. Шард
+     * запам'ятовується як завантажений лише після успішного читання всього файлу.
+     *
+     * @param partition ключ розділу.
+     * @return сутності шарду за ідентифікатором.
+     * @throws IOException якщо файл шарду не вдалося прочитати.
+     */
+    private IntHashMap<V> loadShard(String partition) throws IOException {
+        IntHashMap<V> shard = loadedShards.get(partition);
+        if (shard == null) {
+            IntHashMap<V> target = new IntHashMap<>();
+            String file = shardFiles.get(partition);
+            if (file != null) {
+                StreamingJsonLoader.<V>streamArray(directory.resolve(file), gson, valueType,
+                    StreamingJsonLoader.NO_LIMIT, StreamingJsonLoader.ProgressListener.NONE,
+                    value -> target.put(idOf.applyAsInt(value), value));
+            }
+            target.forEach((id, value) -> partitionOfId.put(id, partition));
+            loadedShards.put(partition, target);
+            shard = target;
+        }
+        return shard;
+    }
+
+    /**
+     * Планує відкладений запис шарду розділу.
+     *
+     * @param partition ключ розділу.
+     */
+    private void scheduleShardWrite(String partition) {
+        WriteBehindFlusher.shared().markDirty(shardPath(partition), () -> writeShard(partition));
+    }
+
+    /**
+     * Записує знімок шарду розділу у його файл і планує запис зведення, що відповідає саме
+     * записаному знімку.
+     *
+     * @param partition ключ розділу.
+     */
+    private void writeShard(String partition) {
+        List<V> snapshot;
+        Path file;
+        synchronized (this) {
+            snapshot = shard(partition).values();
+            file = shardPath(partition);
+        }
+        try {
+            AtomicFileWriter.writeArray(file, gson, snapshot, valueType);
+            if (measureOf != null) {
+                PartitionSummary summary = PartitionSummary.of(file,
+                    countMeasures(snapshot, measureOf));
+                synchronized (this) {
+                    writtenSummaries.put(partition, summary);
+                }
+                WriteBehindFlusher.shared().markDirty(summaryPath(), this::writeSummaries);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Записує зведення вже записаних шардів у файл зведень.
+     */
+    private void writeSummaries() {
+        Map<String, PartitionSummary> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(writtenSummaries);
+        }
+        try {
+            writeSummaries(summaryPath(), snapshot);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Повертає шлях до файлу зведень.
+     *
+     * @return шлях до файлу зведень.
+     */
+    private Path summaryPath() {
+        return directory.resolve(SUMMARY_FILE);
+    }
+
+    /**
+     * Підраховує, скільки сутностей має кожне значення міри.
+     *
+     * @param values    сутності.
+     * @param measureOf функція, що повертає міру сутності.
+     * @param <V>       тип сутності.
+     * @return таблиця кількостей сутностей за значенням міри.
+     */
+    private static <V> IntHashMap<Integer> countMeasures(Iterable<V> values,
+        ToIntFunction<V> measureOf) {
+        IntHashMap<Integer> counts = new IntHashMap<>();
+        for (V value : values) {
+            int measure = measureOf.applyAsInt(value);
+            Integer count = counts.get(measure);
+            counts.put(measure, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    /**
+     * Повертає шлях до файлу шарду розділу.
+     *
+     * @param partition ключ розділу.
+     * @return шлях до файлу шарду.
+     */
+    private Path shardPath(String partition) {
+        return directory.resolve(shardFiles.get(partition));
+    }
+
+    /**
+     * Зчитує маніфест, якщо він існує.
+     *
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    private void readManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifest)) {
+            return;
+        }
+        try (Reader reader = new InputStreamReader(BlockCompressedFile.newInputStream(manifest),
+            StandardCharsets.UTF_8)) {
+            JsonObject data = gson.fromJson(new JsonReader(reader), JsonObject.class);
+            idCeiling = data.get("idCeiling").getAsInt();
+            JsonObject shards = data.getAsJsonObject("shards");
+            for (String partition : shards.keySet()) {
+                String file = shards.get(partition).getAsString();
+                shardFiles.put(partition, file);
+                int number = Integer.parseInt(file.substring(SHARD_PREFIX.length(),
+                    file.length() - SHARD_SUFFIX.length()));
+                nextShardNumber = Math.max(nextShardNumber, number + 1);
+            }
+        }
+    }
+
+    /**
+     * Зчитує файл зведень, якщо він існує.
+     *
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    private void readSummaries() throws IOException {
+        Path file = summaryPath();
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (Reader reader = new InputStreamReader(BlockCompressedFile.newInputStream(file),
+            StandardCharsets.UTF_8)) {
+            JsonObject data = gson.fromJson(new JsonReader(reader), JsonObject.class);
+            JsonObject partitions = data.getAsJsonObject("partitions");
+            for (String partition : partitions.keySet()) {
+                JsonObject entry = partitions.getAsJsonObject(partition);
+                IntHashMap<Integer> counts = new IntHashMap<>();
+                JsonObject measures = entry.getAsJsonObject("counts");
+                for (String measure : measures.keySet()) {
+                    counts.put(Integer.parseInt(measure), measures.get(measure).getAsInt());
+                }
+                writtenSummaries.put(partition, new PartitionSummary(
+                    entry.get("size").getAsLong(), entry.get("modified").getAsLong(), counts));
+            }
+        }
+    }
+
+    /**
+     * Синхронно та атомарно записує файл зведень.
+     *
+     * @param file      файл зведень.
+     * @param summaries зведення за ключами розділів.
+     * @throws IOException якщо запис не вдався.
+     */
+    private static void writeSummaries(Path file, Map<String, PartitionSummary> summaries)
+        throws IOException {
+        AtomicFileWriter.writeJson(file, false, writer -> {
+            writer.beginObject();
+            writer.name("version").value(1);
+            writer.name("partitions").beginObject();
+            for (Map.Entry<String, PartitionSummary> entry : summaries.entrySet()) {
+                PartitionSummary summary = entry.getValue();
+                writer.name(entry.getKey()).beginObject();
+                writer.name("size").value(summary.size);
+                writer.name("modified").value(summary.modified);
+                writer.name("counts").beginObject();
+                for (int measure : summary.counts.keys()) {
+                    writer.name(Integer.toString(measure)).value(summary.counts.get(measure));
+                }
+                writer.endObject();
+                writer.endObject();
+            }
+            writer.endObject();
+            writer.endObject();
+        });
+    }
+
+    /**
+     * Повертає назву файлу шарду за його номером.
+     *
+     * @param number номер шарду.
+     * @return назва файлу шарду.
+     */
+    private static String shardFileName(int number) {
+        return String.format("%s%06d%s", SHARD_PREFIX, number, SHARD_SUFFIX);
+    }
+
+    /**
+     * Синхронно та атомарно записує маніфест.
+     *
+     * @throws IOException якщо запис не вдався.
+     */
+    private void writeManifest() throws IOException {
+        writeManifest(directory, idCeiling, new LinkedHashMap<>(shardFiles));
+    }
+
+    /**
+     * Синхронно та атомарно записує маніфест у вказаний каталог.
+     *
+     * @param directory каталог шардів.
+     * @param ceiling   межа виданих ідентифікаторів.
+     * @param files     файли шардів за ключами розділів.
+     * @throws IOException якщо запис не вдався.
+     */
+    private static void writeManifest(Path directory, int ceiling, Map<String, String> files)
+        throws IOException {
+        AtomicFileWriter.writeJson(directory.resolve(MANIFEST_FILE), true, writer -> {
+            writer.beginObject();
+            writer.name("version").value(1);
+            writer.name("idCeiling").value(ceiling);
+            writer.name("shards").beginObject();
+            for (Map.Entry<String, String> entry : files.entrySet()) {
+                writer.name(entry.getKey()).value(entry.getValue());
+            }
+            writer.endObject();
+            writer.endObject();
+        });
+    }
+
+    /**
+     * Зведення записаного шарду: кількості сутностей за значенням міри, а також розмір і час
+     * зміни файлу шарду, за якими перевіряється, що зведення описує саме цей файл.
+     */
+    private static final class PartitionSummary {
+
+        private final long size;
+        private final long modified;
+        private final IntHashMap<Integer> counts;
+
+        /**
+         * Конструктор зведення.
+         *
+         * @param size     розмір файлу шарду.
+         * @param modified час зміни файлу шарду в наносекундах.
+         * @param counts   кількості сутностей за значенням міри.
+         */
+        PartitionSummary(long size, long modified, IntHashMap<Integer> counts) {
+            this.size = size;
+            this.modified = modified;
+            this.counts = counts;
+        }
+
+        /**
+         * Створює зведення для щойно записаного файлу шарду.
+         *
+         * @param file   файл шарду.
+         * @param counts кількості сутностей за значенням міри.
+         * @return зведення шарду.
+         * @throws IOException якщо атрибути файлу не вдалося прочитати.
+         */
+        static PartitionSummary of(Path file, IntHashMap<Integer> counts) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file,
+                BasicFileAttributes.class);
+            return new PartitionSummary(attributes.size(),
+                attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), counts);
+        }
+
+        /**
+         * Перевіряє, чи зведення описує поточний вміст файлу шарду.
+         *
+         * @param file файл шарду.
+         * @return true, якщо розмір і час зміни файлу збігаються зі збереженими.
+         */
+        boolean matches(Path file) {
+            try {
+                PartitionSummary current = of(file, counts);
+                return current.size == size && current.modified == modified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
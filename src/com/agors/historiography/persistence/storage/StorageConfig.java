@@ -0,0 +1,260 @@
+package com.agors.historiography.persistence.storage;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Налаштування підсистеми зберігання даних. Значення зчитуються з системних властивостей JVM
+ * (наприклад, {@code -Dhistoriography.reviews.durability=SYNC}); якщо властивість не задана,
+ * використовується значення за замовчуванням.
+ */
+public final class StorageConfig {
+
+    private static final String PREFIX = "historiography.";
+
+    private StorageConfig() {
+    }
+
+    /**
+     * Повертає тип рушія зберігання для всіх репозиторіїв.
+     *
+     * @return тип рушія, за замовчуванням {@link StorageEngineType#JSON}.
+     */
+    public static StorageEngineType storageEngine() {
+        return StorageEngineType.parse(System.getProperty(PREFIX + "storage.engine"),
+            StorageEngineType.JSON);
+    }
+
+    /**
+     * Повертає каталог, у якому файлові рушії зберігають дані.
+     *
+     * @return каталог даних, за замовчуванням {@code data}.
+     */
+    public static Path dataDirectory() {
+        String value = System.getProperty(PREFIX + "data.dir");
+        return Paths.get(value == null || value.isBlank() ? "data" : value.trim());
+    }
+
+    /**
+     * Перевіряє, чи записувати файли даних у блоковому стисненому форматі
+     * ({@link BlockCompressedFile}). Читання розпізнає обидва формати незалежно від цього
+     * налаштування.
+     *
+     * @return true, якщо файли записуються стисненими; за замовчуванням false.
+     */
+    public static boolean compressionEnabled() {
+        return getBoolean("storage.compression", false);
+    }
+
+    /**
+     * Повертає розмір блоку стисненого файлу до стиснення в байтах.
+     *
+     * @return розмір блоку в байтах, за замовчуванням 64 КіБ.
+     */
+    public static int compressionBlockBytes() {
+        return (int) Math.min(Integer.MAX_VALUE - 8,
+            getLong("storage.compressionBlockBytes", 64L * 1024L));
+    }
+
+    /**
+     * Повертає режим довговічності журналу відгуків.
+     *
+     * @return режим довговічності, за замовчуванням {@link Durability#BATCHED}.
+     */
+    public static Durability reviewLogDurability() {
+        return Durability.parse(System.getProperty(PREFIX + "reviews.durability"),
+            Durability.BATCHED);
+    }
+
+    /**
+     * Повертає інтервал пакетного скидання журналу на диск у мілісекундах.
+     *
+     * @return інтервал у мілісекундах, за замовчуванням 200.
+     */
+    public static long reviewLogBatchIntervalMillis() {
+        return getLong("reviews.batchIntervalMillis", 200L);
+    }
+
+    /**
+     * Повертає максимальний розмір одного сегмента журналу відгуків у байтах. Після досягнення
+     * цього розміру журнал переходить до нового сегмента.
+     *
+     * @return розмір сегмента в байтах, за замовчуванням 1 МіБ.
+     */
+    public static long reviewLogSegmentBytes() {
+        return getLong("reviews.segmentBytes", 1024L * 1024L);
+    }
+
+    /**
+     * Повертає кількість закритих сегментів журналу, після якої запускається фонове ущільнення.
+     *
+     * @return поріг кількості сегментів, за замовчуванням 4.
+     */
+    public static int reviewLogCompactionThreshold() {
+        return (int) getLong("reviews.compactionThreshold", 4L);
+    }
+
+    /**
+     * Перевіряє, чи увімкнено зберігання відгуків у шардах за історичними місцями
+     * ({@code historiography.reviews.layout=sharded}). За замовчуванням відгуки зберігаються в
+     * сегментованому журналі.
+     *
+     * @return true, якщо відгуки зберігаються в шардах.
+     */
+    public static boolean reviewsSharded() {
+        return "sharded".equalsIgnoreCase(System.getProperty(PREFIX + "reviews.layout", "").trim());
+    }
+
+    /**
+     * Повертає вікно тиші відкладеного запису: збереження виконується, коли протягом цього часу
+     * не надходило нових змін.
+     *
+     * @return вікно тиші в мілісекундах, за замовчуванням 500.
+     */
+    public static long writeBehindDebounceMillis() {
+        return getLong("writeBehind.debounceMillis", 500L);
+    }
+
+    /**
+     * Повертає максимальну затримку відкладеного запису від першої незбереженої зміни.
+     *
+     * @return максимальна затримка в мілісекундах, за замовчуванням 5000.
+     */
+    public static long writeBehindMaxDelayMillis() {
+        return getLong("writeBehind.maxDelayMillis", 5000L);
+    }
+
+    /**
+     * Повертає шлях до бінарного стовпцевого каталогу історичних місць. Якщо шлях задано,
+     * репозиторій історичних місць відкривається в режимі лише для читання поверх цього каталогу.
+     *
+     * @return шлях до каталогу або null, якщо режим лише для читання не налаштовано.
+     */
+    public static Path placeCatalogFile() {
+        String value = System.getProperty(PREFIX + "places.catalog");
+        return value == null || value.isBlank() ? null : Paths.get(value.trim());
+    }
+
+    /**
+     * Перевіряє, чи завантажувати описи історичних місць лише на вимогу. У цьому режимі
+     * репозиторій тримає в пам'яті лише короткі поля місць, а описи зчитує з файлу.
+     *
+     * @return true, якщо описи завантажуються ліниво; за замовчуванням true.
+     */
+    public static boolean lazyPlaceDescriptions() {
+        return getBoolean("places.lazyDescriptions", true);
+    }
+
+    /**
+     * Перевіряє, чи увімкнено зберігання історичних місць у сегментах фіксованої місткості
+     * ({@code historiography.places.layout=segmented}). За замовчуванням місця зберігаються в
+     * одному JSON-файлі.
+     *
+     * @return true, якщо місця зберігаються в сегментах.
+     */
+    public static boolean placesSegmented() {
+        return "segmented".equalsIgnoreCase(
+            System.getProperty(PREFIX + "places.layout", "").trim());
+    }
+
+    /**
+     * Повертає максимальну кількість записів в одному сегменті каталогу історичних місць.
+     *
+     * @return місткість сегмента, за замовчуванням 64.
+     */
+    public static int placeSegmentCapacity() {
+        return (int) Math.max(1,
+            Math.min(Integer.MAX_VALUE, getLong("places.segmentCapacity", 64L)));
+    }
+
+    /**
+     * Повертає приблизний максимальний обсяг кешу описів історичних місць у байтах.
+     *
+     * @return обсяг кешу в байтах, за замовчуванням 1 МіБ.
+     */
+    public static long placeDescriptionCacheBytes() {
+        return getLong("places.descriptionCacheBytes", 1024L * 1024L);
+    }
+
+    /**
+     * Повертає приблизний максимальний обсяг кешу результатів повнотекстового пошуку місць у
+     * байтах. Нульове значення вимикає кеш.
+     *
+     * @return обсяг кешу в байтах, за замовчуванням 256 КіБ.
+     */
+    public static long placeQueryCacheBytes() {
+        return getLong("places.queryCacheBytes", 256L * 1024L);
+    }
+
+    /**
+     * Перевіряє, чи виконувати повний перегляд сутностей паралельно ({@link ParallelScan}).
+     *
+     * @return true, якщо паралельний перегляд увімкнено; за замовчуванням true.
+     */
+    public static boolean parallelScanEnabled() {
+        return getBoolean("scan.parallel", true);
+    }
+
+    /**
+     * Повертає кількість потоків паралельного перегляду сутностей.
+     *
+     * @return кількість потоків, за замовчуванням кількість доступних процесорів.
+     */
+    public static int scanParallelism() {
+        return (int) Math.max(1, Math.min(Short.MAX_VALUE,
+            getLong("scan.parallelism", Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Повертає мінімальну кількість сутностей, починаючи з якої перегляд виконується паралельно.
+     *
+     * @return поріг кількості сутностей, за замовчуванням 8192.
+     */
+    public static int parallelScanThreshold() {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, getLong("scan.threshold", 8192L)));
+    }
+
+    /**
+     * Повертає кількість сутностей в одному блоці паралельного перегляду.
+     *
+     * @return розмір блоку, за замовчуванням 2048.
+     */
+    public static int scanChunkSize() {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, getLong("scan.chunkSize", 2048L)));
+    }
+
+    /**
+     * Зчитує логічну системну властивість.
+     *
+     * @param key          ключ властивості без префікса.
+     * @param defaultValue значення за замовчуванням.
+     * @return значення властивості або значення за замовчуванням, якщо її не задано.
+     */
+    static boolean getBoolean(String key, boolean defaultValue) {
+        String value = System.getProperty(PREFIX + key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Зчитує числову системну властивість.
+     *
+     * @param key          ключ властивості без префікса.
+     * @param defaultValue значення за замовчуванням.
+     * @return значення властивості або значення за замовчуванням, якщо її не задано чи вона
+     * некоректна.
+     */
+    static long getLong(String key, long defaultValue) {
+        String value = System.getProperty(PREFIX + key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.agors.historiography.persistence.storage;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Інтерфейс постачальника сховища (SPI), від якого залежать репозиторії. Рушій зберігає сутності
+ * за ключем, а спосіб їх розміщення на диску (JSON-файл, журнал, шарди, бінарний каталог) або в
+ * пам'яті визначається реалізацією.
+ * <p>
+ * Рушій створюється через {@link StorageEngines} відповідно до {@link StorageConfig}, після чого
+ * один раз викликається {@link #load()}.
+ *
+ * @param <K> тип ключа сутності.
+ * @param <V> тип сутності.
+ */
+public interface StorageEngine<K, V> extends AutoCloseable {
+
+    /**
+     * Завантажує дані зі сховища. Викликається один раз перед використанням рушія.
+     *
+     * @throws IOException якщо дані не вдалося прочитати.
+     */
+    void load() throws IOException;
+
+    /**
+     * Повертає всі сутності у порядку їх зберігання.
+     *
+     * @return список сутностей.
+     */
+    List<V> scan();
+
+    /**
+     * Повертає сутність за ключем.
+     *
+     * @param key ключ сутності.
+     * @return сутність або null, якщо її немає.
+     */
+    V get(K key);
+
+    /**
+     * Перевіряє наявність сутності за ключем. Реалізації, що зчитують частину сутності з диска на
+     * вимогу, перевизначають метод, щоб перевірка не читала файл.
+     *
+     * @param key ключ сутності.
+     * @return true, якщо сутність з таким ключем є.
+     */
+    default boolean contains(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Реєструє слухача, який викликається щоразу, коли рушій перечитав дані, змінені іншим
+     * процесом. Після цього вміст рушія може відрізнятися від того, що бачив репозиторій, тож
+     * похідні індекси репозиторію потрібно перебудувати. Слухач викликається під блокуванням
+     * рушія, тому не повинен звертатися до рушія: достатньо позначити індекси застарілими.
+     * Рушії, що не перечитують дані, слухачів не викликають.
+     *
+     * @param listener слухач перечитування.
+     */
+    default void addReloadListener(Runnable listener) {
+    }
+
+    /**
+     * Перечитує дані, якщо їх змінив інший процес, і в такому разі викликає слухачів
+     * {@link #addReloadListener(Runnable)}. Рушії, що не перечитують дані, нічого не роблять.
+     *
+     * @throws IOException якщо змінені дані не вдалося прочитати.
+     */
+    default void refreshIfChanged() throws IOException {
+    }
+
+    /**
+     * Додає або оновлює сутність. Ключ визначається самою сутністю.
+     *
+     * @param value сутність для збереження.
+     * @throws IOException якщо зміну не вдалося записати.
+     */
+    void put(V value) throws IOException;
+
+    /**
+     * Видаляє сутність за ключем.
+     *
+     * @param key ключ сутності.
+     * @return true, якщо сутність існувала та була видалена, інакше false.
+     * @throws IOException якщо зміну не вдалося записати.
+     */
+    boolean delete(K key) throws IOException;
+
+    /**
+     * Негайно записує всі незбережені зміни.
+     *
+     * @throws IOException якщо запис не вдався.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Записує незбережені зміни та звільняє ресурси рушія.
+     *
+     * @throws IOException якщо запис або закриття не вдалися.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,37 @@
+package com.agors.historiography.persistence.storage;
+
+/**
+ * Тип рушія зберігання, що обирається в конфігурації для всіх репозиторіїв.
+ */
+public enum StorageEngineType {
+
+    /**
+     * Дані зберігаються у файлах каталогу даних: JSON-файли, журнал або шарди відгуків.
+     */
+    JSON,
+
+    /**
+     * Дані зберігаються лише в пам'яті процесу. Призначено для тестів і вимірювань
+     * продуктивності.
+     */
+    MEMORY;
+
+    /**
+     * Перетворює текстове значення з конфігурації на тип рушія. Регістр літер не враховується.
+     *
+     * @param value        текстове значення типу.
+     * @param defaultValue тип, що повертається, якщо значення порожнє або невідоме.
+     * @return тип рушія.
+     */
+    public static StorageEngineType parse(String value, StorageEngineType defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        for (StorageEngineType type : values()) {
+            if (type.name().equalsIgnoreCase(value.trim())) {
+                return type;
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,228 @@
+package com.agors.historiography.persistence.storage;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Фабрика рушіїв зберігання. Обирає реалізацію {@link StorageEngine} та розташування файлів
+ * відповідно до {@link StorageConfig} і повертає вже завантажений рушій.
+ * <p>
+ * Рушії в пам'яті ({@link StorageEngineType#MEMORY}) спільні для всіх репозиторіїв з однаковою
+ * назвою сховища, тож дані не губляться, коли інтерфейс створює репозиторій повторно.
+ */
+public final class StorageEngines {
+
+    private static final Map<String, StorageEngine<?, ?>> MEMORY_ENGINES = new HashMap<>();
+
+    private StorageEngines() {
+    }
+
+    /**
+     * Повертає шлях до файлу або каталогу в налаштованому каталозі даних.
+     *
+     * @param name назва файлу або каталогу.
+     * @return шлях у каталозі даних.
+     */
+    public static Path dataFile(String name) {
+        return StorageConfig.dataDirectory().resolve(name);
+    }
+
+    /**
+     * Перевіряє, чи налаштовано зберігання даних лише в пам'яті.
+     *
+     * @return true, якщо обрано {@link StorageEngineType#MEMORY}.
+     */
+    public static boolean inMemory() {
+        return StorageConfig.storageEngine() == StorageEngineType.MEMORY;
+    }
+
+    /**
+     * Відкриває рушій, що зберігає сутності в одному JSON-файлі каталогу даних.
+     *
+     * @param name   назва файлу в каталозі даних.
+     * @param keyOf  функція, що повертає ключ сутності.
+     * @param format формат JSON-документа.
+     * @param <K>    тип ключа сутності.
+     * @param <V>    тип сутності.
+     * @return завантажений рушій.
+     * @throws IOException якщо дані не вдалося прочитати.
+     */
+    public static <K, V> StorageEngine<K, V> openFile(String name, Function<V, K> keyOf,
+        JsonFileStorageEngine.Format<V> format) throws IOException {
+        if (inMemory()) {
+            return memory(name, keyOf);
+        }
+        return load(new JsonFileStorageEngine<>(dataFile(name), keyOf, format));
+    }
+
+    /**
+     * Відкриває рушій історичних місць, що зберігає їх у JSON-файлі каталогу даних і завантажує
+     * описи лише на вимогу.
+     *
+     * @param name назва файлу в каталозі даних.
+     * @return завантажений рушій.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    public static StorageEngine<Integer, HistoricalPlace> openLazyPlaces(String name)
+        throws IOException {
+        if (inMemory()) {
+            return memory(name, HistoricalPlace::getId);
+        }
+        return load(new LazyPlaceStorageEngine(dataFile(name),
+            StorageConfig.placeDescriptionCacheBytes()));
+    }
+
+    /**
+     * Відкриває сегментований журнал у каталозі даних: знімок {@code <name>.json} та сегменти в
+     * каталозі {@code <name>-log}.
+     *
+     * @param name      базова назва сховища.
+     * @param valueType тип сутності для серіалізації.
+     * @param idOf      функція, що повертає ідентифікатор сутності.
+     * @param <V>       тип сутності.
+     * @return завантажений рушій.
+     * @throws IOException якщо журнал не вдалося відкрити.
+     */
+    public static <V> StorageEngine<Integer, V> openLog(String name, Type valueType,
+        ToIntFunction<V> idOf) throws IOException {
+        if (inMemory()) {
+            return memory(name, idOf::applyAsInt);
+        }
+        return load(new SegmentedLog<>(dataFile(name + ".json"), dataFile(name + "-log"),
+            valueType, idOf, StorageConfig.reviewLogDurability(),
+            StorageConfig.reviewLogBatchIntervalMillis(), StorageConfig.reviewLogSegmentBytes(),
+            StorageConfig.reviewLogCompactionThreshold()));
+    }
+
+    /**
+     * Перевіряє, чи вже створено шардоване сховище з вказаною назвою.
+     *
+     * @param name базова назва сховища.
+     * @return true, якщо маніфест сховища існує.
+     */
+    public static boolean shardedExists(String name) {
+        return ShardedStore.exists(shardDirectory(name));
+    }
+
+    /**
+     * Створює шардоване сховище в каталозі {@code <name>-shards} з переданими сутностями. Сховище
+     * з'являється лише після запису всіх шардів ({@link ShardedStore#create}).
+     *
+     * @param name        базова назва сховища.
+     * @param valueType   тип сутності для серіалізації.
+     * @param idOf        функція, що повертає ідентифікатор сутності.
+     * @param partitionOf функція, що повертає ключ розділу сутності.
+     * @param measureOf   функція, що повертає міру сутності для зведень розділів.
+     * @param values      сутності для перенесення.
+     * @param <V>         тип сутності.
+     * @throws IOException якщо сховище не вдалося створити.
+     */
+    public static <V> void createSharded(String name, Type valueType, ToIntFunction<V> idOf,
+        Function<V, String> partitionOf, ToIntFunction<V> measureOf, Iterable<V> values)
+        throws IOException {
+        ShardedStore.create(shardDirectory(name), valueType, idOf, partitionOf, measureOf,
+            values);
+    }
+
+    /**
+     * Відкриває шардоване сховище в каталозі {@code <name>-shards} каталогу даних.
+     *
+     * @param name        базова назва сховища.
+     * @param valueType   тип сутності для серіалізації.
+     * @param idOf        функція, що повертає ідентифікатор сутності.
+     * @param partitionOf функція, що повертає ключ розділу сутності.
+     * @param measureOf   функція, що повертає міру сутності для зведень розділів.
+     * @param <V>         тип сутності.
+     * @return завантажене сховище.
+     * @throws IOException якщо маніфест або зведення не вдалося прочитати.
+     */
+    public static <V> ShardedStore<V> openSharded(String name, Type valueType,
+        ToIntFunction<V> idOf, Function<V, String> partitionOf, ToIntFunction<V> measureOf)
+        throws IOException {
+        return load(new ShardedStore<>(shardDirectory(name), valueType, idOf, partitionOf,
+            measureOf));
+    }
+
+    /**
+     * Перевіряє, чи вже створено сегментоване сховище з вказаною назвою.
+     *
+     * @param name базова назва сховища.
+     * @return true, якщо маніфест сховища існує.
+     */
+    public static boolean segmentedExists(String name) {
+        return SegmentedStore.exists(segmentDirectory(name));
+    }
+
+    /**
+     * Відкриває сховище із сегментами фіксованої місткості в каталозі {@code <name>-segments}
+     * каталогу даних.
+     *
+     * @param name      базова назва сховища.
+     * @param valueType тип сутності для серіалізації.
+     * @param idOf      функція, що повертає ідентифікатор сутності.
+     * @param capacity  максимальна кількість сутностей в одному сегменті.
+     * @param <V>       тип сутності.
+     * @return завантажене сховище.
+     * @throws IOException якщо маніфест або сегменти не вдалося прочитати.
+     */
+    public static <V> SegmentedStore<V> openSegmented(String name, Type valueType,
+        ToIntFunction<V> idOf, int capacity) throws IOException {
+        return load(new SegmentedStore<>(segmentDirectory(name), valueType, idOf, capacity));
+    }
+
+    /**
+     * Повертає спільний рушій у пам'яті для сховища з вказаною назвою, створюючи його під час
+     * першого звернення.
+     *
+     * @param name  назва сховища.
+     * @param keyOf функція, що повертає ключ сутності.
+     * @param <K>   тип ключа сутності.
+     * @param <V>   тип сутності.
+     * @return рушій у пам'яті.
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <K, V> StorageEngine<K, V> memory(String name,
+        Function<V, K> keyOf) {
+        return (StorageEngine<K, V>) MEMORY_ENGINES.computeIfAbsent(name,
+            key -> new InMemoryStorageEngine<>(keyOf));
+    }
+
+    /**
+     * Повертає каталог шардованого сховища.
+     *
+     * @param name базова назва сховища.
+     * @return каталог шардів у каталозі даних.
+     */
+    private static Path shardDirectory(String name) {
+        return dataFile(name + "-shards");
+    }
+
+    /**
+     * Повертає каталог сегментованого сховища.
+     *
+     * @param name базова назва сховища.
+     * @return каталог сегментів у каталозі даних.
+     */
+    private static Path segmentDirectory(String name) {
+        return dataFile(name + "-segments");
+    }
+
+    /**
+     * Завантажує рушій і повертає його.
+     *
+     * @param engine рушій.
+     * @param <E>    тип рушія.
+     * @return завантажений рушій.
+     * @throws IOException якщо дані не вдалося прочитати.
+     */
+    private static <E extends StorageEngine<?, ?>> E load(E engine) throws IOException {
+        engine.load();
+        return engine;
+    }
+}
@@ -0,0 +1,181 @@
+package com.agors.historiography.persistence.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Потоковий завантажувач великих JSON-масивів на основі {@link JsonReader}. Файл декодується явно
+ * як UTF-8, а сутності створюються по одній, тому в пам'яті ніколи не зберігається повний текст
+ * файлу чи проміжне дерево JSON.
+ * <p>
+ * Завантажувач повідомляє про прогрес через {@link ProgressListener} та може зупинитися після
+ * заданої кількості записів. Файли у форматі {@link BlockCompressedFile} розпаковуються прозоро.
+ */
+public final class StreamingJsonLoader {
+
+    /**
+     * Значення ліміту, що означає відсутність обмеження кількості записів.
+     */
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private static final int PROGRESS_INTERVAL = 1024;
+
+    private StreamingJsonLoader() {
+    }
+
+    /**
+     * Слухач прогресу завантаження.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Слухач, який нічого не робить.
+         */
+        ProgressListener NONE = (records, bytesRead, totalBytes) -> {
+        };
+
+        /**
+         * Викликається періодично під час завантаження та один раз після його завершення.
+         *
+         * @param records    кількість уже прочитаних записів.
+         * @param bytesRead  кількість прочитаних байтів вмісту (для стисненого файлу — після
+         *                   розпакування).
+         * @param totalBytes загальний розмір файлу в байтах.
+         */
+        void onProgress(long records, long bytesRead, long totalBytes);
+    }
+
+    /**
+     * Завантажує JSON-масив сутностей у список, заздалегідь розрахований за розміром файлу.
+     *
+     * @param file                файл з JSON-масивом.
+     * @param gson                екземпляр Gson, що надає адаптер сутності.
+     * @param elementType         тип однієї сутності.
+     * @param expectedRecordBytes очікуваний середній розмір одного запису в байтах, за яким
+     *                            визначається початкова місткість списку.
+     * @param limit               максимальна кількість записів для читання або
+     *                            {@link #NO_LIMIT}.
+     * @param listener            слухач прогресу.
+     * @param <T>                 тип сутності.
+     * @return список завантажених сутностей; порожній список, якщо файл не існує або порожній.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    public static <T> List<T> loadArray(Path file, Gson gson, Type elementType,
+        int expectedRecordBytes, long limit, ProgressListener listener) throws IOException {
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        long estimate = Files.size(file) / Math.max(1, expectedRecordBytes) + 1;
+        int capacity = (int) Math.min(Math.min(estimate, limit), Integer.MAX_VALUE - 8);
+
+        List<T> result = new ArrayList<>(capacity);
+        StreamingJsonLoader.<T>streamArray(file, gson, elementType, limit, listener, result::add);
+        return result;
+    }
+
+    /**
+     * Потоково читає JSON-масив сутностей і передає кожну сутність споживачу одразу після
+     * декодування.
+     *
+     * @param file        файл з JSON-масивом.
+     * @param gson        екземпляр Gson, що надає адаптер сутності.
+     * @param elementType тип однієї сутності.
+     * @param limit       максимальна кількість записів для читання або {@link #NO_LIMIT}.
+     * @param listener    слухач прогресу.
+     * @param sink        споживач, що отримує сутності по одній.
+     * @param <T>         тип сутності.
+     * @return кількість прочитаних записів.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> long streamArray(Path file, Gson gson, Type elementType, long limit,
+        ProgressListener listener, Consumer<T> sink) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long totalBytes = Files.size(file);
+        TypeAdapter<T> adapter = (TypeAdapter<T>) gson.getAdapter(TypeToken.get(elementType));
+        long records = 0;
+
+        try (CountingInputStream counter = new CountingInputStream(
+            BlockCompressedFile.newInputStream(file));
+            JsonReader reader = new JsonReader(
+                new InputStreamReader(counter, StandardCharsets.UTF_8))) {
+            if (reader.peek() == JsonToken.END_DOCUMENT) {
+                return 0;
+            }
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return 0;
+            }
+
+            reader.beginArray();
+            while (records < limit && reader.hasNext()) {
+                sink.accept(adapter.read(reader));
+                records++;
+                if (records % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(records, counter.count, totalBytes);
+                }
+            }
+            listener.onProgress(records, counter.count, totalBytes);
+        }
+        return records;
+    }
+
+    /**
+     * Потік, що рахує кількість прочитаних байтів.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        /**
+         * Конструктор потоку.
+         *
+         * @param in вихідний потік.
+         */
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
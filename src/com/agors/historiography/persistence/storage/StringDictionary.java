@@ -0,0 +1,117 @@
+package com.agors.historiography.persistence.storage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Словник рядків для кодування полів з невеликим набором значень (наприклад, категорій і
+ * локацій). Кожне різне значення зберігається один раз і отримує невеликий цілочисельний код, тож
+ * записи можуть тримати код замість окремого рядка.
+ * <p>
+ * Для кожного значення також один раз обчислюється його ключ для порівняння (за замовчуванням —
+ * форма в нижньому регістрі), тож фільтр за полем перевіряється один раз на значення словника, а
+ * не один раз на запис, а однакові ключі різних значень зберігаються одним екземпляром рядка.
+ */
+public final class StringDictionary {
+
+    /**
+     * Код відсутнього значення ({@code null}).
+     */
+    public static final int NO_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+    private final Map<String, String> internedKeys = new HashMap<>();
+    private final UnaryOperator<String> keyOf;
+
+    /**
+     * Конструктор словника, ключем значення в якому є його форма в нижньому регістрі.
+     */
+    public StringDictionary() {
+        this(value -> value.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Конструктор словника з власною функцією ключа, наприклад нормалізацією для пошуку.
+     *
+     * @param keyOf функція, що обчислює ключ значення для порівняння.
+     */
+    public StringDictionary(UnaryOperator<String> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Повертає код значення, додаючи значення до словника, якщо його ще немає.
+     *
+     * @param value значення.
+     * @return код значення або {@link #NO_CODE} для {@code null}.
+     */
+    public synchronized int encode(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+            String key = keyOf.apply(value);
+            keys.add(internedKeys.computeIfAbsent(key, k -> k));
+        }
+        return code;
+    }
+
+    /**
+     * Повертає значення за кодом. Для однакових значень завжди повертається один і той самий
+     * екземпляр рядка.
+     *
+     * @param code код значення.
+     * @return значення або {@code null} для {@link #NO_CODE}.
+     */
+    public synchronized String decode(int code) {
+        return code == NO_CODE ? null : values.get(code);
+    }
+
+    /**
+     * Повертає ключ значення за кодом. Для однакових ключів завжди повертається один і той самий
+     * екземпляр рядка.
+     *
+     * @param code код значення.
+     * @return ключ значення або {@code null} для {@link #NO_CODE}.
+     */
+    public synchronized String key(int code) {
+        return code == NO_CODE ? null : keys.get(code);
+    }
+
+    /**
+     * Повертає кількість різних значень у словнику.
+     *
+     * @return розмір словника.
+     */
+    public synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * Перевіряє умову для ключа кожного значення та повертає коди значень, що їй відповідають.
+     *
+     * @param predicate умова для ключа значення.
+     * @return множина кодів значень, що відповідають умові.
+     */
+    public synchronized BitSet matchKeys(Predicate<String> predicate) {
+        BitSet matches = new BitSet(values.size());
+        for (int code = 0; code < keys.size(); code++) {
+            if (predicate.test(keys.get(code))) {
+                matches.set(code);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,236 @@
+package com.agors.historiography.persistence.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Спільний компонент відкладеного запису (write-behind) для репозиторіїв. Репозиторій позначає
+ * свої дані як змінені, а фактичне збереження виконується у фоновому потоці, а не в потоці
+ * інтерфейсу користувача.
+ * <p>
+ * Серія змін одного ключа об'єднується в одне збереження: запис відбувається після вікна тиші
+ * (debounce), але не пізніше ніж через максимальну затримку від першої незбереженої зміни. Усі
+ * збереження виконуються послідовно в одному потоці, тож записи одного файлу ніколи не
+ * перетинаються. Під час завершення роботи JVM усі незбережені зміни записуються примусово.
+ */
+public final class WriteBehindFlusher {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static volatile WriteBehindFlusher shared;
+
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService executor;
+    private final Map<Object, Pending> pending = new HashMap<>();
+
+    /**
+     * Конструктор компонента відкладеного запису.
+     *
+     * @param debounceMillis вікно тиші в мілісекундах, після якого виконується збереження.
+     * @param maxDelayMillis максимальна затримка збереження від першої зміни в мілісекундах.
+     */
+    public WriteBehindFlusher(long debounceMillis, long maxDelayMillis) {
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = Math.max(debounceMillis, maxDelayMillis);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Повертає спільний для всіх репозиторіїв екземпляр. Під час першого звернення екземпляр
+     * створюється з налаштувань {@link StorageConfig} і реєструє обробник завершення роботи JVM,
+     * який записує всі незбережені зміни.
+     *
+     * @return спільний екземпляр компонента.
+     */
+    public static WriteBehindFlusher shared() {
+        WriteBehindFlusher instance = shared;
+        if (instance == null) {
+            synchronized (WriteBehindFlusher.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new WriteBehindFlusher(StorageConfig.writeBehindDebounceMillis(),
+                        StorageConfig.writeBehindMaxDelayMillis());
+                    Runtime.getRuntime().addShutdownHook(
+                        new Thread(instance::shutdown, "write-behind-shutdown"));
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Позначає дані за ключем як змінені з вікном тиші та максимальною затримкою за
+     * замовчуванням.
+     *
+     * @param key    ключ даних (наприклад, шлях до файлу).
+     * @param action дія збереження, що буде виконана у фоновому потоці.
+     */
+    public void markDirty(Object key, Runnable action) {
+        markDirty(key, action, debounceMillis, maxDelayMillis);
+    }
+
+    /**
+     * Позначає дані за ключем як змінені. Якщо збереження для ключа вже заплановано, воно
+     * переноситься на кінець нового вікна тиші, але не далі максимальної затримки від першої
+     * незбереженої зміни.
+     *
+     * @param key            ключ даних (наприклад, шлях до файлу).
+     * @param action         дія збереження, що буде виконана у фоновому потоці.
+     * @param debounceMillis вікно тиші в мілісекундах.
+     * @param maxDelayMillis максимальна затримка від першої зміни в мілісекундах.
+     */
+    public synchronized void markDirty(Object key, Runnable action, long debounceMillis,
+        long maxDelayMillis) {
+        if (executor.isShutdown()) {
+            action.run();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Pending entry = pending.get(key);
+        if (entry == null) {
+            entry = new Pending(now);
+            pending.put(key, entry);
+        } else if (entry.future != null) {
+            entry.future.cancel(false);
+        }
+        entry.action = action;
+
+        long untilDeadline = entry.firstDirtyAt + maxDelayMillis - now;
+        long delay = Math.max(0, Math.min(debounceMillis, untilDeadline));
+        entry.future = executor.schedule(() -> runPending(key), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Негайно виконує незбережене збереження за ключем і чекає на його завершення.
+     *
+     * @param key ключ даних.
+     */
+    public void flush(Object key) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        await(executor.submit(() -> runPending(key)));
+    }
+
+    /**
+     * Негайно виконує всі незбережені збереження і чекає на їх завершення.
+     */
+    public void flushAll() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        await(executor.submit(this::runAllPending));
+    }
+
+    /**
+     * Записує всі незбережені зміни та зупиняє фоновий потік. Подальші позначки змін виконуються
+     * одразу в потоці, що їх викликав.
+     */
+    public void shutdown() {
+        flushAll();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Виконує збереження за ключем, якщо воно ще очікує. Викликається лише у фоновому потоці.
+     *
+     * @param key ключ даних.
+     */
+    private void runPending(Object key) {
+        Runnable action;
+        synchronized (this) {
+            Pending entry = pending.remove(key);
+            if (entry == null) {
+                return;
+            }
+            if (entry.future != null) {
+                entry.future.cancel(false);
+            }
+            action = entry.action;
+        }
+        runSafely(action);
+    }
+
+    /**
+     * Виконує всі очікувані збереження. Викликається лише у фоновому потоці.
+     */
+    private void runAllPending() {
+        List<Runnable> actions = new ArrayList<>();
+        synchronized (this) {
+            for (Pending entry : pending.values()) {
+                if (entry.future != null) {
+                    entry.future.cancel(false);
+                }
+                actions.add(entry.action);
+            }
+            pending.clear();
+        }
+        actions.forEach(WriteBehindFlusher::runSafely);
+    }
+
+    /**
+     * Виконує дію збереження так, щоб помилка однієї дії не зупинила фоновий потік.
+     *
+     * @param action дія збереження.
+     */
+    private static void runSafely(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Очікує на завершення задачі у фоновому потоці.
+     *
+     * @param future задача.
+     */
+    private static void await(Future<?> future) {
+        try {
+            future.get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Незбережені зміни одного ключа.
+     */
+    private static final class Pending {
+
+        private final long firstDirtyAt;
+        private Runnable action;
+        private ScheduledFuture<?> future;
+
+        /**
+         * Конструктор запису про незбережені зміни.
+         *
+         * @param firstDirtyAt час першої незбереженої зміни в мілісекундах.
+         */
+        Pending(long firstDirtyAt) {
+            this.firstDirtyAt = firstDirtyAt;
+        }
+    }
+}
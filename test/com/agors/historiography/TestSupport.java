@@ -0,0 +1,184 @@
+package com.agors.historiography;
+
+import com.agors.historiography.persistence.storage.JsonCodec;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Мінімальний запускач поведінкових тестів без зовнішніх залежностей. Тестом вважається кожен
+ * статичний метод без параметрів, назва якого починається з {@code test}; методи виконуються в
+ * алфавітному порядку, а будь-який виняток означає провал тесту.
+ * <p>
+ * Запуск з кореня проєкту:
+ * <pre>
+ * javac -encoding UTF-8 -cp "libs/*" -d out $(find src test -name '*.java')
+ * java -cp "out:libs/*" com.agors.historiography.TestSupport \
+ *     com.agors.historiography.persistence.storage.AtomicFileWriterTest
+ * </pre>
+ */
+public final class TestSupport {
+
+    /**
+     * Приватний конструктор, щоб запобігти створенню екземплярів.
+     */
+    private TestSupport() {
+    }
+
+    /**
+     * Виконує тести вказаних класів і завершує процес з кодом 1, якщо хоча б один тест провалився.
+     *
+     * @param args повні назви тестових класів.
+     * @throws ClassNotFoundException якщо тестовий клас не знайдено.
+     */
+    public static void main(String[] args) throws ClassNotFoundException {
+        int failures = 0;
+        for (String name : args) {
+            failures += run(Class.forName(name));
+        }
+        System.out.println(failures == 0 ? "Усі тести пройдено" : "Провалено тестів: " + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Виконує всі тести класу.
+     *
+     * @param testClass тестовий клас.
+     * @return кількість провалених тестів.
+     */
+    public static int run(Class<?> testClass) {
+        int failures = 0;
+        Method[] methods = testClass.getDeclaredMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+        for (Method method : methods) {
+            if (!method.getName().startsWith("test") || method.getParameterCount() != 0
+                || !Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            String name = testClass.getSimpleName() + "." + method.getName();
+            try {
+                method.setAccessible(true);
+                method.invoke(null);
+                System.out.println("OK   " + name);
+            } catch (InvocationTargetException e) {
+                failures++;
+                System.out.println("FAIL " + name);
+                e.getCause().printStackTrace(System.out);
+            } catch (IllegalAccessException e) {
+                failures++;
+                System.out.println("FAIL " + name + ": " + e);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Перевіряє, що умова виконується.
+     *
+     * @param condition умова.
+     * @param message   опис очікуваної поведінки.
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Перевіряє, що значення дорівнюють одне одному.
+     *
+     * @param expected очікуване значення.
+     * @param actual   фактичне значення.
+     * @param message  опис значення.
+     */
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": очікувалося <" + expected + ">, отримано <"
+                + actual + ">");
+        }
+    }
+
+    /**
+     * Перевіряє, що сутності мають однакове JSON-подання, тобто однакові значення всіх полів.
+     *
+     * @param expected очікувана сутність.
+     * @param actual   фактична сутність.
+     * @param message  опис сутності.
+     */
+    public static void checkSameJson(Object expected, Object actual, String message) {
+        checkEquals(JsonCodec.gson().toJson(expected), JsonCodec.gson().toJson(actual), message);
+    }
+
+    /**
+     * Перевіряє, що дія завершується винятком вказаного типу.
+     *
+     * @param type   очікуваний тип винятку.
+     * @param action дія.
+     * @param <T>    тип винятку.
+     * @return отриманий виняток.
+     */
+    public static <T extends Throwable> T checkThrows(Class<T> type, Action action) {
+        try {
+            action.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return type.cast(e);
+            }
+            throw new AssertionError("Очікувався " + type.getSimpleName() + ", отримано " + e, e);
+        }
+        throw new AssertionError("Очікувався " + type.getSimpleName() + ", але винятку не було");
+    }
+
+    /**
+     * Створює порожній тимчасовий каталог для тесту.
+     *
+     * @param prefix префікс назви каталогу.
+     * @return шлях до каталогу.
+     * @throws IOException якщо каталог не вдалося створити.
+     */
+    public static Path tempDirectory(String prefix) throws IOException {
+        Path directory = Files.createTempDirectory(prefix);
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    /**
+     * Повертає назви файлів каталогу, що закінчуються на вказаний суфікс.
+     *
+     * @param directory каталог.
+     * @param suffix    суфікс назви.
+     * @return відсортовані назви файлів.
+     * @throws IOException якщо каталог не вдалося прочитати.
+     */
+    public static String[] filesEndingWith(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(suffix))
+                .sorted()
+                .toArray(String[]::new);
+        }
+    }
+
+    /**
+     * Дія тесту, що може завершитися будь-яким винятком.
+     */
+    @FunctionalInterface
+    public interface Action {
+
+        /**
+         * Виконує дію.
+         *
+         * @throws Exception якщо дія не вдалася.
+         */
+        void run() throws Exception;
+    }
+}
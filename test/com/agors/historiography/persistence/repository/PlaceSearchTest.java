@@ -0,0 +1,293 @@
+package com.agors.historiography.persistence.repository;
+
+import static com.agors.historiography.TestSupport.checkEquals;
+import static com.agors.historiography.TestSupport.tempDirectory;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import com.agors.historiography.persistence.search.IncrementalSearch;
+import com.agors.historiography.persistence.search.SearchKeys;
+import com.agors.historiography.persistence.search.UkrainianAnalyzer;
+import com.agors.historiography.persistence.storage.InMemoryStorageEngine;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Тести пошуку історичних місць: результати пошукових індексів порівнюються з результатами
+ * прямого перебору всіх місць, зокрема після додавання, зміни та видалення місць.
+ */
+final class PlaceSearchTest {
+
+    private static final String[] WORDS = {
+        "Київ", "Києва", "Львів", "Львова", "собор", "собору", "замок", "замку", "фортеця",
+        "фортеці", "П'ятницька", "Пʼятницька", "церква", "церкви", "Святої", "Софії", "монастир",
+        "Лавра", "МУЗЕЙ", "музею", "оборонна", "вежа", "вежі", "Хотин", "Кам'янець", "Поділля",
+        "Чигирин", "козацька", "столиця", "палац", "парк", "Умань",
+    };
+    private static final String[] CATEGORIES = {
+        "Собор", "Замок", "Фортеця", "Музей", "Монастир", "Палац", "Парк", "Церква",
+    };
+
+    /**
+     * Приватний конструктор, щоб запобігти створенню екземплярів.
+     */
+    private PlaceSearchTest() {
+    }
+
+    /**
+     * Повнотекстовий пошук за інвертованим індексом знаходить ті самі місця, що й перевірка
+     * термінів кожного місця, до і після змін каталогу, які індекс оновлює поступово.
+     *
+     * @throws IOException якщо не вдалося підготувати каталог даних.
+     */
+    static void testFullTextSearchMatchesLinearScan() throws IOException {
+        HistoricalPlaceRepository repository = repository();
+        Random random = new Random(20);
+        for (int id = 1; id <= 300; id++) {
+            repository.addHistoricalPlace(place(random, id));
+        }
+        List<String> queries = queries(random);
+        checkFullText(repository, queries);
+
+        for (int id = 1; id <= 300; id += 7) {
+            repository.deleteById(id);
+        }
+        for (int id = 2; id <= 300; id += 11) {
+            repository.updateById(id, place(random, id));
+        }
+        for (int id = 301; id <= 340; id++) {
+            repository.addHistoricalPlace(place(random, id));
+        }
+        checkFullText(repository, queries);
+    }
+
+    /**
+     * Пошук підрядка в назві та категорії за триграмним індексом і словником категорій
+     * знаходить ті самі місця, що й порівняння нормалізованих ключів кожного місця, зокрема для
+     * запитів, коротших за триграму, і для різних видів апострофа.
+     *
+     * @throws IOException якщо не вдалося підготувати каталог даних.
+     */
+    static void testSubstringSearchMatchesLinearScan() throws IOException {
+        HistoricalPlaceRepository repository = repository();
+        Random random = new Random(21);
+        for (int id = 1; id <= 300; id++) {
+            repository.addHistoricalPlace(place(random, id));
+        }
+        List<String> queries = substrings(random);
+        checkSubstrings(repository, queries);
+
+        for (int id = 1; id <= 300; id += 5) {
+            repository.deleteById(id);
+        }
+        for (int id = 3; id <= 300; id += 8) {
+            repository.updateById(id, place(random, id));
+        }
+        checkSubstrings(repository, queries);
+    }
+
+    /**
+     * Сеанс пошуку під час введення, що уточнює попередні результати і повертається до них
+     * після стирання символів, на кожному кроці дає той самий результат, що й повний пошук.
+     *
+     * @throws IOException якщо не вдалося підготувати каталог даних.
+     */
+    static void testIncrementalSearchMatchesFullSearch() throws IOException {
+        HistoricalPlaceRepository repository = repository();
+        Random random = new Random(22);
+        for (int id = 1; id <= 300; id++) {
+            repository.addHistoricalPlace(place(random, id));
+        }
+        IncrementalSearch<HistoricalPlace> byName = repository.newNameSearch();
+        IncrementalSearch<HistoricalPlace> byNameOrCategory =
+            repository.newNameOrCategorySearch();
+        for (String word : WORDS) {
+            List<String> typed = new ArrayList<>();
+            for (int length = 1; length <= word.length(); length++) {
+                typed.add(word.substring(0, length));
+            }
+            for (int length = word.length() - 1; length >= 1; length--) {
+                typed.add(word.substring(0, length));
+            }
+            for (String query : typed) {
+                checkEquals(ids(repository.searchByName(query)), ids(byName.update(query)),
+                    "уточнення пошуку за назвою «" + query + "»");
+                checkEquals(ids(repository.searchByNameOrCategory(query)),
+                    ids(byNameOrCategory.update(query)),
+                    "уточнення пошуку за назвою або категорією «" + query + "»");
+            }
+        }
+    }
+
+    /**
+     * Перевіряє пошук підрядка за назвою та за назвою або категорією для кожного запиту.
+     *
+     * @param repository репозиторій.
+     * @param queries    запити.
+     */
+    private static void checkSubstrings(HistoricalPlaceRepository repository,
+        List<String> queries) {
+        List<HistoricalPlace> all = repository.getHistoricalPlaces();
+        for (String query : queries) {
+            String key = SearchKeys.normalize(query);
+            List<HistoricalPlace> byName = new ArrayList<>();
+            List<HistoricalPlace> byNameOrCategory = new ArrayList<>();
+            for (HistoricalPlace place : all) {
+                boolean name = SearchKeys.normalize(place.getName()).contains(key);
+                boolean category = place.getCategory() != null
+                    && SearchKeys.normalize(place.getCategory()).contains(key);
+                if (name) {
+                    byName.add(place);
+                }
+                if (name || category) {
+                    byNameOrCategory.add(place);
+                }
+            }
+            checkEquals(ids(byName), ids(repository.searchByName(query)),
+                "пошук за назвою «" + query + "»");
+            checkEquals(ids(byNameOrCategory), ids(repository.searchByNameOrCategory(query)),
+                "пошук за назвою або категорією «" + query + "»");
+        }
+    }
+
+    /**
+     * Складає запити-підрядки слів словника різної довжини.
+     *
+     * @param random генератор випадкових чисел.
+     * @return список запитів.
+     */
+    private static List<String> substrings(Random random) {
+        List<String> queries = new ArrayList<>();
+        for (String word : WORDS) {
+            for (int i = 0; i < 3; i++) {
+                int start = random.nextInt(word.length());
+                int end = start + 1 + random.nextInt(word.length() - start);
+                queries.add(word.substring(start, end));
+            }
+        }
+        queries.addAll(List.of("п'ят", "ПʼЯТ", "ка ", "а", "я", "xyz"));
+        return queries;
+    }
+
+    /**
+     * Перевіряє повнотекстовий пошук для кожного запиту.
+     *
+     * @param repository репозиторій.
+     * @param queries    запити.
+     */
+    private static void checkFullText(HistoricalPlaceRepository repository,
+        List<String> queries) {
+        List<HistoricalPlace> all = fullPlaces(repository);
+        for (String query : queries) {
+            Set<String> terms = new HashSet<>(UkrainianAnalyzer.terms(query));
+            List<HistoricalPlace> expected = new ArrayList<>();
+            for (HistoricalPlace place : all) {
+                Set<String> placeTerms = new HashSet<>();
+                for (String field : new String[] {place.getName(), place.getDescription(),
+                    place.getLocation(), place.getCategory()}) {
+                    if (field != null) {
+                        placeTerms.addAll(UkrainianAnalyzer.terms(field));
+                    }
+                }
+                if (placeTerms.containsAll(terms)) {
+                    expected.add(place);
+                }
+            }
+            checkEquals(ids(expected), ids(repository.searchHistoricalPlaces(query)),
+                "повнотекстовий пошук «" + query + "»");
+        }
+    }
+
+    /**
+     * Створює репозиторій над сховищем у пам'яті та тимчасовим каталогом даних, у якому пошук
+     * ведеться за всіма полями місця.
+     *
+     * @return репозиторій.
+     * @throws IOException якщо не вдалося записати критерії пошуку.
+     */
+    static HistoricalPlaceRepository repository() throws IOException {
+        Path directory = tempDirectory("place-search");
+        Files.writeString(directory.resolve("searchCriteria.json"),
+            "[\"name\", \"description\", \"location\", \"category\"]", StandardCharsets.UTF_8);
+        System.setProperty("historiography.data.dir", directory.toString());
+        return new HistoricalPlaceRepository(
+            new InMemoryStorageEngine<Integer, HistoricalPlace>(HistoricalPlace::getId));
+    }
+
+    /**
+     * Створює місце з випадковими назвою, описом, локацією та категорією.
+     *
+     * @param random генератор випадкових чисел.
+     * @param id     ідентифікатор місця.
+     * @return місце.
+     */
+    static HistoricalPlace place(Random random, int id) {
+        return new HistoricalPlace(id, words(random, 1 + random.nextInt(3)),
+            words(random, 3 + random.nextInt(6)), WORDS[random.nextInt(WORDS.length)],
+            random.nextInt(10) == 0 ? null : CATEGORIES[random.nextInt(CATEGORIES.length)]);
+    }
+
+    /**
+     * Складає запити з одного та двох слів словника, а також порожній запит.
+     *
+     * @param random генератор випадкових чисел.
+     * @return список запитів.
+     */
+    private static List<String> queries(Random random) {
+        List<String> queries = new ArrayList<>(Arrays.asList(WORDS));
+        for (int i = 0; i < 40; i++) {
+            queries.add(words(random, 2));
+        }
+        queries.add("");
+        return queries;
+    }
+
+    /**
+     * Повертає всі місця репозиторію разом з описами.
+     *
+     * @param repository репозиторій.
+     * @return список місць.
+     */
+    static List<HistoricalPlace> fullPlaces(HistoricalPlaceRepository repository) {
+        List<HistoricalPlace> places = new ArrayList<>();
+        for (HistoricalPlace place : repository.getHistoricalPlaces()) {
+            places.add(repository.findById(place.getId()));
+        }
+        return places;
+    }
+
+    /**
+     * Повертає відсортовані ідентифікатори місць.
+     *
+     * @param places місця.
+     * @return ідентифікатори місць за зростанням.
+     */
+    static List<Integer> ids(List<HistoricalPlace> places) {
+        return places.stream().map(HistoricalPlace::getId).sorted().toList();
+    }
+
+    /**
+     * Складає текст з випадкових слів словника.
+     *
+     * @param random генератор випадкових чисел.
+     * @param count  кількість слів.
+     * @return текст.
+     */
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.agors.historiography.persistence.repository;
+
+import static com.agors.historiography.TestSupport.checkEquals;
+import static com.agors.historiography.TestSupport.tempDirectory;
+
+import com.agors.historiography.domain.entity.Review;
+import com.agors.historiography.persistence.storage.AtomicFileWriter;
+import com.agors.historiography.persistence.storage.JsonCodec;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Тести агрегатів оцінок: у режимі шардів агрегати, побудовані зі збережених зведень, мають
+ * збігатися з агрегатами, побудованими з усіх відгуків журналу.
+ */
+final class ReviewRatingsTest {
+
+    private static final String LAYOUT = "historiography.reviews.layout";
+
+    /**
+     * Приватний конструктор, щоб запобігти створенню екземплярів.
+     */
+    private ReviewRatingsTest() {
+    }
+
+    /**
+     * Агрегати оцінок і апріорна середня в режимі шардів однакові з режимом журналу одразу після
+     * перенесення відгуків і після змін з повторним відкриттям.
+     *
+     * @throws IOException якщо не вдалося підготувати каталог даних.
+     */
+    static void testShardedRatingsMatchLogRatings() throws IOException {
+        Path directory = tempDirectory("review-ratings");
+        System.setProperty("historiography.data.dir", directory.toString());
+        List<Review> reviews = new ArrayList<>();
+        for (int id = 1; id <= 120; id++) {
+            reviews.add(new Review(id, "Місце " + id % 9, "Відгук " + id, id * 7 % 10, "автор"));
+        }
+        AtomicFileWriter.writeArray(directory.resolve("reviews.json"), JsonCodec.gson(), reviews,
+            Review.class);
+        List<String> places = new ArrayList<>();
+        for (int i = 0; i <= 9; i++) {
+            places.add("Місце " + i);
+        }
+
+        System.clearProperty(LAYOUT);
+        ReviewRepository log = new ReviewRepository();
+        Map<String, String> expected = ratings(log, places);
+        log.close();
+        try {
+            System.setProperty(LAYOUT, "sharded");
+            ReviewRepository sharded = new ReviewRepository();
+            checkEquals(expected, ratings(sharded, places), "агрегати після перенесення");
+            sharded.addReview("Місце 9", "новий", 9, "автор");
+            sharded.deleteReview("Місце 1", 1);
+            sharded.close();
+
+            ReviewRepository reopened = new ReviewRepository();
+            Map<String, String> afterChanges = ratings(reopened, places);
+            reopened.close();
+
+            System.clearProperty(LAYOUT);
+            ReviewRepository changedLog = new ReviewRepository();
+            changedLog.addReview("Місце 9", "новий", 9, "автор");
+            changedLog.deleteReview("Місце 1", 1);
+            checkEquals(ratings(changedLog, places), afterChanges, "агрегати після змін");
+            changedLog.close();
+        } finally {
+            System.clearProperty(LAYOUT);
+        }
+    }
+
+    /**
+     * Описує агрегати оцінок місць рядками для порівняння.
+     *
+     * @param repository репозиторій відгуків.
+     * @param places     назви місць.
+     * @return опис агрегату за назвою місця.
+     */
+    private static Map<String, String> ratings(ReviewRepository repository,
+        List<String> places) {
+        Map<String, String> ratings = new TreeMap<>();
+        for (String place : places) {
+            RatingAggregate aggregate = repository.getRatings(place);
+            ratings.put(place, aggregate.getCount() + " " + aggregate.getSum() + " "
+                + aggregate.getBayesianScore() + " " + repository.countReviewsForPlace(place));
+        }
+        return ratings;
+    }
+}
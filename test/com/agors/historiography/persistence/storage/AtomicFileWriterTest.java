@@ -0,0 +1,176 @@
+package com.agors.historiography.persistence.storage;
+
+import static com.agors.historiography.TestSupport.check;
+import static com.agors.historiography.TestSupport.checkEquals;
+import static com.agors.historiography.TestSupport.checkSameJson;
+import static com.agors.historiography.TestSupport.checkThrows;
+import static com.agors.historiography.TestSupport.filesEndingWith;
+import static com.agors.historiography.TestSupport.tempDirectory;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Тести атомарного запису файлів даних і збереження каталогу місць з повторним відкриттям.
+ */
+final class AtomicFileWriterTest {
+
+    /**
+     * Приватний конструктор, щоб запобігти створенню екземплярів.
+     */
+    private AtomicFileWriterTest() {
+    }
+
+    /**
+     * Записаний масив зчитується без змін, а тимчасових файлів не залишається.
+     *
+     * @throws IOException якщо файл не вдалося записати або прочитати.
+     */
+    static void testWriteArrayRoundTrip() throws IOException {
+        Path directory = tempDirectory("atomic-writer");
+        Path file = directory.resolve("places.json");
+        List<HistoricalPlace> places = places(100, "перший");
+
+        AtomicFileWriter.writeArray(file, JsonCodec.gson(), places, HistoricalPlace.class);
+
+        List<HistoricalPlace> loaded = read(file);
+        checkEquals(places.size(), loaded.size(), "кількість місць");
+        for (int i = 0; i < places.size(); i++) {
+            checkSameJson(places.get(i), loaded.get(i), "місце " + i);
+        }
+        checkEquals(0, filesEndingWith(directory, ".tmp").length, "тимчасові файли");
+    }
+
+    /**
+     * Якщо запис обривається винятком, попередній файл залишається без змін, а тимчасовий файл
+     * видаляється.
+     *
+     * @throws IOException якщо файл не вдалося записати або прочитати.
+     */
+    static void testFailedWriteKeepsPreviousFile() throws IOException {
+        Path directory = tempDirectory("atomic-writer");
+        Path file = directory.resolve("places.json");
+        List<HistoricalPlace> places = places(3, "збережений");
+        AtomicFileWriter.writeArray(file, JsonCodec.gson(), places, HistoricalPlace.class);
+        byte[] before = Files.readAllBytes(file);
+
+        checkThrows(IOException.class, () -> AtomicFileWriter.writeJson(file, false, writer -> {
+            writer.beginArray();
+            writer.value("неповний");
+            throw new IOException("збій посеред запису");
+        }));
+
+        check(Arrays.equals(before, Files.readAllBytes(file)),
+            "файл після невдалого запису змінився");
+        checkEquals(0, filesEndingWith(directory, ".tmp").length, "тимчасові файли");
+    }
+
+    /**
+     * Одночасні записи одного файлу не заважають один одному: файл містить повний вміст одного з
+     * них, а тимчасових файлів не залишається.
+     *
+     * @throws Exception якщо потік запису не вдалося дочекатися.
+     */
+    static void testConcurrentWritersLeaveOneCompleteFile() throws Exception {
+        Path directory = tempDirectory("atomic-writer");
+        Path file = directory.resolve("places.json");
+        int writers = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<HistoricalPlace> places = places(500, "потік " + w);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < 5; round++) {
+                        AtomicFileWriter.writeArray(file, JsonCodec.gson(), places,
+                            HistoricalPlace.class);
+                    }
+                } catch (Exception e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        checkEquals(List.of(), failures, "помилки запису");
+        List<HistoricalPlace> loaded = read(file);
+        checkEquals(500, loaded.size(), "кількість місць");
+        String writer = loaded.get(0).getDescription();
+        for (HistoricalPlace place : loaded) {
+            checkEquals(writer, place.getDescription(), "місця різних записів в одному файлі");
+        }
+        checkEquals(0, filesEndingWith(directory, ".tmp").length, "тимчасові файли");
+    }
+
+    /**
+     * Зміни каталогу, збережені рушієм з ледачими описами, після повторного відкриття
+     * зчитуються разом з описами, а видалені місця зникають.
+     *
+     * @throws IOException якщо файл не вдалося записати або прочитати.
+     */
+    static void testLazyPlaceEngineReopenRoundTrip() throws IOException {
+        Path file = tempDirectory("lazy-places").resolve("historicalplaces.json");
+        List<HistoricalPlace> places = places(50, "опис");
+        LazyPlaceStorageEngine engine = new LazyPlaceStorageEngine(file, 1024);
+        engine.load();
+        for (HistoricalPlace place : places) {
+            engine.put(place);
+        }
+        engine.delete(7);
+        HistoricalPlace changed = new HistoricalPlace(8, "Змінене", "новий опис", "Львів",
+            "Замок");
+        engine.put(changed);
+        engine.close();
+
+        LazyPlaceStorageEngine reopened = new LazyPlaceStorageEngine(file, 1024);
+        reopened.load();
+        checkEquals(49, reopened.scan().size(), "кількість місць після повторного відкриття");
+        check(reopened.get(7) == null, "видалене місце повернулося");
+        checkSameJson(changed, reopened.get(8), "змінене місце");
+        checkSameJson(places.get(19), reopened.get(20), "незмінене місце");
+        reopened.close();
+    }
+
+    /**
+     * Створює місця для тестів.
+     *
+     * @param count       кількість місць.
+     * @param description опис усіх місць.
+     * @return список місць з ідентифікаторами від 1.
+     */
+    private static List<HistoricalPlace> places(int count, String description) {
+        List<HistoricalPlace> places = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            places.add(new HistoricalPlace(id, "Місце " + id, description, "Місто " + id % 7,
+                "Категорія " + id % 3));
+        }
+        return places;
+    }
+
+    /**
+     * Зчитує масив місць з файлу.
+     *
+     * @param file файл.
+     * @return список місць.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    private static List<HistoricalPlace> read(Path file) throws IOException {
+        return StreamingJsonLoader.loadArray(file, JsonCodec.gson(), HistoricalPlace.class, 0,
+            StreamingJsonLoader.NO_LIMIT, StreamingJsonLoader.ProgressListener.NONE);
+    }
+}
@@ -0,0 +1,137 @@
+package com.agors.historiography.persistence.storage;
+
+import static com.agors.historiography.TestSupport.check;
+import static com.agors.historiography.TestSupport.checkEquals;
+import static com.agors.historiography.TestSupport.checkSameJson;
+import static com.agors.historiography.TestSupport.tempDirectory;
+
+import com.agors.historiography.domain.entity.HistoricalPlace;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тести злиття змін двох екземплярів рушія, що спільно використовують один файл даних, за
+ * штампом версії.
+ */
+final class JsonFileStorageEngineTest {
+
+    /**
+     * Приватний конструктор, щоб запобігти створенню екземплярів.
+     */
+    private JsonFileStorageEngineTest() {
+    }
+
+    /**
+     * Читання іншого екземпляра бачить збережену зміну, а слухачі перечитування викликаються
+     * лише в екземплярі, що побачив чужу зміну, а не у власника запису.
+     *
+     * @throws IOException якщо файл не вдалося записати або прочитати.
+     */
+    static void testReadSeesForeignWrite() throws IOException {
+        Path file = seededFile();
+        JsonFileStorageEngine<Integer, HistoricalPlace> first = open(file);
+        JsonFileStorageEngine<Integer, HistoricalPlace> second = open(file);
+        AtomicInteger firstReloads = new AtomicInteger();
+        AtomicInteger secondReloads = new AtomicInteger();
+        first.addReloadListener(firstReloads::incrementAndGet);
+        second.addReloadListener(secondReloads::incrementAndGet);
+
+        HistoricalPlace added = place(10, "Додане");
+        first.put(added);
+        first.flush();
+
+        checkSameJson(added, second.get(10), "місце, додане іншим екземпляром");
+        checkEquals(4, second.scan().size(), "кількість місць");
+        checkEquals(0, firstReloads.get(), "перечитування після власного запису");
+        checkEquals(1, secondReloads.get(), "перечитування після чужого запису");
+    }
+
+    /**
+     * Зміни різних ключів, зроблені двома екземплярами незалежно, обидві потрапляють до файлу:
+     * другий запис зливає свою зміну з уже збереженою, а не затирає її.
+     *
+     * @throws IOException якщо файл не вдалося записати або прочитати.
+     */
+    static void testIndependentChangesAreMerged() throws IOException {
+        Path file = seededFile();
+        JsonFileStorageEngine<Integer, HistoricalPlace> first = open(file);
+        JsonFileStorageEngine<Integer, HistoricalPlace> second = open(file);
+
+        first.put(place(1, "Змінене першим"));
+        first.flush();
+        second.put(place(2, "Змінене другим"));
+        second.delete(3);
+        second.flush();
+
+        JsonFileStorageEngine<Integer, HistoricalPlace> reopened = open(file);
+        checkEquals("Змінене першим", reopened.get(1).getName(), "зміна першого екземпляра");
+        checkEquals("Змінене другим", reopened.get(2).getName(), "зміна другого екземпляра");
+        check(reopened.get(3) == null, "видалене місце повернулося");
+        checkEquals(2, reopened.scan().size(), "кількість місць");
+    }
+
+    /**
+     * Якщо обидва екземпляри змінили один ключ, перемагає значення, яке вже є у файлі, а
+     * локальна зміна відкидається в обох екземплярах і після повторного відкриття.
+     *
+     * @throws IOException якщо файл не вдалося записати або прочитати.
+     */
+    static void testConflictingChangeKeepsValueOnDisk() throws IOException {
+        Path file = seededFile();
+        JsonFileStorageEngine<Integer, HistoricalPlace> first = open(file);
+        JsonFileStorageEngine<Integer, HistoricalPlace> second = open(file);
+
+        first.put(place(1, "Версія першого"));
+        first.flush();
+        second.put(place(1, "Версія другого"));
+        second.put(place(2, "Без конфлікту"));
+        second.flush();
+
+        checkEquals("Версія першого", second.get(1).getName(), "конфліктний ключ у другому");
+        JsonFileStorageEngine<Integer, HistoricalPlace> reopened = open(file);
+        checkEquals("Версія першого", reopened.get(1).getName(), "конфліктний ключ у файлі");
+        checkEquals("Без конфлікту", reopened.get(2).getName(), "неконфліктна зміна");
+    }
+
+    /**
+     * Створює файл з трьома місцями.
+     *
+     * @return шлях до файлу.
+     * @throws IOException якщо файл не вдалося записати.
+     */
+    private static Path seededFile() throws IOException {
+        Path file = tempDirectory("json-engine").resolve("places.json");
+        AtomicFileWriter.writeArray(file, JsonCodec.gson(),
+            List.of(place(1, "Перше"), place(2, "Друге"), place(3, "Третє")),
+            HistoricalPlace.class);
+        return file;
+    }
+
+    /**
+     * Відкриває рушій над файлом.
+     *
+     * @param file файл даних.
+     * @return завантажений рушій.
+     * @throws IOException якщо файл не вдалося прочитати.
+     */
+    private static JsonFileStorageEngine<Integer, HistoricalPlace> open(Path file)
+        throws IOException {
+        JsonFileStorageEngine<Integer, HistoricalPlace> engine = new JsonFileStorageEngine<>(file,
+            HistoricalPlace::getId, JsonFileStorageEngine.arrayFormat(HistoricalPlace.class));
+        engine.load();
+        return engine;
+    }
+
+    /**
+     * Створює місце для тестів.
+     *
+     * @param id   ідентифікатор.
+     * @param name назва.
+     * @return місце.
+     */
+    private static HistoricalPlace place(int id, String name) {
+        return new HistoricalPlace(id, name, "Опис " + id, "Київ", "Собор");
+    }
+}
@@ -0,0 +1,180 @@
+package com.agors.historiography.persistence.storage;
+
+import static com.agors.historiography.TestSupport.check;
+import static com.agors.historiography.TestSupport.checkEquals;
+import static com.agors.historiography.TestSupport.checkSameJson;
+import static com.agors.historiography.TestSupport.checkThrows;
+import static com.agors.historiography.TestSupport.filesEndingWith;
+import static com.agors.historiography.TestSupport.tempDirectory;
+
+import com.agors.historiography.domain.entity.Review;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Тести сегментованого журналу відгуків: повторне відкриття після змін і ущільнення, а також
+ * відновлення після недописаного останнього запису.
+ */
+final class SegmentedLogTest {
+
+    /**
+     * Приватний конструктор, щоб запобігти створенню екземплярів.
+     */
+    private SegmentedLogTest() {
+    }
+
+    /**
+     * Після додавань, оновлень і видалень, що охоплюють кілька сегментів і ущільнення, повторно
+     * відкритий журнал містить той самий стан.
+     *
+     * @throws IOException якщо журнал не вдалося записати або прочитати.
+     */
+    static void testReopenAfterRotationAndCompaction() throws IOException {
+        Path directory = tempDirectory("segmented-log");
+        Map<Integer, Review> expected = new LinkedHashMap<>();
+        SegmentedLog<Review> log = open(directory, 512, 2);
+        for (int id = 1; id <= 200; id++) {
+            Review review = review(id, id % 10);
+            log.put(review);
+            expected.put(id, review);
+        }
+        for (int id = 1; id <= 200; id += 3) {
+            check(log.delete(id), "відгук " + id + " не видалено");
+            expected.remove(id);
+        }
+        for (int id = 2; id <= 200; id += 5) {
+            Review review = new Review(id, "Місце " + id % 4, "оновлений " + id, 9, "автор");
+            log.put(review);
+            expected.put(id, review);
+        }
+        checkState(expected, log);
+        log.close();
+
+        SegmentedLog<Review> reopened = open(directory, 512, 2);
+        checkState(expected, reopened);
+        reopened.close();
+    }
+
+    /**
+     * Недописаний останній рядок останнього сегмента (збій посеред запису) відрізається під час
+     * відкриття, а наступні записи дописуються вже після нього.
+     *
+     * @throws IOException якщо журнал не вдалося записати або прочитати.
+     */
+    static void testTornTailIsTruncated() throws IOException {
+        Path directory = tempDirectory("segmented-log");
+        SegmentedLog<Review> log = open(directory, 1 << 20, 1000);
+        for (int id = 1; id <= 10; id++) {
+            log.put(review(id, 5));
+        }
+        log.close();
+        Path segment = lastSegment(directory);
+        long intactSize = Files.size(segment);
+        Files.write(segment, "{\"op\":\"put\",\"value\":{\"id\":11,\"placeName\":\"Міс"
+            .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        SegmentedLog<Review> recovered = open(directory, 1 << 20, 1000);
+        checkEquals(10, recovered.scan().size(), "кількість відгуків після відновлення");
+        checkEquals(intactSize, Files.size(segment), "розмір сегмента після відрізання");
+        recovered.put(review(11, 7));
+        recovered.close();
+
+        SegmentedLog<Review> reopened = open(directory, 1 << 20, 1000);
+        checkEquals(11, reopened.scan().size(), "кількість відгуків після повторного відкриття");
+        checkSameJson(review(11, 7), reopened.get(11), "відгук після відновлення");
+        reopened.close();
+    }
+
+    /**
+     * Пошкоджений запис не в кінці останнього сегмента не відкидається мовчки: журнал
+     * відмовляється відкриватися, а сегмент залишається без змін.
+     *
+     * @throws IOException якщо журнал не вдалося записати або прочитати.
+     */
+    static void testCorruptRecordBeforeTailIsRejected() throws IOException {
+        Path directory = tempDirectory("segmented-log");
+        SegmentedLog<Review> log = open(directory, 1 << 20, 1000);
+        for (int id = 1; id <= 10; id++) {
+            log.put(review(id, 5));
+        }
+        log.close();
+        Path segment = lastSegment(directory);
+        List<String> lines = new ArrayList<>(Files.readAllLines(segment, StandardCharsets.UTF_8));
+        lines.add(3, "{\"op\":\"put\",\"value\":{\"id\":");
+        Files.write(segment, lines, StandardCharsets.UTF_8);
+        byte[] corrupted = Files.readAllBytes(segment);
+
+        checkThrows(IOException.class, () -> open(directory, 1 << 20, 1000));
+        check(Arrays.equals(corrupted, Files.readAllBytes(segment)),
+            "пошкоджений сегмент змінено");
+    }
+
+    /**
+     * Відкриває журнал у каталозі з синхронним записом.
+     *
+     * @param directory           каталог журналу.
+     * @param segmentBytes        розмір сегмента.
+     * @param compactionThreshold кількість закритих сегментів до ущільнення.
+     * @return відкритий журнал.
+     * @throws IOException якщо журнал не вдалося відкрити.
+     */
+    private static SegmentedLog<Review> open(Path directory, long segmentBytes,
+        int compactionThreshold) throws IOException {
+        SegmentedLog<Review> log = new SegmentedLog<>(directory.resolve("reviews.json"),
+            directory.resolve("reviews-log"), Review.class, Review::getId, Durability.SYNC, 0,
+            segmentBytes, compactionThreshold);
+        log.load();
+        return log;
+    }
+
+    /**
+     * Повертає найновіший непорожній сегмент журналу.
+     *
+     * @param directory каталог журналу.
+     * @return шлях до сегмента.
+     * @throws IOException якщо каталог не вдалося прочитати.
+     */
+    private static Path lastSegment(Path directory) throws IOException {
+        Path logDirectory = directory.resolve("reviews-log");
+        String[] segments = filesEndingWith(logDirectory, ".log");
+        for (int i = segments.length - 1; i >= 0; i--) {
+            Path segment = logDirectory.resolve(segments[i]);
+            if (Files.size(segment) > 0) {
+                return segment;
+            }
+        }
+        throw new AssertionError("журнал не має непорожніх сегментів");
+    }
+
+    /**
+     * Перевіряє, що журнал містить саме очікувані відгуки.
+     *
+     * @param expected очікувані відгуки за ідентифікатором.
+     * @param log      журнал.
+     */
+    private static void checkState(Map<Integer, Review> expected, SegmentedLog<Review> log) {
+        checkEquals(expected.size(), log.scan().size(), "кількість відгуків");
+        for (Map.Entry<Integer, Review> entry : expected.entrySet()) {
+            checkSameJson(entry.getValue(), log.get(entry.getKey()), "відгук " + entry.getKey());
+        }
+    }
+
+    /**
+     * Створює відгук для тестів.
+     *
+     * @param id     ідентифікатор відгуку.
+     * @param rating оцінка.
+     * @return відгук.
+     */
+    private static Review review(int id, int rating) {
+        return new Review(id, "Місце " + id % 4, "Відгук " + id, rating, "автор " + id % 3);
+    }
+}
@@ -0,0 +1,222 @@
+package com.agors.historiography.persistence.storage;
+
+import static com.agors.historiography.TestSupport.check;
+import static com.agors.historiography.TestSupport.checkEquals;
+import static com.agors.historiography.TestSupport.checkSameJson;
+import static com.agors.historiography.TestSupport.filesEndingWith;
+import static com.agors.historiography.TestSupport.tempDirectory;
+
+import com.agors.historiography.domain.entity.Review;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Тести шардованого сховища відгуків: створення з наявних відгуків, повторне відкриття після змін
+ * і відновлення після незавершеного створення.
+ */
+final class ShardedStoreTest {
+
+    /**
+     * Приватний конструктор, щоб запобігти створенню екземплярів.
+     */
+    private ShardedStoreTest() {
+    }
+
+    /**
+     * Сховище, створене з відгуків, після відкриття містить ті самі відгуки за розділами, а зміни
+     * після повторного відкриття зберігаються.
+     *
+     * @throws IOException якщо сховище не вдалося записати або прочитати.
+     */
+    static void testCreateAndReopenRoundTrip() throws IOException {
+        Path directory = tempDirectory("sharded-store").resolve("reviews-shards");
+        List<Review> reviews = reviews(60);
+        ShardedStore.create(directory, Review.class, Review::getId, Review::getPlaceName,
+            Review::getRating, reviews);
+
+        ShardedStore<Review> store = open(directory);
+        checkEquals(4, store.partitions().size(), "кількість розділів");
+        checkEquals(15, store.partition("Місце 1").size(), "відгуки розділу");
+        Map<Integer, Review> expected = new LinkedHashMap<>();
+        reviews.forEach(review -> expected.put(review.getId(), review));
+        int id = store.nextId();
+        check(id > 60, "новий ідентифікатор " + id + " не перевищує наявні");
+        Review added = new Review(id, "Нове місце", "новий", 8, "автор");
+        store.put(added);
+        expected.put(id, added);
+        Review moved = new Review(5, "Місце 2", "перенесений", 1, "автор");
+        store.put(moved);
+        expected.put(5, moved);
+        store.delete("Місце 3", 3);
+        expected.remove(3);
+        store.close();
+
+        ShardedStore<Review> reopened = open(directory);
+        checkEquals(expected.size(), reopened.scan().size(), "кількість відгуків");
+        for (Map.Entry<Integer, Review> entry : expected.entrySet()) {
+            checkSameJson(entry.getValue(), reopened.get(entry.getKey()),
+                "відгук " + entry.getKey());
+        }
+        check(reopened.partition("Місце 1").stream().noneMatch(review -> review.getId() == 5),
+            "перенесений відгук залишився в старому розділі");
+        check(reopened.nextId() > id, "ідентифікатор видано повторно");
+    }
+
+    /**
+     * Залишки незавершеного створення (каталог без маніфесту і тимчасовий каталог) не вважаються
+     * сховищем і замінюються повним сховищем під час повторної спроби.
+     *
+     * @throws IOException якщо сховище не вдалося записати або прочитати.
+     */
+    static void testInterruptedCreateIsRetried() throws IOException {
+        Path directory = tempDirectory("sharded-store").resolve("reviews-shards");
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("shard-000001.json"), "[{\"id\":1",
+            StandardCharsets.UTF_8);
+        Path temp = directory.resolveSibling("reviews-shards.creating");
+        Files.createDirectories(temp);
+        Files.writeString(temp.resolve("shard-000001.json"), "[]", StandardCharsets.UTF_8);
+        check(!ShardedStore.exists(directory), "каталог без маніфесту вважається сховищем");
+
+        ShardedStore.create(directory, Review.class, Review::getId, Review::getPlaceName,
+            Review::getRating, reviews(20));
+
+        check(ShardedStore.exists(directory), "сховище не створено");
+        check(!Files.exists(temp), "тимчасовий каталог залишився");
+        checkEquals(20, open(directory).scan().size(), "кількість відгуків");
+    }
+
+    /**
+     * Зведення оцінок розділів після повторного відкриття береться з файлу зведень без читання
+     * шардів: шард, замінений сміттям того самого розміру й часу зміни, не читається.
+     *
+     * @throws IOException якщо сховище не вдалося записати або прочитати.
+     */
+    static void testSummariesAreReadWithoutShards() throws IOException {
+        Path directory = tempDirectory("sharded-store").resolve("reviews-shards");
+        ShardedStore.create(directory, Review.class, Review::getId, Review::getPlaceName,
+            Review::getRating, reviews(40));
+        ShardedStore<Review> store = open(directory);
+        store.put(new Review(store.nextId(), "Місце 1", "новий", 9, "автор"));
+        store.close();
+        Map<String, Map<Integer, Integer>> expected = new LinkedHashMap<>();
+        for (String partition : store.partitions()) {
+            expected.put(partition, counts(store.partition(partition)));
+        }
+
+        for (String name : shardFiles(directory)) {
+            Path shard = directory.resolve(name);
+            FileTime modified = Files.getLastModifiedTime(shard);
+            Files.write(shard, new byte[(int) Files.size(shard)]);
+            Files.setLastModifiedTime(shard, modified);
+        }
+        ShardedStore<Review> reopened = open(directory);
+        for (Map.Entry<String, Map<Integer, Integer>> entry : expected.entrySet()) {
+            checkEquals(entry.getValue(), counts(reopened.measureCounts(entry.getKey())),
+                "зведення розділу " + entry.getKey());
+        }
+    }
+
+    /**
+     * Зведення, що не відповідає файлу шарду (збій між записом шарду і записом зведень), під час
+     * відкриття будується заново з шарду.
+     *
+     * @throws IOException якщо сховище не вдалося записати або прочитати.
+     */
+    static void testStaleSummaryIsRebuiltFromShard() throws IOException {
+        Path directory = tempDirectory("sharded-store").resolve("reviews-shards");
+        ShardedStore.create(directory, Review.class, Review::getId, Review::getPlaceName,
+            Review::getRating, reviews(40));
+        String first = shardFiles(directory).get(0);
+        List<Review> replaced = List.of(new Review(1, "Місце 1", "єдиний", 2, "автор"));
+        AtomicFileWriter.writeArray(directory.resolve(first), JsonCodec.gson(), replaced,
+            Review.class);
+
+        ShardedStore<Review> reopened = open(directory);
+        checkEquals(Map.of(2, 1), counts(reopened.measureCounts("Місце 1")),
+            "зведення заміненого шарду");
+        reopened.close();
+        ShardedStore<Review> again = open(directory);
+        checkEquals(Map.of(2, 1), counts(again.measureCounts("Місце 1")),
+            "зведення після повторного відкриття");
+    }
+
+    /**
+     * Підраховує кількість відгуків з кожною оцінкою.
+     *
+     * @param reviews відгуки.
+     * @return кількості відгуків за оцінкою.
+     */
+    private static Map<Integer, Integer> counts(List<Review> reviews) {
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        for (Review review : reviews) {
+            counts.merge(review.getRating(), 1, Integer::sum);
+        }
+        return new TreeMap<>(counts);
+    }
+
+    /**
+     * Перетворює таблицю кількостей сховища на звичайну таблицю.
+     *
+     * @param measures кількості за значенням міри.
+     * @return кількості за значенням міри, упорядковані за значенням.
+     */
+    private static Map<Integer, Integer> counts(IntHashMap<Integer> measures) {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        measures.forEach(counts::put);
+        return counts;
+    }
+
+    /**
+     * Повертає назви файлів шардів у каталозі сховища.
+     *
+     * @param directory каталог шардів.
+     * @return відсортовані назви файлів шардів.
+     * @throws IOException якщо каталог не вдалося прочитати.
+     */
+    private static List<String> shardFiles(Path directory) throws IOException {
+        List<String> shards = new ArrayList<>();
+        for (String name : filesEndingWith(directory, ".json")) {
+            if (name.startsWith("shard-")) {
+                shards.add(name);
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Відкриває сховище зі зведеннями оцінок.
+     *
+     * @param directory каталог шардів.
+     * @return відкрите сховище.
+     * @throws IOException якщо сховище не вдалося відкрити.
+     */
+    private static ShardedStore<Review> open(Path directory) throws IOException {
+        ShardedStore<Review> store = new ShardedStore<>(directory, Review.class, Review::getId,
+            Review::getPlaceName, Review::getRating);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Створює відгуки про чотири місця.
+     *
+     * @param count кількість відгуків.
+     * @return список відгуків з ідентифікаторами від 1.
+     */
+    private static List<Review> reviews(int count) {
+        List<Review> reviews = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            reviews.add(new Review(id, "Місце " + id % 4, "Відгук " + id, id % 10, "автор"));
+        }
+        return reviews;
+    }
+}